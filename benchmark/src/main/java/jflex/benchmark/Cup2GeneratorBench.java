@@ -0,0 +1,100 @@
+package jflex.benchmark;
+
+import edu.tum.cup2.generator.LALR1CPGenerator;
+import edu.tum.cup2.generator.LALR1Generator;
+import edu.tum.cup2.generator.LALR1ParallelGenerator;
+import edu.tum.cup2.generator.LALR1SCCGenerator;
+import edu.tum.cup2.generator.LR1Generator;
+import edu.tum.cup2.generator.LR1ParallelGenerator;
+import edu.tum.cup2.generator.LR1toLALRGenerator;
+import edu.tum.cup2.generator.Verbosity;
+import edu.tum.cup2.parser.tables.LRParsingTable;
+import edu.tum.cup2.spec.CUP2Specification;
+import edu.tum.cup2.spec.SampleSpec;
+import edu.tum.cup2.spec.TranslatedCSpec2;
+import edu.tum.cup2.spec.WeakCompatibleLR1TestSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Parse table construction time of the CUP2 parser generators, from a toy grammar to the grammar of
+ * C.
+ *
+ * <p>Run with {@code -prof gc} to also see the memory allocated per table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1)
+public class Cup2GeneratorBench {
+
+  /** The grammar of C, with the dangling else resolved by shifting. */
+  public static class CSpec extends TranslatedCSpec2 {
+    public CSpec() {
+      precedences(right(Terminals.ELSE));
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class GrammarState {
+    /** The grammar: toy (expressions), small, or C (213 productions). */
+    @Param({"toy", "small", "c"})
+    public String grammar;
+
+    @Param({"LR1", "LR1Parallel", "LALR1", "LALR1CP", "LALR1SCC", "LALR1Parallel", "LR1toLALR"})
+    public String generator;
+
+    public CUP2Specification spec;
+
+    @Setup
+    public void setup() {
+      switch (grammar) {
+        case "toy":
+          spec = new SampleSpec();
+          break;
+        case "small":
+          spec = new WeakCompatibleLR1TestSpec();
+          break;
+        case "c":
+          spec = new CSpec();
+          break;
+        default:
+          throw new IllegalArgumentException("unknown grammar " + grammar);
+      }
+    }
+  }
+
+  @Benchmark
+  public LRParsingTable generate(GrammarState state) throws Exception {
+    CUP2Specification spec = state.spec;
+    switch (state.generator) {
+      case "LR1":
+        return new LR1Generator(spec, Verbosity.None).getParsingTable();
+      case "LR1Parallel":
+        return new LR1ParallelGenerator(spec, Verbosity.None).getParsingTable();
+      case "LALR1":
+        return new LALR1Generator(spec, Verbosity.None).getParsingTable();
+      case "LALR1CP":
+        return new LALR1CPGenerator(spec, Verbosity.None).getParsingTable();
+      case "LALR1SCC":
+        return new LALR1SCCGenerator(spec, Verbosity.None).getParsingTable();
+      case "LALR1Parallel":
+        return new LALR1ParallelGenerator(spec, Verbosity.None).getParsingTable();
+      case "LR1toLALR":
+        return new LR1toLALRGenerator(spec, Verbosity.None).getParsingTable();
+      default:
+        throw new IllegalArgumentException("unknown generator " + state.generator);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(Cup2GeneratorBench.class.getSimpleName()).build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,95 @@
+package jflex.benchmark;
+
+import static edu.tum.cup2.spec.SampleSpec.Terminals.*;
+
+import edu.tum.cup2.generator.LALR1Generator;
+import edu.tum.cup2.generator.LR1Generator;
+import edu.tum.cup2.grammar.SpecialTerminals;
+import edu.tum.cup2.parser.LRParser;
+import edu.tum.cup2.scanner.Scanner;
+import edu.tum.cup2.scanner.ScannerToken;
+import edu.tum.cup2.spec.SampleSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Parsing speed of the CUP2 {@link LRParser} in tokens per second, on a synthetic token stream of
+ * arithmetic expressions for {@link SampleSpec}. The tokens are created in advance, so the scanner
+ * costs nothing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1)
+public class Cup2ParserBench {
+
+  /** Number of repetitions of "n + 2 * (3 + 4) +" in the input. */
+  private static final int GROUPS = 10_000;
+
+  /** Number of tokens per parse: the groups, "1;" and the end of input. */
+  private static final int TOKENS = 10 * GROUPS + 3;
+
+  @State(Scope.Benchmark)
+  public static class ParserState {
+    @Param({"LR1", "LALR1"})
+    public String generator;
+
+    public LRParser parser;
+
+    /** One long expression (the grammar accepts a single statement), ending with end of input. */
+    public ScannerToken<?>[] tokens;
+
+    @Setup
+    public void setup() throws Exception {
+      parser =
+          new LRParser(
+              generator.equals("LR1")
+                  ? new LR1Generator(new SampleSpec()).getParsingTable()
+                  : new LALR1Generator(new SampleSpec()).getParsingTable());
+      tokens = new ScannerToken<?>[TOKENS];
+      int i = 0;
+      for (int n = 0; n < GROUPS; n++) {
+        tokens[i] = new ScannerToken<Integer>(NUMBER, n % 10, 1, i++);
+        tokens[i] = new ScannerToken<Object>(PLUS, 1, i++);
+        tokens[i] = new ScannerToken<Integer>(NUMBER, 2, 1, i++);
+        tokens[i] = new ScannerToken<Object>(TIMES, 1, i++);
+        tokens[i] = new ScannerToken<Object>(LPAREN, 1, i++);
+        tokens[i] = new ScannerToken<Integer>(NUMBER, 3, 1, i++);
+        tokens[i] = new ScannerToken<Object>(PLUS, 1, i++);
+        tokens[i] = new ScannerToken<Integer>(NUMBER, 4, 1, i++);
+        tokens[i] = new ScannerToken<Object>(RPAREN, 1, i++);
+        tokens[i] = new ScannerToken<Object>(PLUS, 1, i++);
+      }
+      tokens[i] = new ScannerToken<Integer>(NUMBER, 1, 1, i++);
+      tokens[i] = new ScannerToken<Object>(SEMI, 1, i++);
+      tokens[i] = new ScannerToken<Object>(SpecialTerminals.EndOfInputStream);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TOKENS)
+  public Object parse(ParserState state) throws Exception {
+    ScannerToken<?>[] tokens = state.tokens;
+    Scanner scanner =
+        new Scanner() {
+          private int next = 0;
+
+          @Override
+          public ScannerToken<? extends Object> readNextTerminal() {
+            return tokens[next++];
+          }
+        };
+    return state.parser.parse(scanner);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder().include(Cup2ParserBench.class.getSimpleName()).build();
+
+    new Runner(opt).run();
+  }
+}
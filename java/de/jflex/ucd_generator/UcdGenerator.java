@@ -25,6 +25,7 @@
  */
 package de.jflex.ucd_generator;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import de.jflex.ucd.UcdVersion;
 import de.jflex.ucd_generator.emitter.unicode_properties.UnicodePropertiesEmitter;
 import de.jflex.ucd_generator.emitter.unicode_version.UnicodeVersionEmitter;
@@ -36,7 +37,14 @@ import de.jflex.version.Version;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.velocity.runtime.parser.ParseException;
 
 /**
@@ -72,21 +80,80 @@ public class UcdGenerator {
     }
   }
 
-  /** Emits {@code Unicode_X_Y.java} files. */
+  /**
+   * Emits {@code Unicode_X_Y.java} files.
+   *
+   * <p>The versions are independent of each other, and are scanned and emitted concurrently. The
+   * scanners of all versions share one pool for their files, so that the number of threads stays
+   * bounded by twice the number of processors.
+   */
   private static void emitAllUnicodeXY(UcdVersions ucdVersions, File outputDir)
       throws IOException, ParseException, UcdScannerException {
-    for (Version version : ucdVersions.versionSet()) {
-      UcdVersion ucdVersion = ucdVersions.get(version);
-      emitUnicodeVersionXY(ucdVersion, outputDir);
+    int processors = Runtime.getRuntime().availableProcessors();
+    int threads = Math.max(1, Math.min(ucdVersions.versionSet().size(), processors));
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    ExecutorService scanExecutor = Executors.newFixedThreadPool(processors);
+    try {
+      List<Future<?>> emissions = new ArrayList<>();
+      for (Version version : ucdVersions.versionSet()) {
+        UcdVersion ucdVersion = ucdVersions.get(version);
+        emissions.add(
+            executor.submit(
+                () -> {
+                  emitUnicodeVersionXY(ucdVersion, outputDir, scanExecutor);
+                  return null;
+                }));
+      }
+      for (Future<?> emission : emissions) {
+        awaitEmission(emission);
+      }
+    } finally {
+      executor.shutdownNow();
+      scanExecutor.shutdownNow();
+    }
+  }
+
+  /** Waits for the emission of a version, and rethrows its failure. */
+  private static void awaitEmission(Future<?> emission)
+      throws IOException, ParseException, UcdScannerException {
+    try {
+      emission.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while emitting Unicode versions");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof ParseException) {
+        throw (ParseException) cause;
+      }
+      if (cause instanceof UcdScannerException) {
+        throw (UcdScannerException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
     }
   }
 
-  /** Emits {@code Unicode_X_Y.java} for a give version. */
+  /** Emits {@code Unicode_X_Y.java} for a give version, scanning its files sequentially. */
   static void emitUnicodeVersionXY(UcdVersion ucdVersion, File outputDir)
       throws IOException, ParseException, UcdScannerException {
+    emitUnicodeVersionXY(ucdVersion, outputDir, MoreExecutors.newDirectExecutorService());
+  }
+
+  /**
+   * Emits {@code Unicode_X_Y.java} for a give version, scanning its files on the given executor.
+   */
+  static void emitUnicodeVersionXY(
+      UcdVersion ucdVersion, File outputDir, ExecutorService scanExecutor)
+      throws IOException, ParseException, UcdScannerException {
     String unicodeClassName = ucdVersion.version().unicodeClassName();
     System.out.println(String.format("Emitting %s [WIP]", unicodeClassName));
-    UnicodeData unicodeData = scanUnicodeVersion(ucdVersion);
+    UnicodeData unicodeData = scanUnicodeVersion(ucdVersion, scanExecutor);
     File outputFile = new File(outputDir, unicodeClassName + ".java");
     UnicodeVersionEmitter emitter =
         new UnicodeVersionEmitter(PACKAGE_JFLEX_UNICODE, ucdVersion, unicodeData);
@@ -95,8 +162,9 @@ public class UcdGenerator {
     }
   }
 
-  private static UnicodeData scanUnicodeVersion(UcdVersion ucdVersion) throws UcdScannerException {
-    return new UcdScanner(ucdVersion).scan();
+  private static UnicodeData scanUnicodeVersion(UcdVersion ucdVersion, ExecutorService scanExecutor)
+      throws UcdScannerException {
+    return new UcdScanner(ucdVersion, scanExecutor).scan();
   }
 
   private UcdGenerator() {}
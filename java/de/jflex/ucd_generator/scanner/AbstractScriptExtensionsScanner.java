@@ -32,7 +32,6 @@ import static de.jflex.ucd_generator.ucd.PropertyNames.NORMALIZED_GENERAL_CATEGO
 import com.google.common.collect.ImmutableSortedMap;
 import de.jflex.ucd.CodepointRange;
 import de.jflex.ucd_generator.ucd.CodepointRangeSet;
-import de.jflex.ucd_generator.ucd.MutableCodepointRange;
 import de.jflex.ucd_generator.ucd.PropertyNames;
 import de.jflex.ucd_generator.ucd.UnicodeData;
 import java.util.Collection;
@@ -82,8 +81,8 @@ abstract class AbstractScriptExtensionsScanner {
       for (CodepointRange range : unicodeData.getPropertyValueIntervals(script)) {
         for (int ch = range.start(); ch <= range.end(); ++ch) {
           if (!scriptExtensionsCodePoint[ch]) {
-            // TODO(regisd) This is very frequent an inefficient
-            intervalsBuilder.add(MutableCodepointRange.create(ch, ch));
+            // Consecutive code points are merged into the last range of the builder.
+            intervalsBuilder.add(ch, ch);
           }
         }
       }
@@ -147,7 +146,7 @@ abstract class AbstractScriptExtensionsScanner {
         scriptIntervals.computeIfAbsent(
             unicodeData.getCanonicalPropertyValueName("script", script),
             k -> CodepointRangeSet.builder());
-    intervals.add(MutableCodepointRange.create(start, end));
+    intervals.add(start, end);
 
     for (int ch = start; ch <= end; ++ch) {
       scriptExtensionsCodePoint[ch] = true;
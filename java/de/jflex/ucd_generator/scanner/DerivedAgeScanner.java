@@ -33,7 +33,6 @@ import de.jflex.ucd.CodepointRange;
 import de.jflex.ucd.NamedCodepointRange;
 import de.jflex.ucd.SurrogateUtils;
 import de.jflex.ucd_generator.ucd.CodepointRangeSet;
-import de.jflex.ucd_generator.ucd.MutableCodepointRange;
 import de.jflex.ucd_generator.ucd.UnicodeData;
 import de.jflex.version.Version;
 import java.io.Reader;
@@ -116,7 +115,7 @@ class DerivedAgeScanner extends EnumeratedPropertyFileScanner {
     Set<CodepointRange> highestVersionRanges = ageRangesPerVersion.get(lastVersion);
     CodepointRangeSet unassigned =
         CodepointRangeSet.builder()
-            .add(MutableCodepointRange.create(0, unicodeData.maximumCodePoint()))
+            .add(0, unicodeData.maximumCodePoint())
             .substractAll(highestVersionRanges)
             .substract(SurrogateUtils.SURROGATE_RANGE)
             .build();
@@ -32,6 +32,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
 import de.jflex.ucd.UcdFileType;
 import de.jflex.ucd.UcdVersion;
 import de.jflex.ucd.Versions;
@@ -41,37 +42,66 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class UcdScanner {
 
   private static final boolean DEBUG = false;
 
   private final UcdVersion ucdVersion;
+  private final ExecutorService executor;
   final UnicodeData unicodeData;
 
+  /** Creates a scanner that scans the files one after the other, in the calling thread. */
   public UcdScanner(UcdVersion ucdVersion) {
+    this(ucdVersion, MoreExecutors.newDirectExecutorService());
+  }
+
+  /**
+   * Creates a scanner that scans independent files concurrently on the given executor.
+   *
+   * <p>The executor is not shut down by the scanner, so that it can be shared by the scanners of
+   * several versions. Its tasks never wait for each other, so a bounded pool is fine.
+   */
+  public UcdScanner(UcdVersion ucdVersion, ExecutorService executor) {
     this.ucdVersion = ucdVersion;
+    this.executor = checkNotNull(executor);
     this.unicodeData = new UnicodeData(ucdVersion.version());
   }
 
-  /** Scans all UCD data files. */
+  /**
+   * Scans all UCD data files.
+   *
+   * <p>Files that don't depend on each other are scanned concurrently: the binary properties and
+   * {@code UnicodeData.txt} first, then the enumerated properties, which need the maximum code
+   * point from {@code UnicodeData.txt}. {@code ScriptExtensions.txt} needs the scripts, and is
+   * scanned last.
+   */
   public UnicodeData scan() throws UcdScannerException {
     try {
       scanPropertyAliases();
       scanPropertyValueAliases();
       cloneScriptsToScriptExtensions();
-      scanUnicodeData();
-      scanPropList();
-      scanDerivedCoreProperties();
-      scanScripts();
+      scanConcurrently(
+          executor,
+          this::scanUnicodeData,
+          this::scanPropList,
+          this::scanDerivedCoreProperties,
+          this::scanEmoji);
+      scanConcurrently(
+          executor,
+          this::scanScripts,
+          this::scanBlocks,
+          this::scanLineBreak,
+          this::scanGraphemeBreakProperty,
+          this::scanSentenceBreakProperty,
+          this::scanWordBreakProperty,
+          this::scanDerivedAge);
       scanScriptExtensions();
-      scanBlocks();
-      scanLineBreak();
-      scanGraphemeBreakProperty();
-      scanSentenceBreakProperty();
-      scanWordBreakProperty();
-      scanDerivedAge();
-      scanEmoji();
       unicodeData.addCompatibilityProperties();
       unicodeData.hackUnicode_2_0();
 
@@ -84,6 +114,37 @@ public class UcdScanner {
     }
   }
 
+  /** Scans the given files concurrently, and rethrows the first failure. */
+  private static void scanConcurrently(ExecutorService executor, FileScan... scans)
+      throws Exception {
+    List<Future<?>> futures = new ArrayList<>();
+    for (FileScan scan : scans) {
+      futures.add(
+          executor.submit(
+              () -> {
+                scan.scan();
+                return null;
+              }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        }
+        throw (Error) cause;
+      }
+    }
+  }
+
+  /** The scan of a single UCD file. */
+  @FunctionalInterface
+  private interface FileScan {
+    void scan() throws IOException;
+  }
+
   void scanPropertyAliases() throws IOException {
     File file = ucdVersion.getFile(UcdFileType.PropertyAliases);
     if (file != null) {
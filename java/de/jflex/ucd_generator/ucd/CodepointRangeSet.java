@@ -33,11 +33,9 @@ import com.google.common.collect.ImmutableList;
 import de.jflex.ucd.CodepointRange;
 import de.jflex.ucd.NamedCodepointRange;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 @AutoValue
 public abstract class CodepointRangeSet {
@@ -48,11 +46,28 @@ public abstract class CodepointRangeSet {
     return new AutoValue_CodepointRangeSet.Builder();
   }
 
+  /**
+   * Builds a set of code points from ranges.
+   *
+   * <p>The ranges are kept in a primitive array of start and end code points. Ranges added in
+   * increasing order, as they come from the UCD files, are merged on the fly; other ranges are
+   * sorted and merged once, before the next subtraction or {@link #build()}. Subtractions are a
+   * single merge of two sorted arrays.
+   */
   @AutoValue.Builder
   public abstract static class Builder {
 
-    private final TreeSet<MutableCodepointRange> mRanges =
-        new TreeSet<>(MutableCodepointRange.COMPARATOR_START_POINT);
+    /**
+     * Start and end code point of the i-th range in {@code intervals[2 * i]} and {@code intervals[2
+     * * i + 1]}.
+     */
+    private int[] intervals = new int[16];
+
+    /** Number of used elements in {@link #intervals}, twice the number of ranges. */
+    private int size;
+
+    /** Whether the ranges are sorted, disjoint and not adjacent. */
+    private boolean normalized = true;
 
     abstract ImmutableList.Builder<CodepointRange> rangesBuilder();
 
@@ -60,8 +75,9 @@ public abstract class CodepointRangeSet {
       if (ranges == null) {
         return this;
       }
+      ensureCapacity(size + 2 * ranges.size());
       for (CodepointRange range : ranges) {
-        add(range);
+        add(range.start(), range.end());
       }
       return this;
     }
@@ -70,8 +86,9 @@ public abstract class CodepointRangeSet {
       if (ranges == null) {
         return this;
       }
+      ensureCapacity(size + 2 * ranges.size());
       for (MutableCodepointRange range : ranges) {
-        add(range);
+        add(range.start, range.end);
       }
       return this;
     }
@@ -81,121 +98,148 @@ public abstract class CodepointRangeSet {
     }
 
     public Builder add(CodepointRange range) {
-      return add(MutableCodepointRange.create(range));
+      return add(range.start(), range.end());
     }
 
     public Builder add(MutableCodepointRange range) {
-      mRanges.add(range);
-      return this;
+      return add(range.start, range.end);
     }
 
-    public Builder substractAll(Collection<CodepointRange> substractingRanges) {
-      int end = mRanges.last().end;
-      for (CodepointRange substractingRange : substractingRanges) {
-        if (substractingRange.start() > end) {
+    /** Adds the code points from {@code start} to {@code end}, inclusive. */
+    public Builder add(int start, int end) {
+      if (normalized && size > 0) {
+        int lastEnd = intervals[size - 1];
+        if (start < intervals[size - 2]) {
+          normalized = false;
+        } else if (start <= lastEnd + 1) {
+          // Overlaps with or extends the last range
+          intervals[size - 1] = Math.max(lastEnd, end);
           return this;
         }
-        substract(substractingRange);
       }
+      ensureCapacity(size + 2);
+      intervals[size++] = start;
+      intervals[size++] = end;
+      return this;
+    }
+
+    public Builder substractAll(Collection<CodepointRange> substractingRanges) {
+      if (size == 0 || substractingRanges.isEmpty()) {
+        return this;
+      }
+      Builder substracting = builder().addAllImmutable(substractingRanges);
+      substracting.normalize();
+      substract(substracting.intervals, substracting.size);
       return this;
     }
 
     /**
      * Removes all values in the {@link CodepointRangeSet} that are within {@code
      * substractingRange}.
-     *
-     * <p>This method assumes intervals are ordered and non-overlapping.
      */
     public Builder substract(CodepointRange substractingRange) {
-      if (mRanges.isEmpty()) {
+      if (size == 0) {
         return this;
       }
-      List<MutableCodepointRange> intersection = intersection(substractingRange);
-      if (intersection.isEmpty()) {
-        return this;
-      }
-      MutableCodepointRange first = intersection.get(0);
-      sub(first, substractingRange);
-      MutableCodepointRange last = intersection.get(intersection.size() - 1);
-      if (!last.equals(first)) {
-        sub(last, substractingRange);
-      }
-      if (intersection.size() > 2) {
-        mRanges.removeAll(intersection.subList(1, intersection.size() - 1));
-      }
+      substract(new int[] {substractingRange.start(), substractingRange.end()}, 2);
       return this;
     }
 
-    /** Removes sub from range and updates mRanges. */
-    private void sub(MutableCodepointRange range, CodepointRange sub) {
-      if (sub.start() <= range.start && sub.end() >= range.end) {
-        mRanges.remove(range);
-      } else if (range.start < sub.start() && sub.end() < range.end) {
-        // sub is a strict subset
-        mRanges.add(MutableCodepointRange.create(sub.end() + 1, range.end));
-        range.end = sub.start() - 1;
-      } else if (sub.start() <= range.start) {
-        range.start = sub.end() + 1;
-      } else if (range.end <= sub.end()) {
-        range.end = sub.start() - 1;
-      } else {
-        throw new IllegalStateException(
-            String.format("Cannot remove sub=%s from range=%s", sub, range));
+    /** Removes the normalized ranges of {@code sub} in a single pass over both arrays. */
+    private void substract(int[] sub, int subSize) {
+      normalize();
+      // Each substracting range splits at most one range in two.
+      int[] result = new int[size + subSize];
+      int n = 0;
+      int j = 0;
+      for (int i = 0; i < size; i += 2) {
+        int start = intervals[i];
+        int end = intervals[i + 1];
+        while (j < subSize && sub[j + 1] < start) {
+          j += 2;
+        }
+        // A substracting range that ends after this range may also cut the next one.
+        while (j < subSize && sub[j] <= end) {
+          if (start < sub[j]) {
+            result[n++] = start;
+            result[n++] = sub[j] - 1;
+          }
+          start = Math.max(start, sub[j + 1] + 1);
+          if (sub[j + 1] > end) {
+            break;
+          }
+          j += 2;
+        }
+        if (start <= end) {
+          result[n++] = start;
+          result[n++] = end;
+        }
       }
+      intervals = result;
+      size = n;
     }
 
     /** Returns all intervals that intersect with intersecting. */
     @VisibleForTesting
     List<MutableCodepointRange> intersection(CodepointRange intersecting) {
-      List<MutableCodepointRange> intersection = new ArrayList<>();
-
-      MutableCodepointRange start = MutableCodepointRange.createPoint(intersecting.start());
-      MutableCodepointRange end = MutableCodepointRange.createPoint(intersecting.end() + 1);
-      // All intervals that start strictly after the intersecting (but not after its end)
-      SortedSet<MutableCodepointRange> subset = mRanges.subSet(start, end);
-
-      // Also consider the last interval which was starting before
-      try {
-        SortedSet<MutableCodepointRange> prevRanges =
-            subset.isEmpty() ? mRanges.headSet(end) : mRanges.headSet(subset.first());
-        MutableCodepointRange prevRange = prevRanges.last();
-        if (prevRange.start < intersecting.start() && intersecting.start() <= prevRange.end) {
-          intersection.add(0, prevRange);
+      normalize();
+      // Binary search of the first range that ends at or after the start of intersecting
+      int low = 0;
+      int high = size / 2;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (intervals[2 * mid + 1] < intersecting.start()) {
+          low = mid + 1;
+        } else {
+          high = mid;
         }
-      } catch (NoSuchElementException e) {
-        // lastRange remains null
       }
-
-      intersection.addAll(subset);
-
+      List<MutableCodepointRange> intersection = new ArrayList<>();
+      for (int i = 2 * low; i < size && intervals[i] <= intersecting.end(); i += 2) {
+        intersection.add(MutableCodepointRange.create(intervals[i], intervals[i + 1]));
+      }
       return intersection;
     }
 
     public CodepointRangeSet build() {
-      Preconditions.checkState(!mRanges.isEmpty(), "Cannot create an empty set");
-      internalAddRanges();
+      normalize();
+      Preconditions.checkState(size > 0, "Cannot create an empty set");
+      ImmutableList.Builder<CodepointRange> ranges = rangesBuilder();
+      for (int i = 0; i < size; i += 2) {
+        ranges.add(CodepointRange.create(intervals[i], intervals[i + 1]));
+      }
       return internalBuild();
     }
 
-    private void internalAddRanges() {
-      MutableCodepointRange lastRange = null;
-      for (MutableCodepointRange r : mRanges) {
-        if (lastRange == null) {
-          lastRange = r;
-          continue;
-        }
-        if (lastRange.end + 1 == r.start) {
-          lastRange.end = r.end;
+    /** Sorts the ranges, and merges those that overlap or are adjacent. */
+    private void normalize() {
+      if (normalized) {
+        return;
+      }
+      // Code points are positive: sorting (start << 32 | end) sorts by start, then by end.
+      long[] sorted = new long[size / 2];
+      for (int i = 0; i < sorted.length; i++) {
+        sorted[i] = (long) intervals[2 * i] << 32 | intervals[2 * i + 1];
+      }
+      Arrays.sort(sorted);
+      size = 0;
+      for (long range : sorted) {
+        int start = (int) (range >>> 32);
+        int end = (int) range;
+        if (size > 0 && start <= intervals[size - 1] + 1) {
+          intervals[size - 1] = Math.max(intervals[size - 1], end);
         } else {
-          internalAddRange(lastRange);
-          lastRange = r;
+          intervals[size++] = start;
+          intervals[size++] = end;
         }
       }
-      internalAddRange(lastRange);
+      normalized = true;
     }
 
-    private void internalAddRange(MutableCodepointRange range) {
-      rangesBuilder().add(range.toImmutableRange());
+    private void ensureCapacity(int capacity) {
+      if (capacity > intervals.length) {
+        intervals = Arrays.copyOf(intervals, Math.max(capacity, 2 * intervals.length));
+      }
     }
 
     abstract CodepointRangeSet internalBuild();
@@ -26,15 +26,11 @@
 package de.jflex.ucd_generator.ucd;
 
 import de.jflex.ucd.CodepointRange;
-import java.util.Comparator;
 import java.util.Objects;
 
 /** Mutable version of the {@link CodepointRange}. */
 public class MutableCodepointRange {
 
-  static final Comparator<MutableCodepointRange> COMPARATOR_START_POINT =
-      Comparator.comparingInt(o -> o.start);
-
   public int start;
   public int end;
 
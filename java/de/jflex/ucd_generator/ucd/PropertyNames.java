@@ -34,6 +34,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 public class PropertyNames {
@@ -41,7 +42,8 @@ public class PropertyNames {
   /** Pattern used to normalize property value identifiers */
   private static final Pattern WORD_SEP_PATTERN = Pattern.compile("[-_\\s()]");
 
-  private static final Map<String, String> normalized = new HashMap<>();
+  /** Shared by all Unicode versions, which are scanned concurrently. */
+  private static final Map<String, String> normalized = new ConcurrentHashMap<>();
 
   /** Normalized General_Category property name. */
   public static final String NORMALIZED_GENERAL_CATEGORY = normalize("General_Category");
@@ -48,6 +48,12 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.stream.Collectors;
 
+/**
+ * The code point intervals of property values.
+ *
+ * <p>The scanners of independent UCD files add intervals concurrently, hence access is
+ * synchronized.
+ */
 public class PropertyValueIntervals {
 
   private static final boolean DEBUG = false;
@@ -74,7 +80,8 @@ public class PropertyValueIntervals {
    * @param startCodePoint The first code point in the interval.
    * @param endCodePoint The last code point in the interval.
    */
-  boolean addBinaryPropertyInterval(String propName, int startCodePoint, int endCodePoint) {
+  synchronized boolean addBinaryPropertyInterval(
+      String propName, int startCodePoint, int endCodePoint) {
     boolean added = addPropertyInterval(propName, startCodePoint, endCodePoint);
     if (added) {
       usedBinaryProperties.add(propName);
@@ -82,7 +89,7 @@ public class PropertyValueIntervals {
     return added;
   }
 
-  boolean addEnumPropertyInterval(
+  synchronized boolean addEnumPropertyInterval(
       String propName, String propValue, int startCodePoint, int endCodePoint) {
     propValue = propertyValues.getCanonicalValueName(propName, propValue);
     String canonicalValue = PropertyNames.canonicalValue(propName, propValue);
@@ -129,14 +136,15 @@ public class PropertyValueIntervals {
     }
   }
 
-  public void addAllRanges(String propertyName, Collection<CodepointRange> ranges) {
+  public synchronized void addAllRanges(String propertyName, Collection<CodepointRange> ranges) {
     propertyValueIntervals.putAll(propertyName, ranges);
     usedBinaryProperties.add(propertyName);
   }
 
   /** @deprecated Hack for Unicode 2.0 */
   @Deprecated
-  public void removeEnumPropertyPoint(String propertyName, String propertyValue, int codepoint) {
+  public synchronized void removeEnumPropertyPoint(
+      String propertyName, String propertyValue, int codepoint) {
     CodepointRange point = CodepointRange.createPoint(codepoint);
     String canonicalName =
         PropertyNames.canonicalValue(PropertyNames.normalize(propertyName), propertyValue);
@@ -150,7 +158,7 @@ public class PropertyValueIntervals {
     ranges.addAll(hackedRanges);
   }
 
-  ImmutableList<CodepointRange> getRanges(String propName) {
+  synchronized ImmutableList<CodepointRange> getRanges(String propName) {
     Collection<CodepointRange> ranges = propertyValueIntervals.get(propName);
     if (ranges.isEmpty()) {
       return ImmutableList.of();
@@ -158,7 +166,7 @@ public class PropertyValueIntervals {
     return ImmutableList.copyOf(ranges);
   }
 
-  public ImmutableMultimap<String, String> usedEnumeratedProperties() {
+  public synchronized ImmutableMultimap<String, String> usedEnumeratedProperties() {
     ImmutableSetMultimap.Builder<String, String> multimap = ImmutableSetMultimap.builder();
     multimap.putAll(usedEnumProperties);
     // First letter is added for General_category such as
@@ -176,7 +184,7 @@ public class PropertyValueIntervals {
     return multimap.build();
   }
 
-  public boolean hasUsedEnumeratedProperty(String category) {
+  public synchronized boolean hasUsedEnumeratedProperty(String category) {
     return usedEnumProperties.containsKey(category);
   }
 
@@ -184,7 +192,7 @@ public class PropertyValueIntervals {
     return propertyValueIntervals.keySet();
   }
 
-  public ImmutableSortedMap<String, CodepointRangeSet> asSortedMap() {
+  public synchronized ImmutableSortedMap<String, CodepointRangeSet> asSortedMap() {
     ImmutableSortedMap.Builder<String, CodepointRangeSet> map = ImmutableSortedMap.naturalOrder();
     for (String property : propertyValueIntervals.keySet()) {
       map.put(
@@ -196,7 +204,7 @@ public class PropertyValueIntervals {
     return map.build();
   }
 
-  public boolean codePointInProperty(int codepoint, String propName) {
+  public synchronized boolean codePointInProperty(int codepoint, String propName) {
     // The codepoint could be in the last range stating before
     CodepointRange point = CodepointRange.createPoint(codepoint);
     SortedSet<CodepointRange> ranges = propertyValueIntervals.get(propName);
@@ -300,7 +300,7 @@ public class UnicodeData {
 
   private ImmutableList<CodepointRange> createGraphSet() {
     CodepointRangeSet.Builder ranges = CodepointRangeSet.builder();
-    ranges.add(MutableCodepointRange.create(0x0, maximumCodePoint));
+    ranges.add(0x0, maximumCodePoint);
     ranges.substractAll(getWhitespaceRange());
     ranges.substractAll(propertyValueIntervals.getRanges("cc")); // \p{gc=Control}
     ranges.substractAll(propertyValueIntervals.getRanges("cn")); // \p{gc=Unassigned}
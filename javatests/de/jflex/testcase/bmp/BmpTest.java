@@ -0,0 +1,47 @@
+package de.jflex.testcase.bmp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.io.CharSource;
+import java.io.IOException;
+import org.junit.Test;
+
+/** Tests a scanner generated with {@code %bmp}. */
+public class BmpTest {
+
+  @Test
+  public void surrogatesAreOrdinaryCharacters() throws Exception {
+    BmpScanner scanner = createScanner("ab\uD83D\uDE00c");
+    assertThat(scanner.yylex()).isEqualTo(2);
+    assertThat(scanner.yylex()).isEqualTo(3);
+    assertThat(scanner.yytext()).isEqualTo("\uD83D");
+    assertThat(scanner.yylex()).isEqualTo(4);
+    assertThat(scanner.yytext()).isEqualTo("\uDE00");
+    assertThat(scanner.yylex()).isEqualTo(2);
+    assertThat(scanner.column()).isEqualTo(4);
+    assertThat(scanner.yylex()).isEqualTo(BmpScanner.YYEOF);
+  }
+
+  @Test
+  public void unpairedSurrogate() throws Exception {
+    BmpScanner scanner = createScanner("\uDE00\uD83D");
+    assertThat(scanner.yylex()).isEqualTo(4);
+    assertThat(scanner.yylex()).isEqualTo(3);
+    assertThat(scanner.yylex()).isEqualTo(BmpScanner.YYEOF);
+  }
+
+  @Test
+  public void generalLookahead() throws Exception {
+    BmpScanner scanner = createScanner("\uD83D\uDE00\nabcd!");
+    assertThat(scanner.yylex()).isEqualTo(3);
+    assertThat(scanner.yylex()).isEqualTo(4);
+    assertThat(scanner.yylex()).isEqualTo(5);
+    assertThat(scanner.yylex()).isEqualTo(1);
+    assertThat(scanner.line()).isEqualTo(1);
+    assertThat(scanner.yytext()).isEqualTo("abcd");
+  }
+
+  private static BmpScanner createScanner(String content) throws IOException {
+    return new BmpScanner(CharSource.wrap(content).openStream());
+  }
+}
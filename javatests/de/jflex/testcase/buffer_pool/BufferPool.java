@@ -0,0 +1,42 @@
+package de.jflex.testcase.buffer_pool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/** A buffer pool for {@link PooledScanner} that records what it hands out and takes back. */
+public final class BufferPool {
+
+  static final Deque<char[]> free = new ArrayDeque<>();
+  static final List<Integer> acquired = new ArrayList<>();
+  static final List<Integer> released = new ArrayList<>();
+
+  /** Number of characters by which new buffers exceed the requested length. */
+  static int extra;
+
+  private BufferPool() {}
+
+  public static char[] acquire(int length) {
+    acquired.add(length);
+    for (char[] buffer : free) {
+      if (buffer.length >= length) {
+        free.remove(buffer);
+        return buffer;
+      }
+    }
+    return new char[length + extra];
+  }
+
+  public static void release(char[] buffer) {
+    released.add(buffer.length);
+    free.push(buffer);
+  }
+
+  static void clear() {
+    free.clear();
+    acquired.clear();
+    released.clear();
+    extra = 0;
+  }
+}
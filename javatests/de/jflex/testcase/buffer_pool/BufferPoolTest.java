@@ -0,0 +1,78 @@
+package de.jflex.testcase.buffer_pool;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.base.Strings;
+import java.io.StringReader;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests a scanner generated with {@code %bufferpool} and {@code %maxtoken}. */
+public class BufferPoolTest {
+
+  @Before
+  public void clearPool() {
+    BufferPool.clear();
+  }
+
+  @Test
+  public void growsAndClosesThroughPool() throws Exception {
+    PooledScanner scanner = new PooledScanner(new StringReader(Strings.repeat("a", 40) + " b"));
+    assertThat(scanner.yylex()).isEqualTo(1);
+    assertThat(scanner.yylength()).isEqualTo(40);
+    assertThat(scanner.yylex()).isEqualTo(2);
+    assertThat(scanner.yylex()).isEqualTo(1);
+    assertThat(scanner.yylex()).isEqualTo(PooledScanner.YYEOF);
+    scanner.yyclose();
+
+    assertThat(BufferPool.acquired).containsExactly(16, 32, 64).inOrder();
+    assertThat(BufferPool.released).containsExactly(16, 32, 64).inOrder();
+  }
+
+  @Test
+  public void resetAfterCloseReusesBuffer() throws Exception {
+    PooledScanner scanner = new PooledScanner(new StringReader("abc"));
+    assertThat(scanner.yylex()).isEqualTo(1);
+    scanner.yyclose();
+    assertThat(scanner.yylex()).isEqualTo(PooledScanner.YYEOF);
+
+    scanner.yyreset(new StringReader("de"));
+    assertThat(scanner.yylex()).isEqualTo(1);
+    assertThat(scanner.yytext()).isEqualTo("de");
+    assertThat(BufferPool.acquired).containsExactly(16, 16).inOrder();
+    assertThat(BufferPool.free).isEmpty();
+  }
+
+  @Test
+  public void resetKeepsLargerBuffer() throws Exception {
+    BufferPool.extra = 8;
+    PooledScanner scanner = new PooledScanner(new StringReader("abc"));
+    assertThat(scanner.yylex()).isEqualTo(1);
+
+    scanner.yyreset(new StringReader("de"));
+    assertThat(scanner.yylex()).isEqualTo(1);
+    assertThat(scanner.yytext()).isEqualTo("de");
+    assertThat(BufferPool.acquired).containsExactly(16);
+    assertThat(BufferPool.released).isEmpty();
+  }
+
+  @Test
+  public void resetReleasesGrownBuffer() throws Exception {
+    BufferPool.extra = 8;
+    PooledScanner scanner = new PooledScanner(new StringReader(Strings.repeat("a", 30)));
+    assertThat(scanner.yylex()).isEqualTo(1);
+
+    scanner.yyreset(new StringReader("de"));
+    assertThat(scanner.yylex()).isEqualTo(1);
+    assertThat(BufferPool.acquired).containsExactly(16, 48, 16).inOrder();
+    assertThat(BufferPool.released).containsExactly(24, 56).inOrder();
+  }
+
+  @Test
+  public void tokenTooLong() throws Exception {
+    PooledScanner scanner = new PooledScanner(new StringReader(Strings.repeat("a", 200)));
+    Error error = assertThrows(Error.class, scanner::yylex);
+    assertThat(error).hasMessageThat().isEqualTo("Error: token was too long");
+  }
+}
@@ -0,0 +1,88 @@
+package de.jflex.testcase.keyword_hash;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests that keywords recognised by {@code %keywordhash} produce the same tokens as keywords in the
+ * DFA.
+ */
+public class KeywordHashTest {
+
+  @Test
+  public void keywords() throws Exception {
+    assertSameTokens("if else in int end for iff i el intx == = /* if end int */ end");
+  }
+
+  @Test
+  public void offloadedKeywords() throws Exception {
+    assertThat(keywordTable(HashScanner.class)).containsExactly("if", "else", "in", "int");
+    assertThat(keywordTable(CaselessHashScanner.class)).containsExactly("SELECT", "KIND", "FROM");
+  }
+
+  @Test
+  public void caselessKeywords() throws Exception {
+    // LATIN SMALL LETTER LONG S, KELVIN SIGN, LATIN CAPITAL LETTER I WITH DOT ABOVE
+    assertSameCaselessTokens(
+        "select SELECT SeLeCt \u017Felect \u212Aind K\u0130ND kinds from fro a-b A-B a-c");
+  }
+
+  @Test
+  public void randomInput() throws Exception {
+    Random random = new Random(42);
+    String[] words = {"if", "else", "in", "int", "end", "for", "/*", "*/", "==", " ", "\n", "x"};
+    String[] caselessWords = {"select", "KIND", "From", "a-b", "\u017F", "\u212A", "x", " "};
+    for (int n = 0; n < 100; n++) {
+      assertSameTokens(randomText(random, words));
+      assertSameCaselessTokens(randomText(random, caselessWords));
+    }
+  }
+
+  private static String randomText(Random random, String[] words) {
+    StringBuilder text = new StringBuilder();
+    int length = random.nextInt(50);
+    for (int i = 0; i < length; i++) text.append(words[random.nextInt(words.length)]);
+    return text.toString();
+  }
+
+  private static List<String> keywordTable(Class<?> scanner) throws Exception {
+    Field field = scanner.getDeclaredField("ZZ_KEYWORD_TEXT");
+    field.setAccessible(true);
+    List<String> result = new ArrayList<>();
+    for (String keyword : (String[]) field.get(null)) {
+      if (keyword != null) result.add(keyword);
+    }
+    return result;
+  }
+
+  private static void assertSameTokens(String input) throws IOException {
+    assertThat(tokens(new HashScanner(new StringReader(input))::yylex))
+        .containsExactlyElementsIn(tokens(new DfaScanner(new StringReader(input))::yylex))
+        .inOrder();
+  }
+
+  private static void assertSameCaselessTokens(String input) throws IOException {
+    assertThat(tokens(new CaselessHashScanner(new StringReader(input))::yylex))
+        .containsExactlyElementsIn(tokens(new CaselessDfaScanner(new StringReader(input))::yylex))
+        .inOrder();
+  }
+
+  private interface Scanner {
+    String yylex() throws IOException;
+  }
+
+  private static List<String> tokens(Scanner scanner) throws IOException {
+    List<String> result = new ArrayList<>();
+    for (String token = scanner.yylex(); token != null; token = scanner.yylex()) {
+      result.add(token);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,63 @@
+package de.jflex.testcase.lazy_lines;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests that {@code %lazylines} computes the same positions as {@code %line} and {@code %column}.
+ */
+public class LazyLinesTest {
+
+  @Test
+  public void lineTerminators() throws Exception {
+    assertSamePositions("ab\ncd\r\nef\rgh\u2028ij\u000B\u000C\u0085k\r\r\n\n\r");
+  }
+
+  @Test
+  public void supplementaryCharacters() throws Exception {
+    assertSamePositions("a\uD83D\uDE00b\n\uD83D\uDE00\uD83D\uDE00c");
+  }
+
+  @Test
+  public void randomInput() throws Exception {
+    Random random = new Random(42);
+    String alphabet = "abc \r\n\u2028\u0085";
+    for (int n = 0; n < 100; n++) {
+      StringBuilder input = new StringBuilder();
+      int length = random.nextInt(200);
+      for (int i = 0; i < length; i++) {
+        input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      assertSamePositions(input.toString());
+    }
+  }
+
+  @Test
+  public void reset() throws Exception {
+    LazyScanner lazy = new LazyScanner(new StringReader("a\nb\nc"));
+    while (lazy.yylex() != null) {}
+    lazy.yyreset(new StringReader("d\ne"));
+    assertThat(lazy.yylex()).asList().containsExactly(1, 0, 0).inOrder();
+    assertThat(lazy.yylex()).asList().containsExactly(3, 0, 1).inOrder();
+    assertThat(lazy.yylex()).asList().containsExactly(1, 1, 0).inOrder();
+  }
+
+  private static void assertSamePositions(String input) throws IOException {
+    EagerScanner eager = new EagerScanner(new StringReader(input));
+    LazyScanner lazy = new LazyScanner(new StringReader(input));
+    int[] expected;
+    do {
+      expected = eager.yylex();
+      int[] actual = lazy.yylex();
+      if (expected == null) {
+        assertThat(actual).isNull();
+      } else {
+        assertThat(actual).isEqualTo(expected);
+      }
+    } while (expected != null);
+  }
+}
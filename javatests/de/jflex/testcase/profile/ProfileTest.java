@@ -0,0 +1,81 @@
+package de.jflex.testcase.profile;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Strings;
+import com.google.common.io.CharSource;
+import java.io.IOException;
+import java.util.Map;
+import org.junit.Test;
+
+/** Tests the counters of a scanner generated with {@code %profile}. */
+public class ProfileTest {
+
+  @Test
+  public void countsMatchesPerAction() throws Exception {
+    ProfileScanner scanner = createScanner("abcaab");
+    scanAll(scanner);
+
+    Map<String, Long> profile = scanner.yyprofile();
+    assertThat(profile).containsEntry("action:line 13", 1L);
+    assertThat(profile).containsEntry("action:line 14", 2L);
+    assertThat(profile).containsEntry("action:line 15", 0L);
+    assertThat(profile).containsEntry("action:line 18", 1L);
+    // "abc": 3, "a": 2 (one failed transition on 'a'), "a": 2 (failed on 'b'), "b": 1
+    assertThat(profile).containsEntry("steps", 8L);
+  }
+
+  @Test
+  public void countsRescannedCharacters() throws Exception {
+    // "ab" is read as a prefix of "abc", then backs up to "a"
+    ProfileScanner scanner = createScanner("abd");
+    scanAll(scanner);
+
+    Map<String, Long> profile = scanner.yyprofile();
+    assertThat(profile).containsEntry("rescanned", 2L);
+    assertThat(profile).containsEntry("action:line 14", 1L);
+    assertThat(profile).containsEntry("action:line 18", 2L);
+  }
+
+  @Test
+  public void sharesCounterOfEqualActions() throws Exception {
+    ProfileScanner scanner = createScanner("pqp");
+    scanAll(scanner);
+
+    Map<String, Long> profile = scanner.yyprofile();
+    assertThat(profile).containsEntry("action:line 16,17", 3L);
+    assertThat(profile).doesNotContainKey("action:line 16");
+    assertThat(profile).doesNotContainKey("action:line 17");
+  }
+
+  @Test
+  public void countsLookaheadAndBufferGrowth() throws Exception {
+    ProfileScanner scanner = createScanner(Strings.repeat("x", 40) + "y");
+    assertThat(scanner.yylex()).isEqualTo(3);
+    assertThat(scanner.yylength()).isEqualTo(40);
+
+    Map<String, Long> profile = scanner.yyprofile();
+    assertThat(profile).containsEntry("lookaheadPasses", 1L);
+    assertThat(profile.get("bufferGrowths")).isAtLeast(1L);
+    assertThat(profile.get("refills")).isGreaterThan(profile.get("bufferGrowths"));
+  }
+
+  @Test
+  public void reset() throws Exception {
+    ProfileScanner scanner = createScanner("abc");
+    scanAll(scanner);
+    scanner.yyprofileReset();
+
+    for (long value : scanner.yyprofile().values()) {
+      assertThat(value).isEqualTo(0L);
+    }
+  }
+
+  private static void scanAll(ProfileScanner scanner) throws IOException {
+    while (scanner.yylex() != ProfileScanner.YYEOF) {}
+  }
+
+  private static ProfileScanner createScanner(String content) throws IOException {
+    return new ProfileScanner(CharSource.wrap(content).openStream());
+  }
+}
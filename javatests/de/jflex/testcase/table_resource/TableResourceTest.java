@@ -0,0 +1,38 @@
+package de.jflex.testcase.table_resource;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.io.CharSource;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Test;
+
+/** Tests a scanner generated with {@code %tableresource}. */
+public class TableResourceTest {
+
+  @Test
+  public void scansWithTablesFromResource() throws Exception {
+    TableScanner scanner = createScanner("abc 123\u4E00\u4E00x");
+    assertThat(scanner.yylex()).isEqualTo(1);
+    assertThat(scanner.yytext()).isEqualTo("abc");
+    assertThat(scanner.yylex()).isEqualTo(4);
+    assertThat(scanner.yylex()).isEqualTo(2);
+    assertThat(scanner.yytext()).isEqualTo("123");
+    assertThat(scanner.yylex()).isEqualTo(3);
+    assertThat(scanner.yytext()).isEqualTo("\u4E00\u4E00");
+    assertThat(scanner.yylex()).isEqualTo(1);
+    assertThat(scanner.yylex()).isEqualTo(TableScanner.YYEOF);
+  }
+
+  @Test
+  public void tablesArePackagedNextToScanner() throws Exception {
+    try (InputStream in = TableScanner.class.getResourceAsStream("TableScanner.tables")) {
+      assertThat(in).isNotNull();
+      assertThat(in.read()).isNotEqualTo(-1);
+    }
+  }
+
+  private static TableScanner createScanner(String content) throws IOException {
+    return new TableScanner(CharSource.wrap(content).openStream());
+  }
+}
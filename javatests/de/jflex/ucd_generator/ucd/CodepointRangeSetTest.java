@@ -27,6 +27,7 @@ package de.jflex.ucd_generator.ucd;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.collect.ImmutableList;
 import de.jflex.testing.assertion.MoreAsserts;
 import de.jflex.ucd.CodepointRange;
 import org.junit.Test;
@@ -209,4 +210,59 @@ public class CodepointRangeSetTest {
     assertThat(rangeSetBuilder.intersection(CodepointRange.createPoint('\u0085')))
         .containsExactly(MutableCodepointRange.createPoint('\u0085'));
   }
+
+  @Test
+  public void add_overlapping_outOfOrder() {
+    CodepointRangeSet rangeSet =
+        CodepointRangeSet.builder()
+            .add(CodepointRange.create(40, 50))
+            .add(CodepointRange.create(1, 10))
+            .add(CodepointRange.create(45, 60))
+            .add(CodepointRange.create(5, 20))
+            .add(CodepointRange.create(40, 42))
+            .build();
+    assertThat(rangeSet.ranges())
+        .containsExactly(CodepointRange.create(1, 20), CodepointRange.create(40, 60))
+        .inOrder();
+  }
+
+  @Test
+  public void add_points() {
+    CodepointRangeSet.Builder rangeSetBuilder = CodepointRangeSet.builder();
+    for (int ch = 'a'; ch <= 'z'; ch++) {
+      rangeSetBuilder.add(ch, ch);
+    }
+    rangeSetBuilder.add('0', '9');
+    assertThat(rangeSetBuilder.build().ranges())
+        .containsExactly(CodepointRange.create('0', '9'), CodepointRange.create('a', 'z'))
+        .inOrder();
+  }
+
+  @Test
+  public void substractAll() {
+    CodepointRangeSet rangeSet =
+        CodepointRangeSet.builder()
+            .add(CodepointRange.create(1, 5))
+            .add(CodepointRange.create(10, 50))
+            .add(CodepointRange.create(60, 65))
+            .add(CodepointRange.create(70, 99))
+            .substractAll(
+                ImmutableList.of(
+                    CodepointRange.createPoint(3),
+                    CodepointRange.create(20, 30),
+                    CodepointRange.create(40, 62),
+                    CodepointRange.create(64, 75),
+                    CodepointRange.createPoint(99),
+                    CodepointRange.create(200, 300)))
+            .build();
+    assertThat(rangeSet.ranges())
+        .containsExactly(
+            CodepointRange.create(1, 2),
+            CodepointRange.create(4, 5),
+            CodepointRange.create(10, 19),
+            CodepointRange.create(31, 39),
+            CodepointRange.create(63, 63),
+            CodepointRange.create(76, 98))
+        .inOrder();
+  }
 }
@@ -0,0 +1,336 @@
+package edu.tum.cup2.parser;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import edu.tum.cup2.generator.LLkGenerator;
+import edu.tum.cup2.generator.Verbosity;
+import edu.tum.cup2.generator.exceptions.LLkGeneratorException;
+import edu.tum.cup2.grammar.NonTerminal;
+import edu.tum.cup2.grammar.SpecialTerminals;
+import edu.tum.cup2.grammar.Terminal;
+import edu.tum.cup2.parser.exceptions.LLkParserException;
+import edu.tum.cup2.scanner.Scanner;
+import edu.tum.cup2.scanner.ScannerToken;
+import edu.tum.cup2.semantics.Action;
+import edu.tum.cup2.semantics.SymbolValue;
+import edu.tum.cup2.spec.CUP2Specification;
+import org.junit.Test;
+
+/** Tests {@link LLkParser} with tables of {@link LLkGenerator} for different k. */
+public class LLkParserTest {
+
+  /** Prefix notation, LL(1): {@code s -> NUMBER | LP s RP | PLUS s s}. */
+  public static class PrefixSpec extends CUP2Specification {
+    public enum Terminals implements Terminal {
+      NUMBER,
+      LP,
+      RP,
+      PLUS
+    }
+
+    public enum NonTerminals implements NonTerminal {
+      s
+    }
+
+    public class NUMBER extends SymbolValue<Integer> {}
+
+    public class s extends SymbolValue<Integer> {}
+
+    public PrefixSpec() {
+      grammar(
+          prod(
+              NonTerminals.s,
+              rhs(Terminals.NUMBER),
+              new Action() {
+                public Integer a(Integer n) {
+                  return n;
+                }
+              },
+              rhs(Terminals.LP, NonTerminals.s, Terminals.RP),
+              new Action() {
+                public Integer a(Integer s) {
+                  return s;
+                }
+              },
+              rhs(Terminals.PLUS, NonTerminals.s, NonTerminals.s),
+              new Action() {
+                public Integer a(Integer s1, Integer s2) {
+                  return s1 + s2;
+                }
+              }));
+    }
+  }
+
+  /** Sums with an empty rest, LL(1): {@code e -> t rest; rest -> PLUS t rest | ε; t -> NUMBER}. */
+  public static class NullableSpec extends CUP2Specification {
+    public enum Terminals implements Terminal {
+      NUMBER,
+      PLUS
+    }
+
+    public enum NonTerminals implements NonTerminal {
+      e,
+      rest,
+      t
+    }
+
+    public class NUMBER extends SymbolValue<Integer> {}
+
+    public class e extends SymbolValue<Integer> {}
+
+    public class rest extends SymbolValue<Integer> {}
+
+    public class t extends SymbolValue<Integer> {}
+
+    public NullableSpec() {
+      grammar(
+          prod(
+              NonTerminals.e,
+              rhs(NonTerminals.t, NonTerminals.rest),
+              new Action() {
+                public Integer a(Integer t, Integer rest) {
+                  return t + rest;
+                }
+              }),
+          prod(
+              NonTerminals.rest,
+              rhs(Terminals.PLUS, NonTerminals.t, NonTerminals.rest),
+              new Action() {
+                public Integer a(Integer t, Integer rest) {
+                  return t + rest;
+                }
+              },
+              rhs(),
+              new Action() {
+                public Integer a() {
+                  return 0;
+                }
+              }),
+          prod(
+              NonTerminals.t,
+              rhs(Terminals.NUMBER),
+              new Action() {
+                public Integer a(Integer n) {
+                  return n;
+                }
+              }));
+    }
+  }
+
+  /** LL(2), but not LL(1): {@code s -> ID ASSIGN NUMBER | ID LP RP}. */
+  public static class CallSpec extends CUP2Specification {
+    public enum Terminals implements Terminal {
+      ID,
+      ASSIGN,
+      NUMBER,
+      LP,
+      RP
+    }
+
+    public enum NonTerminals implements NonTerminal {
+      s
+    }
+
+    public class NUMBER extends SymbolValue<Integer> {}
+
+    public class s extends SymbolValue<Integer> {}
+
+    public CallSpec() {
+      grammar(
+          prod(
+              NonTerminals.s,
+              rhs(Terminals.ID, Terminals.ASSIGN, Terminals.NUMBER),
+              new Action() {
+                public Integer a(Integer n) {
+                  return n;
+                }
+              },
+              rhs(Terminals.ID, Terminals.LP, Terminals.RP),
+              new Action() {
+                public Integer a() {
+                  return -1;
+                }
+              }));
+    }
+  }
+
+  /** Left recursive, not LL(k) for any k: {@code e -> e PLUS NUMBER | NUMBER}. */
+  public static class LeftRecursiveSpec extends CUP2Specification {
+    public enum Terminals implements Terminal {
+      NUMBER,
+      PLUS
+    }
+
+    public enum NonTerminals implements NonTerminal {
+      e
+    }
+
+    public class NUMBER extends SymbolValue<Integer> {}
+
+    public class e extends SymbolValue<Integer> {}
+
+    public LeftRecursiveSpec() {
+      grammar(
+          prod(
+              NonTerminals.e,
+              rhs(NonTerminals.e, Terminals.PLUS, Terminals.NUMBER),
+              new Action() {
+                public Integer a(Integer e, Integer n) {
+                  return e + n;
+                }
+              },
+              rhs(Terminals.NUMBER),
+              new Action() {
+                public Integer a(Integer n) {
+                  return n;
+                }
+              }));
+    }
+  }
+
+  /**
+   * Scans the given terminals; an {@link Integer} is the value of the terminal following it, e.g.
+   * {@code 1, NUMBER}.
+   */
+  private static Scanner scanner(Object... input) {
+    return new Scanner() {
+      int next = 0;
+
+      @Override
+      public ScannerToken<? extends Object> readNextTerminal() {
+        if (next == input.length) {
+          return new ScannerToken<Object>(SpecialTerminals.EndOfInputStream, -1, -1);
+        }
+        Object o = input[next++];
+        if (o instanceof Integer) {
+          return new ScannerToken<Integer>((Terminal) input[next++], (Integer) o, 0, next);
+        }
+        return new ScannerToken<Object>((Terminal) o, 0, next);
+      }
+    };
+  }
+
+  private static LLkParser parser(CUP2Specification spec, int k) throws LLkGeneratorException {
+    return new LLkParser(
+        new LLkGenerator(spec.getGrammar(), spec.getPrecedences(), Verbosity.None, k)
+            .getParsingTable());
+  }
+
+  private static Object parse(CUP2Specification spec, int k, Object... input) throws Exception {
+    return parser(spec, k).parse(scanner(input));
+  }
+
+  private static void checkPrefix(int k) throws Exception {
+    PrefixSpec spec = new PrefixSpec();
+    assertThat(parse(spec, k, 7, PrefixSpec.Terminals.NUMBER)).isEqualTo(7);
+    assertThat(
+            parse(
+                spec,
+                k,
+                PrefixSpec.Terminals.PLUS,
+                1,
+                PrefixSpec.Terminals.NUMBER,
+                PrefixSpec.Terminals.LP,
+                2,
+                PrefixSpec.Terminals.NUMBER,
+                PrefixSpec.Terminals.RP))
+        .isEqualTo(3);
+    assertThat(
+            parse(
+                spec,
+                k,
+                PrefixSpec.Terminals.PLUS,
+                1,
+                PrefixSpec.Terminals.NUMBER,
+                PrefixSpec.Terminals.PLUS,
+                2,
+                PrefixSpec.Terminals.NUMBER,
+                3,
+                PrefixSpec.Terminals.NUMBER))
+        .isEqualTo(6);
+  }
+
+  private static void checkNullable(int k) throws Exception {
+    NullableSpec spec = new NullableSpec();
+    assertThat(parse(spec, k, 1, NullableSpec.Terminals.NUMBER)).isEqualTo(1);
+    assertThat(
+            parse(
+                spec,
+                k,
+                1,
+                NullableSpec.Terminals.NUMBER,
+                NullableSpec.Terminals.PLUS,
+                2,
+                NullableSpec.Terminals.NUMBER,
+                NullableSpec.Terminals.PLUS,
+                3,
+                NullableSpec.Terminals.NUMBER))
+        .isEqualTo(6);
+  }
+
+  @Test
+  public void ll1() throws Exception {
+    checkPrefix(1);
+  }
+
+  @Test
+  public void ll1_withLargerK() throws Exception {
+    checkPrefix(2);
+    checkPrefix(3);
+  }
+
+  @Test
+  public void ll2() throws Exception {
+    CallSpec spec = new CallSpec();
+    assertThat(
+            parse(
+                spec,
+                2,
+                CallSpec.Terminals.ID,
+                CallSpec.Terminals.ASSIGN,
+                5,
+                CallSpec.Terminals.NUMBER))
+        .isEqualTo(5);
+    assertThat(parse(spec, 2, CallSpec.Terminals.ID, CallSpec.Terminals.LP, CallSpec.Terminals.RP))
+        .isEqualTo(-1);
+  }
+
+  @Test
+  public void ll2_rejectedForK1() throws Exception {
+    try {
+      parser(new CallSpec(), 1);
+      fail("CallSpec is not LL(1)");
+    } catch (LLkGeneratorException expected) {
+      assertThat(expected).hasMessageThat().contains("not LL(1)");
+    }
+  }
+
+  @Test
+  public void nullable() throws Exception {
+    checkNullable(1);
+    checkNullable(2);
+    checkNullable(3);
+  }
+
+  @Test
+  public void leftRecursion_rejected() throws Exception {
+    for (int k = 1; k <= 3; k++) {
+      try {
+        parser(new LeftRecursiveSpec(), k);
+        fail("LeftRecursiveSpec is not LL(" + k + ")");
+      } catch (LLkGeneratorException expected) {
+        assertThat(expected).hasMessageThat().contains("not LL(" + k + ")");
+      }
+    }
+  }
+
+  @Test
+  public void syntaxError() throws Exception {
+    try {
+      parse(new PrefixSpec(), 2, PrefixSpec.Terminals.PLUS, 1, PrefixSpec.Terminals.NUMBER);
+      fail("incomplete input should be rejected");
+    } catch (LLkParserException expected) {
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package edu.tum.cup2.parser.tables;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import edu.tum.cup2.generator.LR1Generator;
+import edu.tum.cup2.grammar.NonTerminal;
+import edu.tum.cup2.grammar.SpecialTerminals;
+import edu.tum.cup2.grammar.Terminal;
+import edu.tum.cup2.parser.LRParser;
+import edu.tum.cup2.scanner.Scanner;
+import edu.tum.cup2.scanner.ScannerToken;
+import edu.tum.cup2.semantics.Action;
+import edu.tum.cup2.semantics.SymbolValue;
+import edu.tum.cup2.spec.CUP2Specification;
+import java.io.ByteArrayOutputStream;
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+/** Tests writing and reading a {@link PackedLRTable} in binary format. */
+public class PackedLRTableTest {
+
+  /** Sums up numbers: {@code sum -> sum PLUS NUMBER | NUMBER}. */
+  public static class SumSpec extends CUP2Specification {
+    public enum Terminals implements Terminal {
+      PLUS,
+      NUMBER
+    }
+
+    public enum NonTerminals implements NonTerminal {
+      sum
+    }
+
+    public class NUMBER extends SymbolValue<Integer> {}
+
+    public class sum extends SymbolValue<Integer> {}
+
+    public SumSpec() {
+      this(0);
+    }
+
+    /** @param offset added to every number, by semantic actions which capture it */
+    public SumSpec(int offset) {
+      Action number;
+      Action plus;
+      if (offset == 0) {
+        number =
+            new Action() {
+              public Integer a(Integer n) {
+                return n;
+              }
+            };
+        plus =
+            new Action() {
+              public Integer a(Integer s, Integer n) {
+                return s + n;
+              }
+            };
+      } else {
+        number =
+            new Action() {
+              public Integer a(Integer n) {
+                return n + offset;
+              }
+            };
+        plus =
+            new Action() {
+              public Integer a(Integer s, Integer n) {
+                return s + n + offset;
+              }
+            };
+      }
+      grammar(
+          prod(
+              NonTerminals.sum,
+              rhs(NonTerminals.sum, Terminals.PLUS, Terminals.NUMBER),
+              plus,
+              rhs(Terminals.NUMBER),
+              number));
+    }
+  }
+
+  /** Scans "1 + 2 + ... + n". */
+  private static Scanner numbers(int n) {
+    return new Scanner() {
+      int next = 0;
+
+      @Override
+      public ScannerToken<? extends Object> readNextTerminal() {
+        if (next == 2 * n - 1) {
+          return new ScannerToken<Object>(SpecialTerminals.EndOfInputStream, -1, -1);
+        }
+        int i = next++;
+        if (i % 2 == 1) return new ScannerToken<Object>(SumSpec.Terminals.PLUS, 0, i);
+        return new ScannerToken<Integer>(SumSpec.Terminals.NUMBER, i / 2 + 1, 0, i);
+      }
+    };
+  }
+
+  private static PackedLRTable table(CUP2Specification spec) throws Exception {
+    return new PackedLRTable(new LR1Generator(spec).getParsingTable());
+  }
+
+  @Test
+  public void writeAndRead() throws Exception {
+    PackedLRTable table = table(new SumSpec());
+    assertThat(new LRParser(table).parse(numbers(10))).isEqualTo(55);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    table.write(out);
+    PackedLRTable loaded =
+        PackedLRTable.read(ByteBuffer.wrap(out.toByteArray()), getClass().getClassLoader());
+
+    assertThat(new LRParser(loaded).parse(numbers(10))).isEqualTo(55);
+    assertThat(new LRParser(loaded).parse(numbers(1))).isEqualTo(1);
+  }
+
+  @Test
+  public void write_capturingAction() throws Exception {
+    PackedLRTable table = table(new SumSpec(1));
+    assertThat(new LRParser(table).parse(numbers(3))).isEqualTo(9);
+    try {
+      table.write(new ByteArrayOutputStream());
+      fail("semantic actions capturing local variables cannot be restored by name");
+    } catch (NotSerializableException expected) {
+      assertThat(expected).hasMessageThat().contains("SumSpec$");
+    }
+  }
+}
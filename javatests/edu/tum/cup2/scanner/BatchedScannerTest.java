@@ -0,0 +1,127 @@
+package edu.tum.cup2.scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import edu.tum.cup2.grammar.SpecialTerminals;
+import edu.tum.cup2.grammar.Terminal;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/** Tests {@link BatchedScanner}, with and without producer thread. */
+public class BatchedScannerTest {
+
+  private static final int BATCH_SIZE = 4;
+
+  private enum Token implements Terminal {
+    WORD
+  }
+
+  /** Delivers {@code words} WORD tokens numbered from 0, then EndOfInputStream once. */
+  private static class CountingScanner implements Scanner {
+    final int words;
+    int next = 0;
+    volatile Thread thread;
+
+    CountingScanner(int words) {
+      this.words = words;
+    }
+
+    @Override
+    public ScannerToken<? extends Object> readNextTerminal() {
+      thread = Thread.currentThread();
+      if (next > words) throw new IllegalStateException("read after the end of the input");
+      if (next == words) {
+        next++;
+        return new ScannerToken<Object>(SpecialTerminals.EndOfInputStream, -1, -1);
+      }
+      return new ScannerToken<Integer>(Token.WORD, next++, 0, 0);
+    }
+  }
+
+  private static List<Object> readAll(Scanner scanner) throws IOException {
+    List<Object> values = new ArrayList<>();
+    ScannerToken<?> token;
+    while ((token = scanner.readNextTerminal()).getSymbol() != SpecialTerminals.EndOfInputStream) {
+      values.add(token.getValue());
+    }
+    return values;
+  }
+
+  private static void checkBatchBoundaries(boolean producerThread) throws IOException {
+    for (int words : new int[] {0, 1, BATCH_SIZE - 1, BATCH_SIZE, BATCH_SIZE + 1, 3 * BATCH_SIZE}) {
+      BatchedScanner scanner =
+          new BatchedScanner(new CountingScanner(words), BATCH_SIZE, producerThread);
+      List<Object> expected = new ArrayList<>();
+      for (int i = 0; i < words; i++) expected.add(i);
+      assertThat(readAll(scanner)).containsExactlyElementsIn(expected).inOrder();
+      scanner.close();
+    }
+  }
+
+  private static void checkEndOfInput(boolean producerThread) throws IOException {
+    for (int words : new int[] {BATCH_SIZE - 1, BATCH_SIZE}) {
+      BatchedScanner scanner =
+          new BatchedScanner(new CountingScanner(words), BATCH_SIZE, producerThread);
+      readAll(scanner);
+      ScannerToken<?> eof = scanner.readNextTerminal();
+      assertThat(eof.getSymbol()).isEqualTo(SpecialTerminals.EndOfInputStream);
+      // the decorated scanner must not be asked again
+      for (int i = 0; i < 2 * BATCH_SIZE; i++) {
+        assertThat(scanner.readNextTerminal()).isSameInstanceAs(eof);
+      }
+      scanner.close();
+    }
+  }
+
+  private static void checkReadAfterClose(BatchedScanner scanner) {
+    try {
+      scanner.readNextTerminal();
+      fail("read after close() should fail");
+    } catch (IOException expected) {
+    }
+  }
+
+  @Test
+  public void batchBoundaries() throws IOException {
+    checkBatchBoundaries(false);
+  }
+
+  @Test
+  public void batchBoundaries_producerThread() throws IOException {
+    checkBatchBoundaries(true);
+  }
+
+  @Test
+  public void endOfInput() throws IOException {
+    checkEndOfInput(false);
+  }
+
+  @Test
+  public void endOfInput_producerThread() throws IOException {
+    checkEndOfInput(true);
+  }
+
+  @Test
+  public void close() throws IOException {
+    CountingScanner input = new CountingScanner(Integer.MAX_VALUE);
+    BatchedScanner scanner = new BatchedScanner(input, BATCH_SIZE, false);
+    assertThat(scanner.readNextTerminal().getValue()).isEqualTo(0);
+    scanner.close();
+    checkReadAfterClose(scanner);
+    assertThat(input.next).isEqualTo(BATCH_SIZE);
+  }
+
+  @Test
+  public void close_producerThread() throws Exception {
+    CountingScanner input = new CountingScanner(Integer.MAX_VALUE);
+    BatchedScanner scanner = new BatchedScanner(input, BATCH_SIZE, true);
+    assertThat(scanner.readNextTerminal().getValue()).isEqualTo(0);
+    scanner.close();
+    input.thread.join(10000);
+    assertThat(input.thread.isAlive()).isFalse();
+    checkReadAfterClose(scanner);
+  }
+}
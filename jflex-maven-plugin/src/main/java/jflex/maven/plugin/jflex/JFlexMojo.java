@@ -25,6 +25,7 @@ import java.util.Set;
 import jflex.core.OptionUtils;
 import jflex.generator.LexGenerator;
 import jflex.option.Options;
+import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -135,6 +136,12 @@ public class JFlexMojo extends AbstractMojo {
     // the whole point of this plugin compared to running the ant plugin
     project.addCompileSourceRoot(outputDirectory.getPath());
 
+    // table resources of scanners generated with %tableresource
+    Resource tables = new Resource();
+    tables.setDirectory(outputDirectory.getPath());
+    tables.addInclude("**/*.tables");
+    project.addResource(tables);
+
     List<File> filesIt;
     if (lexDefinitions == null) {
       // use default lexfiles if none provided
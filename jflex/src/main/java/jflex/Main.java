@@ -77,6 +77,16 @@ public class Main {
         continue;
       }
 
+      if (Objects.equals(argv[i], "--cache")) { // $NON-NLS-1$
+        if (++i >= argv.length) {
+          Out.error(ErrorMessages.NO_CACHE_DIRECTORY);
+          throw new GeneratorException();
+        }
+
+        Options.cache_dir = new File(argv[i]);
+        continue;
+      }
+
       if (Objects.equals(argv[i], "--encoding")) {
         if (++i >= argv.length) {
           Out.error(ErrorMessages.NO_ENCODING);
@@ -176,6 +186,16 @@ public class Main {
         continue;
       }
 
+      if (Objects.equals(argv[i], "--backtrack-report")) { // $NON-NLS-1$
+        Options.backtrack_report = true;
+        continue;
+      }
+
+      if (Objects.equals(argv[i], "--no-backtrack")) { // $NON-NLS-1$
+        Options.no_backtrack = true;
+        continue;
+      }
+
       if (Objects.equals(argv[i], "--legacydot")
           || Objects.equals(argv[i], "-legacydot")) { // $NON-NLS-1$ //$NON-NLS-2$
         Options.legacy_dot = true;
@@ -289,6 +309,9 @@ public class Main {
     Out.println("                   [^\\n\\r\\u000B\\u000C\\u0085\\u2028\\u2029]");
     Out.println("--nomin            skip minimization step");
     Out.println("--nobak            don't create backup files");
+    Out.println("--cache <dir>      reuse minimised DFAs cached in <dir> if only actions changed");
+    Out.println("--backtrack-report warn about rules that make the scanner back up");
+    Out.println("--no-backtrack     treat backing up in the generated scanner as an error");
     Out.println("--dump             display transition tables");
     Out.println("--dot              write graphviz .dot files for the generated automata (alpha)");
     Out.println("--verbose");
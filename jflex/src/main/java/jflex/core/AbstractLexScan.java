@@ -19,6 +19,8 @@ import jflex.scanner.ScannerException;
 public abstract class AbstractLexScan implements ILexScan {
 
   int bufferSize = 16384;
+  /** maximum token length, 0 if unbounded */
+  int maxTokenLength = 0;
 
   File file;
 
@@ -34,6 +36,7 @@ public abstract class AbstractLexScan implements ILexScan {
   List<String> lexThrow = new ArrayList<>();
   String eofVal;
   public String scanErrorException;
+  String bufferPool;
   String cupSymbol = "sym";
 
   StringBuilder string = new StringBuilder();
@@ -44,6 +47,7 @@ public abstract class AbstractLexScan implements ILexScan {
   boolean charCount;
   boolean lineCount;
   boolean columnCount;
+  boolean lazyLines;
   boolean cupCompatible;
   boolean cup2Compatible;
   boolean cupDebug;
@@ -55,6 +59,10 @@ public abstract class AbstractLexScan implements ILexScan {
   boolean bolUsed;
   boolean standalone;
   boolean debugOption;
+  boolean profileOption;
+  boolean tableResource;
+  boolean bmpOption;
+  boolean keywordHash;
   boolean eofclose;
 
   String isImplementing;
@@ -71,6 +79,9 @@ public abstract class AbstractLexScan implements ILexScan {
 
   List<Action> actions = new ArrayList<>();
 
+  /** keyword rules recognised by a table lookup ({@code %keywordhash}), null if none */
+  Keywords keywords;
+
   // CharClasses.init() is delayed until UnicodeProperties.init() has been called,
   // since the max char code won't be known until then.
   final CharClasses charClasses = new CharClasses();
@@ -265,6 +276,10 @@ public abstract class AbstractLexScan implements ILexScan {
     return columnCount;
   }
 
+  public boolean lazyLines() {
+    return lazyLines;
+  }
+
   public boolean cupCompatible() {
     return cupCompatible;
   }
@@ -309,6 +324,26 @@ public abstract class AbstractLexScan implements ILexScan {
     return debugOption;
   }
 
+  public boolean profileOption() {
+    return profileOption;
+  }
+
+  public boolean tableResource() {
+    return tableResource;
+  }
+
+  public boolean bmpOption() {
+    return bmpOption;
+  }
+
+  public boolean keywordHash() {
+    return keywordHash;
+  }
+
+  public Keywords keywords() {
+    return keywords;
+  }
+
   public boolean eofclose() {
     return eofclose;
   }
@@ -361,6 +396,14 @@ public abstract class AbstractLexScan implements ILexScan {
     return bufferSize;
   }
 
+  public int maxTokenLength() {
+    return maxTokenLength;
+  }
+
+  public String bufferPool() {
+    return bufferPool;
+  }
+
   /**
    * Returns the current line number.
    *
@@ -0,0 +1,348 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.9.0-SNAPSHOT                                                    *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import jflex.chars.Interval;
+import jflex.core.unicode.IntCharSet;
+import jflex.core.unicode.UnicodeProperties;
+import jflex.state.StateSet;
+
+/**
+ * Keyword rules that are recognised by a table lookup on the text matched by another rule, instead
+ * of by the DFA ({@code %keywordhash}).
+ *
+ * <p>A keyword rule is a rule without lookahead and without {@code ^} that matches a single string,
+ * possibly case insensitive. It is left out of the NFA if, in every lexical state where it is
+ * active, the remaining rules already match each of its strings with a rule of lower priority
+ * without lookahead (typically the identifier rule), and if no lexical state would need the action
+ * of that rule and the action of the keyword for the same string. The generated scanner replaces
+ * the action of the lower priority rule by the action of the keyword whenever the matched text is
+ * the keyword. Since the remaining rules accept the keyword strings exactly where the keyword rule
+ * would, longest match and rule priority are the same as with the keyword rule in the DFA.
+ *
+ * <p>Keywords that fail these checks, or whose strings overlap with those of other keyword rules,
+ * stay in the NFA.
+ *
+ * @version JFlex 1.9.0-SNAPSHOT
+ */
+public final class Keywords {
+
+  /** maximum number of case variants of a caseless keyword that are checked against the NFA */
+  private static final int MAX_VARIANTS = 1 << 12;
+
+  /** maximum number of table entries, keeps the generated tables within the class file limits */
+  private static final int MAX_KEYWORDS = 1024;
+
+  /** A string that is recognised by a table lookup. */
+  public static final class Keyword {
+    /** the action of the rule that matches the keyword in the DFA */
+    public final Action match;
+    /** the keyword, with each character replaced by its fold if {@code caseless} */
+    public final String text;
+    /** whether the keyword matches all case variants of {@code text} */
+    public final boolean caseless;
+    /** the action of the keyword rule */
+    public final Action action;
+
+    Keyword(Action match, String text, boolean caseless, Action action) {
+      this.match = match;
+      this.text = text;
+      this.caseless = caseless;
+      this.action = action;
+    }
+  }
+
+  private final List<Keyword> keywords = new ArrayList<>();
+
+  /** maps the characters of the case sets used by caseless keywords to their folds */
+  private final SortedMap<Character, Character> fold = new TreeMap<>();
+
+  private Keywords() {}
+
+  /** Returns the keywords that are recognised by a table lookup. */
+  public List<Keyword> keywords() {
+    return Collections.unmodifiableList(keywords);
+  }
+
+  /**
+   * Returns the case folding of caseless keywords: each character of a case set maps to the
+   * smallest character of that set. Characters that are not in the map fold to themselves.
+   */
+  public SortedMap<Character, Character> fold() {
+    return Collections.unmodifiableSortedMap(fold);
+  }
+
+  public boolean isEmpty() {
+    return keywords.isEmpty();
+  }
+
+  /** Returns the length of the longest keyword. */
+  public int maxLength() {
+    int max = 0;
+    for (Keyword k : keywords) max = Math.max(max, k.text.length());
+    return max;
+  }
+
+  /**
+   * Determines if a rule is a candidate for a table lookup, i.e. if it matches a single string
+   * (modulo case) without lookahead and without {@code ^}.
+   *
+   * @param regExps the rules of the specification, after {@link RegExps#normalise(Macros)}
+   * @param num the number of the rule
+   * @return true iff the rule is a keyword candidate
+   */
+  public static boolean isCandidate(RegExps regExps, int num) {
+    return !regExps.isEOF(num)
+        && !regExps.isBOL(num)
+        && regExps.getLookAhead(num) == null
+        && regExps.getAction(num).lookAhead() == Action.NORMAL
+        && literal(regExps.getRegExp(num)) != null;
+  }
+
+  /**
+   * Decides which candidates are recognised by a table lookup and adds the others to the NFA.
+   *
+   * <p>Must be called after all other rules have been added to the NFA.
+   *
+   * @param nfa the NFA with all rules but the candidates
+   * @param regExps the rules of the specification
+   * @param scanner the scanner of the specification
+   * @param candidates the rules for which {@link #isCandidate(RegExps, int)} holds
+   * @return the keywords that are left out of the NFA
+   */
+  public static Keywords offload(
+      NFA nfa, RegExps regExps, AbstractLexScan scanner, List<Integer> candidates) {
+    UnicodeProperties props = scanner.getUnicodeProperties();
+    Keywords result = new Keywords();
+
+    // candidates with overlapping strings stay in the NFA; they are grouped by their folded strings
+    Map<String, List<Integer>> groups = new HashMap<>();
+    Map<Integer, int[][]> caseSets = new HashMap<>();
+    for (int num : candidates) {
+      Literal l = literal(regExps.getRegExp(num));
+      caseSets.put(num, caseSets(l, props));
+      groups.computeIfAbsent(foldText(l.text, props), k -> new ArrayList<>()).add(num);
+    }
+
+    List<Integer> rejected = new ArrayList<>();
+    List<Integer> accepted = new ArrayList<>();
+    for (List<Integer> group : groups.values()) {
+      for (int num : group) {
+        if (caseSets.get(num) == null || overlaps(regExps, num, group)) rejected.add(num);
+        else accepted.add(num);
+      }
+    }
+    Collections.sort(rejected);
+    Collections.sort(accepted);
+
+    // overlapping candidates go back first, they are part of the context of the others
+    for (int num : rejected) nfa.addRegExp(num);
+
+    for (int num : accepted) {
+      Literal l = literal(regExps.getRegExp(num));
+      int[][] sets = caseSets.get(num);
+      Action action = regExps.getAction(num);
+      Map<Action, Boolean> matches = matches(nfa, scanner, regExps.getStates(num), action, sets);
+
+      if (matches == null
+          || !matches.containsValue(true)
+          || result.keywords.size() + matches.size() > MAX_KEYWORDS) {
+        nfa.addRegExp(num);
+        continue;
+      }
+
+      String text = l.caseless ? foldText(l.text, props) : l.text;
+      for (Map.Entry<Action, Boolean> match : matches.entrySet()) {
+        if (match.getValue())
+          result.keywords.add(new Keyword(match.getKey(), text, l.caseless, action));
+      }
+
+      if (l.caseless) {
+        for (int[] set : sets) for (int c : set) result.fold.put((char) c, (char) set[0]);
+      }
+
+      // the action is not part of the DFA, but it is not unused either
+      scanner.actions.removeIf(a -> a == action);
+    }
+
+    return result;
+  }
+
+  /**
+   * Runs all strings of a keyword through the NFA, from all entry states of all lexical states.
+   *
+   * @return the winning actions: true if they need to be replaced by the keyword action, false if
+   *     they must stay; or null if the keyword cannot be recognised by a table lookup.
+   */
+  private static Map<Action, Boolean> matches(
+      NFA nfa, AbstractLexScan scanner, List<Integer> lexStates, Action action, int[][] sets) {
+    if (lexStates.isEmpty()) lexStates = scanner.states.getInclusiveStates();
+
+    long variants = 1;
+    for (int[] set : sets) variants *= set.length;
+    if (variants > MAX_VARIANTS) return null;
+
+    Map<Action, Boolean> result = new LinkedHashMap<>();
+    for (int state = 0; state < nfa.numLexStates(); state++) {
+      boolean active = lexStates.contains(state);
+      // entry states for "not at the beginning of a line" and "at the beginning of a line"
+      for (int entry = 2 * state; entry <= 2 * state + 1; entry++) {
+        if (!matches(nfa, nfa.closureOf(entry), sets, 0, active, action, result)) return null;
+      }
+    }
+    return result;
+  }
+
+  private static boolean matches(
+      NFA nfa,
+      StateSet states,
+      int[][] sets,
+      int pos,
+      boolean active,
+      Action action,
+      Map<Action, Boolean> result) {
+    if (pos == sets.length) {
+      Action winner = nfa.getAction(states);
+      if (active) {
+        if (winner == null || winner.priority == action.priority) return false;
+        if (winner.priority > action.priority) {
+          // lower priority than the keyword: this is what the table lookup replaces
+          if (winner.lookAhead() != Action.NORMAL) return false;
+          return result.merge(winner, true, Boolean::logicalAnd);
+        }
+      }
+      // the action of the winner must stay for this string
+      return winner == null || !Boolean.TRUE.equals(result.put(winner, false));
+    }
+
+    // no rule matches the keyword from here
+    if (!states.containsElements()) return !active;
+
+    for (int c : sets[pos]) {
+      if (!matches(nfa, nfa.step(states, c), sets, pos + 1, active, action, result)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Computes the characters that each position of a keyword matches, with the fold (the smallest
+   * character of the set) first.
+   *
+   * @return the sets, or null if a caseless keyword has case variants outside the BMP
+   */
+  private static int[][] caseSets(Literal l, UnicodeProperties props) {
+    int[] codePoints = l.text.codePoints().toArray();
+    int[][] result = new int[codePoints.length][];
+
+    for (int i = 0; i < codePoints.length; i++) {
+      int c = codePoints[i];
+      if (!l.caseless) {
+        result[i] = new int[] {c};
+        continue;
+      }
+      IntCharSet set = IntCharSet.ofCharacter(c).getCaseless(props);
+      int[] chars = new int[set.size()];
+      int n = 0;
+      for (Interval interval : set.getIntervals()) {
+        for (int elem = interval.start; elem <= interval.end; elem++) {
+          if (elem > Character.MAX_VALUE || Character.isSurrogate((char) elem)) return null;
+          chars[n++] = elem;
+        }
+      }
+      result[i] = chars;
+    }
+    return result;
+  }
+
+  /** Replaces each character of {@code text} by the smallest character of its case set. */
+  private static String foldText(String text, UnicodeProperties props) {
+    StringBuilder result = new StringBuilder();
+    text.codePoints()
+        .forEach(
+            c ->
+                result.appendCodePoint(
+                    IntCharSet.ofCharacter(c).getCaseless(props).getIntervals().get(0).start));
+    return result.toString();
+  }
+
+  /**
+   * Determines if a keyword matches a string of another keyword with the same folded string. Case
+   * sensitive keywords overlap only if they are equal, all others overlap.
+   */
+  private static boolean overlaps(RegExps regExps, int num, List<Integer> group) {
+    Literal l = literal(regExps.getRegExp(num));
+    for (int other : group) {
+      if (other == num) continue;
+      Literal o = literal(regExps.getRegExp(other));
+      if (l.caseless || o.caseless || l.text.equals(o.text)) return true;
+    }
+    return false;
+  }
+
+  /** The string matched by a keyword rule. */
+  private static final class Literal {
+    final String text;
+    final boolean caseless;
+
+    Literal(String text, boolean caseless) {
+      this.text = text;
+      this.caseless = caseless;
+    }
+  }
+
+  /**
+   * Returns the string matched by a regular expression that is a concatenation of strings and
+   * characters, all either case sensitive or case insensitive.
+   *
+   * @return the string, null if the expression is not of this form
+   */
+  private static Literal literal(RegExp r) {
+    StringBuilder text = new StringBuilder();
+    int kinds = literal(r, text);
+    if (text.length() == 0 || (kinds != 1 && kinds != 2)) return null;
+    return new Literal(text.toString(), kinds == 2);
+  }
+
+  /**
+   * Appends the string matched by {@code r} to {@code text}.
+   *
+   * @return a bit set: 1 for case sensitive parts, 2 for case insensitive parts, 4 for other
+   *     expressions
+   */
+  private static int literal(RegExp r, StringBuilder text) {
+    switch (r.type) {
+      case sym.STRING:
+        text.append((String) ((RegExp1) r).content);
+        return 1;
+      case sym.STRING_I:
+        text.append((String) ((RegExp1) r).content);
+        return 2;
+      case sym.CHAR:
+        text.appendCodePoint((Integer) ((RegExp1) r).content);
+        return 1;
+      case sym.CHAR_I:
+        text.appendCodePoint((Integer) ((RegExp1) r).content);
+        return 2;
+      case sym.CONCAT:
+        RegExp2 concat = (RegExp2) r;
+        return literal(concat.r1, text) | literal(concat.r2, text);
+      default:
+        return 4;
+    }
+  }
+}
@@ -144,6 +144,16 @@ public final class NFA {
     return numStates;
   }
 
+  /** Returns {@code true} iff {@code state} is a final state of this NFA. */
+  public boolean isFinal(int state) {
+    return isFinal[state];
+  }
+
+  /** Returns the action of {@code state}, {@code null} if there is none. */
+  public Action action(int state) {
+    return action[state];
+  }
+
   /** Returns the set of states that can be reached from currentState with an input nextChar. */
   public StateSet reachableStates(int currentState, int nextChar) {
     return table[currentState][nextChar];
@@ -399,6 +409,39 @@ public final class NFA {
     return closure;
   }
 
+  /**
+   * Returns the epsilon closure of a single state. Unlike {@link #epsilon(int)}, this does not
+   * require {@link #epsilonFill()}.
+   *
+   * @param state the state, usually an entry state of a lexical state
+   * @return the set of states reachable from {@code state} by epsilon edges
+   */
+  public StateSet closureOf(int state) {
+    return closure(state);
+  }
+
+  /**
+   * Simulates one step of this NFA. Unlike the DFA construction, this does not require {@link
+   * #epsilonFill()}.
+   *
+   * @param set an epsilon closed set of states
+   * @param codePoint the input character
+   * @return the epsilon closure of the states reached from {@code set} with {@code codePoint}
+   */
+  public StateSet step(StateSet set, int codePoint) {
+    int input = classes.getClassCode(codePoint);
+    StateSet result = new StateSet(numStates);
+
+    for (int state : set) {
+      StateSet next = table[state][input];
+      if (next != null) {
+        for (int n : next) if (!result.hasElement(n)) result.add(closure(n));
+      }
+    }
+
+    return result;
+  }
+
   public void epsilonFill() {
     for (int i = 0; i < numStates; i++) {
       epsilon[i] = closure(i);
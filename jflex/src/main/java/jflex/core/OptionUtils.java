@@ -36,6 +36,9 @@ public class OptionUtils {
     Options.dot = false;
     Options.dump = false;
     Options.legacy_dot = false;
+    Options.cache_dir = null;
+    Options.backtrack_report = false;
+    Options.no_backtrack = false;
     Options.encoding = Charset.defaultCharset();
     Skeleton.readDefault();
   }
@@ -10,9 +10,12 @@
 package jflex.core.unicode;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import jflex.base.Pair;
 import jflex.chars.Interval;
@@ -359,25 +362,23 @@ public class CharClasses {
    * @return an array of all {@link CharClassInterval} in this char class collection.
    */
   public CharClassInterval[] getIntervals() {
-    int i, c;
     int size = classes.size();
     int numIntervals = 0;
 
-    for (i = 0; i < size; i++) numIntervals += classes.get(i).numIntervals();
-
-    List<Iterator<Interval>> iterators = new ArrayList<>();
-    for (IntCharSet set : classes) iterators.add(set.intervalIterator());
+    for (int i = 0; i < size; i++) numIntervals += classes.get(i).numIntervals();
 
     CharClassInterval[] result = new CharClassInterval[numIntervals];
 
-    i = 0;
-    c = 0;
-    while (i < numIntervals) {
-      int code = getClassCode(c);
-      Interval iv = iterators.get(code).next(); // must have enough elements
-      result[i++] = new CharClassInterval(iv.start, iv.end, code);
-      c = iv.end + 1;
+    // the classes partition the input set, so their intervals sorted by start are contiguous
+    int i = 0;
+    for (int code = 0; code < size; code++) {
+      Iterator<Interval> iter = classes.get(code).intervalIterator();
+      while (iter.hasNext()) {
+        Interval iv = iter.next();
+        result[i++] = new CharClassInterval(iv.start, iv.end, code);
+      }
     }
+    Arrays.sort(result, Comparator.comparingInt(iv -> iv.start));
 
     return result;
   }
@@ -385,25 +386,40 @@ public class CharClasses {
   /**
    * Computes a two-level table structure representing this CharClass object, where second-level
    * blocks are shared if equal. The hope is that this sharing happens (very) often with a large
-   * number of blocks being mapped to the same character class.
+   * number of blocks being mapped to the same character class. Equal blocks are found by their
+   * hash, so the construction is linear in the size of the input set.
    *
    * @return a pair of a top-level table, and a list of second-level blocks for this char class
    *     object.
    */
   Pair<int[], List<CMapBlock>> computeTables() {
+    return computeTables(CMapBlock.BLOCK_BITS);
+  }
+
+  /**
+   * Computes a two-level table structure as {@link #computeTables()}, for second-level blocks of a
+   * given size.
+   *
+   * @param blockBits how many bits the second-level blocks translate
+   * @return a pair of a top-level table, and a list of second-level blocks for this char class
+   *     object.
+   */
+  Pair<int[], List<CMapBlock>> computeTables(int blockBits) {
+    int blockSize = 1 << blockBits;
     CharClassInterval[] intervals = getIntervals();
     int intervalIndex = 0;
     int curClass = intervals[intervalIndex].charClass;
     int codePoint = 0;
 
-    int topLevelSize = (maxCharUsed + 1) >> CMapBlock.BLOCK_BITS;
+    int topLevelSize = (maxCharUsed + blockSize) >> blockBits;
     int[] topLevel = new int[topLevelSize];
     List<CMapBlock> blocks = new ArrayList<>();
+    Map<CMapBlock, Integer> index = new HashMap<>();
 
     for (int topIndex = 0; topIndex < topLevelSize; topIndex++) {
-      int[] block = new int[CMapBlock.BLOCK_SIZE];
-      for (int i = 0; i < CMapBlock.BLOCK_SIZE; i++, codePoint++) {
-        // if maxCharUsed doesn't align to CMapBlock.BLOCK_BITS, we leave the
+      int[] block = new int[blockSize];
+      for (int i = 0; i < blockSize; i++, codePoint++) {
+        // if maxCharUsed doesn't align to blockBits, we leave the
         // rest of the highest block equal to 0.
         if (maxCharUsed < codePoint) break;
         if (!intervals[intervalIndex].contains(codePoint)) {
@@ -413,22 +429,24 @@ public class CharClasses {
       }
       // find earliest equal block (if any)
       CMapBlock b = new CMapBlock(block);
-      int idx = blocks.indexOf(b);
-      if (idx < 0) {
+      Integer idx = index.get(b);
+      if (idx == null) {
         idx = blocks.size();
         blocks.add(b);
+        index.put(b, idx);
       }
       topLevel[topIndex] = idx;
     }
     return new Pair<int[], List<CMapBlock>>(topLevel, blocks);
   }
 
-  /** Turn a list of second-level blocks into a flat array. */
-  private static int[] flattenBlocks(List<CMapBlock> blocks) {
-    int[] result = new int[blocks.size() * CMapBlock.BLOCK_SIZE];
+  /** Turn a list of equally sized blocks into a flat array. */
+  private static int[] flattenBlocks(List<CMapBlock> blocks, int blockBits) {
+    int blockSize = 1 << blockBits;
+    int[] result = new int[blocks.size() * blockSize];
     for (int i = 0; i < blocks.size(); i++) {
       int[] block = blocks.get(i).block;
-      System.arraycopy(block, 0, result, i << CMapBlock.BLOCK_BITS, CMapBlock.BLOCK_SIZE);
+      System.arraycopy(block, 0, result, i << blockBits, blockSize);
     }
     return result;
   }
@@ -443,11 +461,52 @@ public class CharClasses {
    * @see CMapBlock#BLOCK_SIZE
    */
   public Pair<int[], int[]> getTables() {
-    Pair<int[], List<CMapBlock>> p = computeTables();
+    return getTables(CMapBlock.BLOCK_BITS);
+  }
+
+  /**
+   * Returns a two-level table structure as {@link #getTables()}, for second-level blocks of a given
+   * size.
+   *
+   * @param blockBits how many bits the second-level blocks translate
+   */
+  public Pair<int[], int[]> getTables(int blockBits) {
+    Pair<int[], List<CMapBlock>> p = computeTables(blockBits);
     int[] shifted = new int[p.fst.length];
     for (int i = 0; i < p.fst.length; i++) {
-      shifted[i] = p.fst[i] << CMapBlock.BLOCK_BITS;
+      shifted[i] = p.fst[i] << blockBits;
+    }
+    return new Pair<int[], int[]>(shifted, flattenBlocks(p.snd, blockBits));
+  }
+
+  /**
+   * Splits a table into blocks and shares equal blocks, to add one more level to a table structure.
+   * The entry {@code x} of {@code table} is {@code snd[fst[x >> blockBits] | (x & BLOCK_MASK)]}
+   * where {@code BLOCK_MASK = (1 << blockBits) - 1}. As in {@link #getTables()}, the first block is
+   * at index 0.
+   *
+   * @param table the table to split; the last block is padded with 0
+   * @param blockBits how many bits the blocks translate
+   * @return a pair of the top-level table, and the blocks as flat array
+   */
+  public static Pair<int[], int[]> shareBlocks(int[] table, int blockBits) {
+    int blockSize = 1 << blockBits;
+    int[] topLevel = new int[(table.length + blockSize - 1) >> blockBits];
+    List<CMapBlock> blocks = new ArrayList<>();
+    Map<CMapBlock, Integer> index = new HashMap<>();
+
+    for (int topIndex = 0; topIndex < topLevel.length; topIndex++) {
+      int start = topIndex << blockBits;
+      int[] block = Arrays.copyOfRange(table, start, start + blockSize);
+      CMapBlock b = new CMapBlock(block);
+      Integer idx = index.get(b);
+      if (idx == null) {
+        idx = blocks.size();
+        blocks.add(b);
+        index.put(b, idx);
+      }
+      topLevel[topIndex] = idx << blockBits;
     }
-    return new Pair<int[], int[]>(shifted, flattenBlocks(p.snd));
+    return new Pair<int[], int[]>(topLevel, flattenBlocks(blocks, blockBits));
   }
 }
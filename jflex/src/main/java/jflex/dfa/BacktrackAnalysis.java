@@ -0,0 +1,285 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.9.0-SNAPSHOT                                                    *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex.dfa;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import jflex.core.Action;
+import jflex.core.LexScan;
+import jflex.l10n.ErrorMessages;
+import jflex.logging.Out;
+import jflex.option.Options;
+
+/**
+ * Finds the DFA states that force the generated scanner to back up.
+ *
+ * <p>The scanner remembers the input position of the last accepting state it passed. If it then
+ * gets stuck in a non-accepting state, it rewinds to that position and scans the rest of the input
+ * again for the next token. A non-accepting state that is reachable from an accepting state is
+ * therefore a <i>backtracking state</i>. The backtracking distance of such a state is the maximum
+ * number of input characters between an accepting state and the state, i.e. the number of
+ * characters that are read again (not counting the one character that the scanner needs to read
+ * anyway to find the end of the match). It is unbounded if the state lies on or behind a cycle of
+ * non-accepting states.
+ *
+ * <p>Only states that are reachable from the entry states of lexical states are considered, not the
+ * automata for general lookahead.
+ *
+ * @version JFlex 1.9.0-SNAPSHOT
+ */
+public final class BacktrackAnalysis {
+
+  /** Distance of states on or behind a cycle of non-accepting states. */
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  private final DFA dfa;
+
+  /** backtracking distance per state, 0 for states that are not backtracking states */
+  private final int[] distance;
+
+  /** number of backtracking states */
+  private int numStates;
+
+  /** maximum of {@code distance} */
+  private int worstCase;
+
+  /** rules whose matches can be abandoned, with the worst-case distance of the abandoned scan */
+  private final Map<Action, Integer> actionDistance = new IdentityHashMap<>();
+
+  /** lexical states (numbers, not entry states) from which a backtracking state is reachable */
+  private final List<Integer> lexStates = new ArrayList<>();
+
+  /**
+   * Analyses a DFA.
+   *
+   * @param dfa the (usually minimised) DFA to analyse.
+   */
+  public BacktrackAnalysis(DFA dfa) {
+    this.dfa = dfa;
+    this.distance = new int[dfa.numStates()];
+
+    boolean[] live = new boolean[dfa.numStates()];
+    for (int i = 0; i < 2 * dfa.numLexStates(); i++) {
+      reach(dfa.entryState(i), live, false);
+    }
+
+    boolean[] backtrack = new boolean[dfa.numStates()];
+    for (int s = 0; s < dfa.numStates(); s++) {
+      if (live[s] && dfa.isFinal(s)) {
+        for (int c = 0; c < dfa.numInput(); c++) {
+          int t = dfa.table(s, c);
+          if (t != DFA.NO_TARGET && !dfa.isFinal(t)) reach(t, backtrack, true);
+        }
+      }
+    }
+
+    computeDistances(backtrack);
+
+    for (int s = 0; s < dfa.numStates(); s++) {
+      if (live[s] && dfa.isFinal(s) && dfa.action(s) != null && dfa.action(s).isEmittable()) {
+        int d = maxDistanceFrom(s);
+        if (d > 0) {
+          Integer old = actionDistance.get(dfa.action(s));
+          if (old == null || old < d) actionDistance.put(dfa.action(s), d);
+        }
+      }
+    }
+
+    for (int k = 0; k < dfa.numLexStates(); k++) {
+      boolean[] reachable = new boolean[dfa.numStates()];
+      reach(dfa.entryState(2 * k), reachable, false);
+      reach(dfa.entryState(2 * k + 1), reachable, false);
+      for (int s = 0; s < dfa.numStates(); s++) {
+        if (reachable[s] && distance[s] > 0) {
+          lexStates.add(k);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Marks all states reachable from {@code start} (inclusive).
+   *
+   * @param nonFinalOnly if true, don't follow transitions into accepting states
+   */
+  private void reach(int start, boolean[] mark, boolean nonFinalOnly) {
+    if (mark[start]) return;
+    ArrayDeque<Integer> todo = new ArrayDeque<>();
+    mark[start] = true;
+    todo.add(start);
+    while (!todo.isEmpty()) {
+      int s = todo.poll();
+      for (int c = 0; c < dfa.numInput(); c++) {
+        int t = dfa.table(s, c);
+        if (t != DFA.NO_TARGET && !mark[t] && !(nonFinalOnly && dfa.isFinal(t))) {
+          mark[t] = true;
+          todo.add(t);
+        }
+      }
+    }
+  }
+
+  /**
+   * Longest path from an accepting state to each backtracking state, by topological order of the
+   * subgraph of backtracking states. States that are never removed lie on or behind a cycle.
+   */
+  private void computeDistances(boolean[] backtrack) {
+    int[] inDegree = new int[dfa.numStates()];
+    for (int s = 0; s < dfa.numStates(); s++) {
+      if (backtrack[s]) {
+        numStates++;
+        distance[s] = 1;
+        for (int c = 0; c < dfa.numInput(); c++) {
+          int t = dfa.table(s, c);
+          if (t != DFA.NO_TARGET && backtrack[t]) inDegree[t]++;
+        }
+      }
+    }
+
+    ArrayDeque<Integer> ready = new ArrayDeque<>();
+    for (int s = 0; s < dfa.numStates(); s++) {
+      if (backtrack[s] && inDegree[s] == 0) ready.add(s);
+    }
+
+    int done = 0;
+    boolean[] finished = new boolean[dfa.numStates()];
+    while (!ready.isEmpty()) {
+      int s = ready.poll();
+      finished[s] = true;
+      done++;
+      for (int c = 0; c < dfa.numInput(); c++) {
+        int t = dfa.table(s, c);
+        if (t != DFA.NO_TARGET && backtrack[t]) {
+          distance[t] = Math.max(distance[t], distance[s] + 1);
+          if (--inDegree[t] == 0) ready.add(t);
+        }
+      }
+    }
+
+    if (done < numStates) {
+      for (int s = 0; s < dfa.numStates(); s++) {
+        if (backtrack[s] && !finished[s]) distance[s] = UNBOUNDED;
+      }
+    }
+
+    for (int s = 0; s < dfa.numStates(); s++) worstCase = Math.max(worstCase, distance[s]);
+  }
+
+  /**
+   * Maximum distance of the backtracking states directly entered from accepting state {@code s}.
+   */
+  private int maxDistanceFrom(int s) {
+    boolean[] region = new boolean[dfa.numStates()];
+    int result = 0;
+    for (int c = 0; c < dfa.numInput(); c++) {
+      int t = dfa.table(s, c);
+      if (t != DFA.NO_TARGET && !dfa.isFinal(t)) reach(t, region, true);
+    }
+    for (int t = 0; t < dfa.numStates(); t++) {
+      if (region[t]) result = Math.max(result, distance[t]);
+    }
+    return result;
+  }
+
+  /** @return the number of backtracking states. */
+  public int numStates() {
+    return numStates;
+  }
+
+  /** @return whether the scanner ever needs to back up. */
+  public boolean backtracks() {
+    return numStates > 0;
+  }
+
+  /**
+   * @param state a state of the DFA
+   * @return the backtracking distance of {@code state}, 0 if it is not a backtracking state.
+   */
+  public int distance(int state) {
+    return distance[state];
+  }
+
+  /** @return the worst-case backtracking distance, {@link #UNBOUNDED} if there is no bound. */
+  public int worstCase() {
+    return worstCase;
+  }
+
+  /**
+   * Returns the actions of accepting states from which a backtracking state can be reached, with
+   * the worst-case distance of the backtracking states involved.
+   *
+   * @return the actions in order of their priority.
+   */
+  public List<Action> actions() {
+    List<Action> result = new ArrayList<>(actionDistance.keySet());
+    Collections.sort(
+        result,
+        new Comparator<Action>() {
+          @Override
+          public int compare(Action a, Action b) {
+            return Integer.compare(a.priority, b.priority);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * @param action one of {@link #actions()}
+   * @return the worst-case backtracking distance after a match for {@code action}.
+   */
+  public int distance(Action action) {
+    Integer d = actionDistance.get(action);
+    return d == null ? 0 : d;
+  }
+
+  /** @return the lexical states (by number) in which the scanner may need to back up. */
+  public List<Integer> lexStates() {
+    return lexStates;
+  }
+
+  /**
+   * Reports backtracking as warnings, or as errors if {@link Options#no_backtrack} is set.
+   *
+   * @param scanner the scanner of the specification, for file name and lexical state names.
+   */
+  public void report(LexScan scanner) {
+    if (!backtracks()) return;
+
+    for (Action a : actions()) {
+      String message = ErrorMessages.get(ErrorMessages.BACKTRACK_RULE, distanceString(distance(a)));
+      if (Options.no_backtrack) Out.error(scanner.file(), message, a.priority - 1, -1);
+      else Out.warning(scanner.file(), message, a.priority - 1, -1);
+    }
+
+    String[] stateName = new String[dfa.numLexStates()];
+    for (String name : scanner.stateNames()) stateName[scanner.getStateNumber(name)] = name;
+    StringBuilder names = new StringBuilder();
+    for (int k : lexStates) {
+      if (names.length() > 0) names.append(", ");
+      names.append(stateName[k]);
+    }
+
+    String summary =
+        ErrorMessages.get(
+            ErrorMessages.BACKTRACK_STATES, numStates, distanceString(worstCase), names);
+    if (Options.no_backtrack) Out.error(summary);
+    else Out.warning(summary);
+  }
+
+  private static String distanceString(int d) {
+    return d == UNBOUNDED ? ErrorMessages.get(ErrorMessages.BACKTRACK_UNBOUNDED) : "" + d;
+  }
+}
@@ -92,7 +92,7 @@ public class DFA {
     this.numLexStates = numLexStates;
     this.numStates = numStates;
 
-    int statesNeeded = Math.max(numEntryStates, STATES);
+    int statesNeeded = Math.max(Math.max(numEntryStates, numStates), STATES);
 
     table = new int[statesNeeded][numInput];
     isFinal = new boolean[statesNeeded];
@@ -771,6 +771,10 @@ public class DFA {
     return minimized;
   }
 
+  void setMinimized(boolean minimized) {
+    this.minimized = minimized;
+  }
+
   /** Returns a representation of this DFA. */
   public String toString(int[] a) {
     StringBuilder r = new StringBuilder("{");
@@ -0,0 +1,293 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.9.0-SNAPSHOT                                                    *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex.dfa;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import jflex.base.Build;
+import jflex.core.Action;
+import jflex.core.NFA;
+import jflex.l10n.ErrorMessages;
+import jflex.logging.Out;
+import jflex.option.Options;
+import jflex.state.StateSet;
+import jflex.state.StateSetEnumerator;
+
+/**
+ * Persistent cache for minimised DFAs.
+ *
+ * <p>The cache key is a fingerprint of the NFA as it comes out of the parser. The NFA is built from
+ * the normalised regular expressions (macros expanded), the lexical states and the character class
+ * partition, so it captures everything the automaton stages depend on. Action code enters the key
+ * only through the priority order of the actions and the partition into equivalent actions (which
+ * influences minimisation), not through its text. Editing only action code or comments therefore
+ * results in a cache hit.
+ *
+ * <p>Actions are stored by their index in the NFA (in order of first occurrence), and are mapped
+ * back to the {@link Action} objects of the current specification when a cached DFA is loaded.
+ *
+ * @version JFlex 1.9.0-SNAPSHOT
+ */
+public final class DfaCache {
+
+  /** Marks the start of a cache file. */
+  private static final int MAGIC = 0x4a464346; // "JFCF"
+
+  /** Version of the cache file format. Increment whenever the format changes. */
+  private static final int FORMAT_VERSION = 1;
+
+  /** File name extension for cache entries */
+  private static final String EXTENSION = ".dfa";
+
+  /** The directory cache entries are stored in. */
+  private final File directory;
+
+  /**
+   * Creates a cache that stores its entries in the specified directory.
+   *
+   * @param directory the cache directory; will be created when the first entry is stored.
+   */
+  public DfaCache(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Computes the cache key of an NFA.
+   *
+   * <p>Must be called before {@link NFA#epsilonFill()}.
+   *
+   * @param nfa the NFA as constructed by the parser
+   * @return a hex string identifying the automaton structure of the NFA
+   */
+  public static String fingerprint(NFA nfa) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+
+    List<Action> actions = actions(nfa);
+
+    // rank of each priority; only the relative order of priorities matters
+    TreeSet<Integer> priorities = new TreeSet<>();
+    for (Action a : actions) priorities.add(a.priority);
+    Map<Integer, Integer> rank = new HashMap<>();
+    for (Integer p : priorities) rank.put(p, rank.size());
+
+    // partition into equivalent actions (Action.equals is content equivalence)
+    Map<Action, Integer> equivClass = new HashMap<>();
+
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new DigestOutputStream(
+                new OutputStream() {
+                  @Override
+                  public void write(int b) {}
+                },
+                digest))) {
+      out.writeUTF(Build.VERSION);
+      out.writeInt(FORMAT_VERSION);
+      out.writeBoolean(Options.no_minimize);
+
+      out.writeInt(nfa.numInput());
+      out.writeInt(nfa.numLexStates());
+      out.writeInt(nfa.numEntryStates());
+      out.writeInt(nfa.numStates());
+
+      out.writeInt(actions.size());
+      for (int i = 0; i < actions.size(); i++) {
+        Action a = actions.get(i);
+        Integer c = equivClass.get(a);
+        if (c == null) {
+          c = i;
+          equivClass.put(a, c);
+        }
+        out.writeInt(c);
+        out.writeInt(rank.get(a.priority));
+        out.writeInt(a.lookAhead());
+        out.writeInt(a.getLookLength());
+        out.writeInt(a.getEntryState());
+      }
+
+      Map<Action, Integer> actionIndex = indexOf(actions);
+      StateSetEnumerator states = new StateSetEnumerator();
+      for (int s = 0; s < nfa.numStates(); s++) {
+        out.writeBoolean(nfa.isFinal(s));
+        Action a = nfa.action(s);
+        out.writeInt(a == null ? -1 : actionIndex.get(a));
+        writeStateSet(out, states, nfa.epsilon(s));
+        for (int c = 0; c < nfa.numInput(); c++) {
+          writeStateSet(out, states, nfa.reachableStates(s, c));
+        }
+      }
+    } catch (IOException e) {
+      // cannot happen for a null output stream
+      throw new IllegalStateException(e);
+    }
+
+    StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) result.append(String.format("%02x", b));
+    return result.toString();
+  }
+
+  /**
+   * Looks up a cached DFA for an NFA.
+   *
+   * @param key the fingerprint of {@code nfa}
+   * @param nfa the NFA the cached DFA was computed from
+   * @return the cached DFA, or {@code null} if there is no (valid) entry for {@code key}.
+   */
+  public DFA load(String key, NFA nfa) {
+    File file = entry(key);
+    if (!file.isFile()) return null;
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return null;
+      if (!key.equals(in.readUTF())) return null;
+
+      List<Action> actions = actions(nfa);
+
+      boolean minimized = in.readBoolean();
+      int numStates = in.readInt();
+      int numInput = in.readInt();
+      int numLexStates = in.readInt();
+      int numEntryStates = in.readInt();
+
+      if (numInput != nfa.numInput() || numEntryStates != nfa.numEntryStates()) return null;
+
+      DFA dfa = new DFA(numEntryStates, numInput, numLexStates, numStates);
+
+      for (int i = 0; i < numEntryStates; i++) {
+        dfa.setEntryState(i, in.readInt());
+      }
+
+      for (int s = 0; s < numStates; s++) {
+        dfa.setFinal(s, in.readBoolean());
+        int a = in.readInt();
+        if (a >= 0) dfa.setAction(s, actions.get(a));
+        for (int c = 0; c < numInput; c++) {
+          dfa.table[s][c] = in.readInt();
+        }
+      }
+
+      dfa.setMinimized(minimized);
+      return dfa;
+    } catch (IOException | RuntimeException e) {
+      Out.warning(ErrorMessages.get(ErrorMessages.DFA_CACHE_UNREADABLE, file, e));
+      return null;
+    }
+  }
+
+  /**
+   * Stores a DFA in the cache.
+   *
+   * <p>Failure to write the cache entry results in a warning, not an error.
+   *
+   * @param key the fingerprint of {@code nfa}
+   * @param nfa the NFA {@code dfa} has been computed from
+   * @param dfa the (usually minimised) DFA to store
+   */
+  public void store(String key, NFA nfa, DFA dfa) {
+    File file = entry(key);
+
+    try {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        Out.warning(ErrorMessages.get(ErrorMessages.DFA_CACHE_NO_DIR, directory));
+        return;
+      }
+
+      Map<Action, Integer> actionIndex = indexOf(actions(nfa));
+
+      // write to a temporary file first, so concurrent generator runs never see partial entries
+      File tmp = File.createTempFile(key, ".tmp", directory);
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+
+        out.writeBoolean(dfa.isMinimized());
+        out.writeInt(dfa.numStates());
+        out.writeInt(dfa.numInput());
+        out.writeInt(dfa.numLexStates());
+        out.writeInt(dfa.entryState.length);
+
+        for (int e : dfa.entryState) out.writeInt(e);
+
+        for (int s = 0; s < dfa.numStates(); s++) {
+          out.writeBoolean(dfa.isFinal(s));
+          Action a = dfa.action(s);
+          out.writeInt(a == null ? -1 : actionIndex.get(a));
+          for (int c = 0; c < dfa.numInput(); c++) {
+            out.writeInt(dfa.table(s, c));
+          }
+        }
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Out.warning(ErrorMessages.get(ErrorMessages.DFA_CACHE_WRITE, file, e));
+    }
+  }
+
+  /** The file name of the cache entry for {@code key}. */
+  private File entry(String key) {
+    return new File(directory, key + EXTENSION);
+  }
+
+  /** All distinct actions of the NFA, in order of first occurrence. */
+  private static List<Action> actions(NFA nfa) {
+    Map<Action, Integer> seen = new IdentityHashMap<>();
+    List<Action> result = new ArrayList<>();
+    for (int s = 0; s < nfa.numStates(); s++) {
+      Action a = nfa.action(s);
+      if (a != null && !seen.containsKey(a)) {
+        seen.put(a, result.size());
+        result.add(a);
+      }
+    }
+    return result;
+  }
+
+  /** Maps each action (by identity) to its position in {@code actions}. */
+  private static Map<Action, Integer> indexOf(List<Action> actions) {
+    Map<Action, Integer> result = new IdentityHashMap<>();
+    for (int i = 0; i < actions.size(); i++) result.put(actions.get(i), i);
+    return result;
+  }
+
+  private static void writeStateSet(DataOutputStream out, StateSetEnumerator states, StateSet set)
+      throws IOException {
+    if (set == null) {
+      out.writeInt(-1);
+      return;
+    }
+    states.reset(set);
+    while (states.hasMoreElements()) out.writeInt(states.nextElement());
+    out.writeInt(-1);
+  }
+}
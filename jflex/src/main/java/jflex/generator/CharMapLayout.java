@@ -0,0 +1,206 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.9.0-SNAPSHOT                                                    *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex.generator;
+
+import java.util.Arrays;
+import jflex.base.Pair;
+import jflex.core.unicode.CharClassInterval;
+import jflex.core.unicode.CharClasses;
+
+/**
+ * Layout of the tables that translate input code points to DFA columns in a generated scanner, for
+ * scanners with more than 256 input characters.
+ *
+ * <p>The map is either a flat table, a two-level table (top level and shared blocks, see {@link
+ * CharClasses#getTables(int)}), or a three-level table where the top level of the two-level table
+ * is split into shared blocks once more (see {@link CharClasses#shareBlocks(int[], int)}). The
+ * latter pays off for sparse use of the supplementary planes. The layout with the smallest tables
+ * (in bytes, with the narrowest element types) is chosen, but an additional level has to save at
+ * least a quarter of the size, since it costs one more load per character.
+ *
+ * <p>Blocks translate at least {@link #MIN_BLOCK_BITS} bits, so that the first block covers all of
+ * ASCII. Since the first block is always at index 0, the generated lookup translates these
+ * characters with a single load from the block table, without going through the upper levels.
+ *
+ * @version JFlex 1.9.0-SNAPSHOT
+ */
+final class CharMapLayout {
+
+  /** smallest and largest number of bits translated by the blocks of the last level */
+  static final int MIN_BLOCK_BITS = 7;
+
+  static final int MAX_BLOCK_BITS = 10;
+
+  /** smallest and largest number of bits translated by the blocks of the middle level */
+  private static final int MIN_MID_BITS = 2;
+
+  private static final int MAX_MID_BITS = 6;
+
+  /** number of levels, 1 to 3 */
+  final int levels;
+
+  /** bits translated by the blocks of the last level (levels > 1) */
+  final int blockBits;
+
+  /** bits translated by the blocks of the middle level (levels == 3) */
+  final int midBits;
+
+  /** the top level, or the flat table */
+  final int[] top;
+
+  /** the middle level (levels == 3), entries are indices of blocks, shifted by {@code blockBits} */
+  final int[] mid;
+
+  /** the last level (levels > 1) */
+  final int[] blocks;
+
+  private CharMapLayout(
+      int levels, int blockBits, int midBits, int[] top, int[] mid, int[] blocks) {
+    this.levels = levels;
+    this.blockBits = blockBits;
+    this.midBits = midBits;
+    this.top = top;
+    this.mid = mid;
+    this.blocks = blocks;
+  }
+
+  /**
+   * Chooses the layout for the character map.
+   *
+   * @param cl the character classes of the scanner
+   * @param colMap translates character classes to DFA columns
+   * @param maxCharCode the largest code point the scanner translates, at most {@code
+   *     cl.getMaxCharCode()}
+   * @return the layout with the smallest tables
+   */
+  static CharMapLayout choose(CharClasses cl, int[] colMap, int maxCharCode) {
+    // the tables of a restricted input set are built from the flat table
+    boolean restricted = maxCharCode < cl.getMaxCharCode();
+    int[] flat = restricted || maxCharCode < 1 << 16 ? flatTable(cl, colMap, maxCharCode) : null;
+
+    CharMapLayout twoLevels = null;
+    CharMapLayout threeLevels = null;
+
+    for (int bits = MIN_BLOCK_BITS; bits <= MAX_BLOCK_BITS; bits++) {
+      Pair<int[], int[]> tables;
+      if (restricted) {
+        tables = CharClasses.shareBlocks(flat, bits);
+      } else {
+        tables = cl.getTables(bits);
+        int[] blocks = tables.snd;
+        for (int i = 0; i < blocks.length; i++) {
+          blocks[i] = colMap[blocks[i]];
+        }
+      }
+
+      CharMapLayout two = new CharMapLayout(2, bits, 0, tables.fst, null, tables.snd);
+      if (twoLevels == null || two.size() < twoLevels.size()) twoLevels = two;
+
+      for (int midBits = MIN_MID_BITS; midBits <= MAX_MID_BITS; midBits++) {
+        Pair<int[], int[]> upper = CharClasses.shareBlocks(tables.fst, midBits);
+        CharMapLayout three = new CharMapLayout(3, bits, midBits, upper.fst, upper.snd, tables.snd);
+        if (threeLevels == null || three.size() < threeLevels.size()) threeLevels = three;
+      }
+    }
+
+    CharMapLayout best = twoLevels;
+    if (threeLevels.size() * 4 <= best.size() * 3) best = threeLevels;
+
+    // the flat table is the fastest; take it if it is not larger
+    if (maxCharCode < 1 << 16) {
+      CharMapLayout one = new CharMapLayout(1, 0, 0, flat, null, null);
+      if (one.size() <= best.size()) best = one;
+    }
+
+    return best;
+  }
+
+  /** The DFA columns of all code points up to {@code maxCharCode}. */
+  private static int[] flatTable(CharClasses cl, int[] colMap, int maxCharCode) {
+    int[] flat = new int[maxCharCode + 1];
+    for (CharClassInterval iv : cl.getIntervals()) {
+      if (iv.start > maxCharCode) break;
+      Arrays.fill(flat, iv.start, Math.min(iv.end, maxCharCode) + 1, colMap[iv.charClass]);
+    }
+    return flat;
+  }
+
+  /**
+   * Returns the size of all tables of this layout.
+   *
+   * @return the size in bytes, with the narrowest element type per table
+   */
+  int size() {
+    return size(top) + size(mid) + size(blocks);
+  }
+
+  private static int size(int[] table) {
+    if (table == null) return 0;
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int value : table) {
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    switch (PackEmitter.elementType(min, max)) {
+      case "byte":
+        return table.length;
+      case "short":
+      case "char":
+        return 2 * table.length;
+      default:
+        return 4 * table.length;
+    }
+  }
+
+  /**
+   * Returns a description of this layout, for reporting.
+   *
+   * @return e.g. {@code "2 levels, blocks of 256"}
+   */
+  String description() {
+    switch (levels) {
+      case 1:
+        return "flat";
+      case 2:
+        return "2 levels, blocks of " + (1 << blockBits);
+      default:
+        return "3 levels, blocks of " + (1 << midBits) + " and " + (1 << blockBits);
+    }
+  }
+
+  /**
+   * Returns the expression that translates the code point {@code input} to a DFA column.
+   *
+   * @return the expression, using the variables {@code input} and {@code offset}
+   */
+  String lookup() {
+    switch (levels) {
+      case 1:
+        return "ZZ_CMAP[input]";
+      case 2:
+        return "offset == input"
+            + " ? ZZ_CMAP_BLOCKS[offset]"
+            + " : ZZ_CMAP_BLOCKS[ZZ_CMAP_TOP[input >> "
+            + blockBits
+            + "] | offset]";
+      default:
+        return "offset == input"
+            + " ? ZZ_CMAP_BLOCKS[offset]"
+            + " : ZZ_CMAP_BLOCKS[ZZ_CMAP_MID[ZZ_CMAP_TOP[input >> "
+            + (blockBits + midBits)
+            + "] | ((input >> "
+            + blockBits
+            + ") & "
+            + ((1 << midBits) - 1)
+            + ")] | offset]";
+    }
+  }
+}
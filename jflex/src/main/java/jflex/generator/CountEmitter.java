@@ -41,9 +41,10 @@ public class CountEmitter extends PackEmitter {
     // close last string chunk:
     println("\";");
 
+    String type = fixElementType();
     nl();
-    println("  private static int [] zzUnpack" + name + "() {");
-    println("    int [] result = new int[" + numEntries + "];");
+    println("  private static " + type + " [] zzUnpack" + name + "() {");
+    println("    " + type + " [] result = new " + type + "[" + numEntries + "];");
     println("    int offset = 0;");
 
     for (int i = 0; i < chunks; i++) {
@@ -62,7 +63,11 @@ public class CountEmitter extends PackEmitter {
     nl();
 
     println(
-        "  private static int zzUnpack" + name + "(String packed, int offset, int [] result) {");
+        "  private static int zzUnpack"
+            + name
+            + "(String packed, int offset, "
+            + type
+            + " [] result) {");
     println("    int i = 0;       /* index in packed string  */");
     println("    int j = offset;  /* index in unpacked array */");
     println("    int l = packed.length();");
@@ -74,7 +79,7 @@ public class CountEmitter extends PackEmitter {
     } else if (translate != 0) {
       println("      value-= " + translate);
     }
-    println("      do result[j++] = value; while (--count > 0);");
+    println("      do result[j++] = " + cast(type, "value") + "; while (--count > 0);");
     println("    }");
     println("    return j;");
     println("  }");
@@ -103,6 +108,7 @@ public class CountEmitter extends PackEmitter {
    */
   public void emit(int count, int value) {
     numEntries += count;
+    addValue(value);
     breaks();
 
     // unlikely, but count could be >= 0x10000
@@ -10,19 +10,23 @@
 package jflex.generator;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import jflex.base.Build;
-import jflex.base.Pair;
 import jflex.core.AbstractLexScan;
 import jflex.core.Action;
 import jflex.core.EOFActions;
+import jflex.core.Keywords;
 import jflex.core.LexParse;
 import jflex.core.LexScan;
-import jflex.core.unicode.CMapBlock;
 import jflex.core.unicode.CharClasses;
 import jflex.dfa.DFA;
 import jflex.exceptions.GeneratorException;
@@ -57,6 +61,9 @@ public final class Emitter {
   private static final int FINAL = 1;
   private static final int NOLOOK = 8;
 
+  /** largest code point of the Basic Multilingual Plane */
+  private static final int BMP_MAX = 0xFFFF;
+
   private final File inputFile;
   final String outputFileName;
 
@@ -77,9 +84,26 @@ public final class Emitter {
   private int[] colMap;
   private boolean[] colKilled;
 
+  /** layout of the character map, null for the single-level map of at most 256 characters */
+  private CharMapLayout charMapLayout;
+
+  /** collects the tables with {@code %tableresource}, null otherwise */
+  private final TableResource tableResource;
+
+  /** the scanner reads UTF-16 code units, without combining surrogate pairs */
+  private final boolean bmp;
+
+  // element types of the packed tables used in the scanning loop
+  private String transType;
+  private String rowMapType;
+  private String attributeType;
+
   /** maps actions to their switch label */
   private final Map<Action, Integer> actionTable = new LinkedHashMap<>();
 
+  /** the keywords recognised by a table lookup ({@code %keywordhash}), null if none */
+  private KeywordHash keywordHash;
+
   private final String visibility;
   private String eofCode;
   private String eofThrow;
@@ -101,6 +125,9 @@ public final class Emitter {
     this.inputFile = inputFile;
     this.dfa = dfa;
     this.skel = new Skeleton(out);
+    this.tableResource =
+        scanner.tableResource() ? new TableResource(getBaseName(scanner.className())) : null;
+    this.bmp = scanner.bmpOption() || parser.getCharClasses().getMaxCharCode() <= BMP_MAX;
   }
 
   /**
@@ -279,8 +306,8 @@ public final class Emitter {
 
       println("    " + scanner.tokenType() + " s = " + functionName + "();");
       print("    System.out.println( ");
-      if (scanner.lineCount()) print("\"line:\" + (yyline+1) + ");
-      if (scanner.columnCount()) print("\" col:\" + (yycolumn+1) + ");
+      if (scanner.lineCount()) print("\"line:\" + (" + yyline() + "+1) + ");
+      if (scanner.columnCount()) print("\" col:\" + (" + yycolumn() + "+1) + ");
       if (scanner.charCount()) print("\" char:\" + yychar + ");
       println("\" --\"+ yytext() + \"--\" + getTokenName(s.sym) + \"--\");");
       println("    return s;");
@@ -374,20 +401,33 @@ public final class Emitter {
     println("            zzScanError(ZZ_NO_MATCH);");
   }
 
+  /**
+   * Emits reading the next input character. In {@link #bmp} mode, the input is a sequence of UTF-16
+   * code units and surrogates are ordinary characters.
+   */
   private void emitNextInput() {
     println("          if (zzCurrentPosL < zzEndReadL) {");
-    println("            zzInput = Character.codePointAt(zzBufferL, zzCurrentPosL, zzEndReadL);");
-    println("            zzCurrentPosL += Character.charCount(zzInput);");
+    if (bmp) {
+      println("            zzInput = zzBufferL[zzCurrentPosL++];");
+    } else {
+      println("            zzInput = Character.codePointAt(zzBufferL, zzCurrentPosL, zzEndReadL);");
+      println("            zzCurrentPosL += Character.charCount(zzInput);");
+    }
     println("          }");
     println("          else if (zzAtEOF) {");
     println("            zzInput = YYEOF;");
     println("            break zzForAction;");
     println("          }");
     println("          else {");
+    if (scanner.maxTokenLength() > 0) {
+      println("            if (zzCurrentPosL - zzStartRead >= ZZ_MAX_TOKEN) {");
+      println("              zzScanError(ZZ_TOKEN_2BIG);");
+      println("            }");
+    }
     println("            // store back cached positions");
     println("            zzCurrentPos  = zzCurrentPosL;");
     println("            zzMarkedPos   = zzMarkedPosL;");
-    println("            boolean eof = zzRefill();");
+    println("            boolean eof = " + refillCall() + ";");
     println("            // get translated positions and possibly new buffer");
     println("            zzCurrentPosL  = zzCurrentPos;");
     println("            zzMarkedPosL   = zzMarkedPos;");
@@ -398,12 +438,318 @@ public final class Emitter {
     println("              break zzForAction;");
     println("            }");
     println("            else {");
-    println("              zzInput = Character.codePointAt(zzBufferL, zzCurrentPosL, zzEndReadL);");
-    println("              zzCurrentPosL += Character.charCount(zzInput);");
+    if (bmp) {
+      println("              zzInput = zzBufferL[zzCurrentPosL++];");
+    } else {
+      println(
+          "              zzInput = Character.codePointAt(zzBufferL, zzCurrentPosL, zzEndReadL);");
+      println("              zzCurrentPosL += Character.charCount(zzInput);");
+    }
     println("            }");
     println("          }");
   }
 
+  /**
+   * The call of the buffer refill method, counting calls and buffer growth for {@code %profile}.
+   */
+  private String refillCall() {
+    return scanner.lazyLines() ? "zzLineRefill()" : innerRefillCall();
+  }
+
+  /** The call of the buffer refill method that the {@code %lazylines} refill wraps. */
+  private String innerRefillCall() {
+    return scanner.profileOption() ? "zzProfileRefill()" : "zzRefill()";
+  }
+
+  /** The expression for the line of the matched text. */
+  private String yyline() {
+    return scanner.lazyLines() ? "yyline()" : "yyline";
+  }
+
+  /** The expression for the column of the matched text. */
+  private String yycolumn() {
+    return scanner.lazyLines() ? "yycolumn()" : "yycolumn";
+  }
+
+  /** Emits the counters, snapshot methods, and refill wrapper for {@code %profile}. */
+  private void emitProfile() {
+    if (!scanner.profileOption()) return;
+
+    println("");
+    println("  /** Number of DFA transitions taken. */");
+    println("  private long zzProfileSteps;");
+    println("");
+    println("  /** Number of times the input buffer has been refilled. */");
+    println("  private long zzProfileRefills;");
+    println("");
+    println("  /** Number of times the input buffer has been enlarged. */");
+    println("  private long zzProfileBufferGrowths;");
+    println("");
+    println(
+        "  /** Number of characters read beyond the end of a match, and read again afterwards. */");
+    println("  private long zzProfileRescanned;");
+    println("");
+    println("  /** Number of backward scans for general lookahead. */");
+    println("  private long zzProfileLookaheadPasses;");
+    println("");
+    println("  /** Number of matches per action switch label. */");
+    println("  private long[] zzProfileActions = new long[" + (actionTable.size() + 1) + "];");
+    println("");
+    println("  /**");
+    println("   * Returns a snapshot of the profiling counters of this scanner.");
+    println("   *");
+    println("   * <p>The counters are {@code steps} (DFA transitions), {@code refills}, {@code");
+    println("   * bufferGrowths}, {@code rescanned} (characters read beyond the end of a match),");
+    println("   * {@code lookaheadPasses} (backward scans for general lookahead), and one");
+    println("   * {@code action:line <n>} counter per action with the number of matches for the");
+    println("   * rule at line {@code n} of the specification. Rules with the same action code");
+    println("   * share one counter {@code action:line <n>,<m>,...}.");
+    println("   *");
+    println("   * @return a new map from counter name to value, in the order described above.");
+    println("   */");
+    println("  " + visibility + " java.util.Map<String, Long> yyprofile() {");
+    println(
+        "    java.util.Map<String, Long> result = new java.util.LinkedHashMap<String, Long>();");
+    println("    result.put(\"steps\", zzProfileSteps);");
+    println("    result.put(\"refills\", zzProfileRefills);");
+    println("    result.put(\"bufferGrowths\", zzProfileBufferGrowths);");
+    println("    result.put(\"rescanned\", zzProfileRescanned);");
+    println("    result.put(\"lookaheadPasses\", zzProfileLookaheadPasses);");
+    // actions in specification order; rules with equal actions share a switch label, so its
+    // counter is named after the lines of all these rules
+    Map<Integer, String> counters = new TreeMap<>();
+    Map<Integer, TreeSet<Integer>> lines = new TreeMap<>();
+    for (Map.Entry<Action, Integer> entry : actionTable.entrySet()) {
+      Action action = entry.getKey();
+      TreeSet<Integer> shared = new TreeSet<>();
+      shared.add(action.priority);
+      for (Action a : scanner.actions()) {
+        if (a.equals(action)) shared.add(a.priority);
+      }
+      int first = shared.first();
+      String counter = "zzProfileActions[" + entry.getValue() + "]";
+      String previous = counters.get(first);
+      counters.put(first, previous == null ? counter : previous + " + " + counter);
+      lines.computeIfAbsent(first, k -> new TreeSet<>()).addAll(shared);
+    }
+    for (Map.Entry<Integer, String> entry : counters.entrySet()) {
+      StringBuilder name = new StringBuilder();
+      for (int line : lines.get(entry.getKey())) {
+        if (line == Integer.MAX_VALUE) {
+          name.append(name.length() == 0 ? "default" : ",default");
+        } else {
+          name.append(name.length() == 0 ? "line " : ",").append(line);
+        }
+      }
+      println("    result.put(\"action:" + name + "\", " + entry.getValue() + ");");
+    }
+    println("    return result;");
+    println("  }");
+    println("");
+    println("  /**");
+    println("   * Resets all profiling counters of this scanner to zero.");
+    println("   */");
+    println("  " + visibility + " void yyprofileReset() {");
+    println("    zzProfileSteps = 0;");
+    println("    zzProfileRefills = 0;");
+    println("    zzProfileBufferGrowths = 0;");
+    println("    zzProfileRescanned = 0;");
+    println("    zzProfileLookaheadPasses = 0;");
+    println("    java.util.Arrays.fill(zzProfileActions, 0);");
+    println("  }");
+    println("");
+    println("  /**");
+    println("   * Refills the input buffer, counting refills and buffer growth.");
+    println("   *");
+    println("   * @return {@code false} iff there was new input.");
+    println("   * @exception java.io.IOException  if any I/O-Error occurs");
+    println("   */");
+    println("  private boolean zzProfileRefill() throws java.io.IOException {");
+    println("    int length = zzBuffer.length;");
+    println("    zzProfileRefills++;");
+    println("    boolean eof = zzRefill();");
+    println("    if (zzBuffer.length > length) zzProfileBufferGrowths++;");
+    println("    return eof;");
+    println("  }");
+  }
+
+  /**
+   * Emits the line index, the refill wrapper that builds it, and the accessors {@code yyline()} and
+   * {@code yycolumn()} for {@code %lazylines}.
+   */
+  private void emitLazyLines() {
+    if (!scanner.lazyLines()) return;
+
+    println("");
+    println("  /**");
+    println("   * Offsets of the line starts in the input read so far, shifted left by one.");
+    println("   * The lowest bit is set if the line terminator was \\r\\n.");
+    println("   */");
+    println("  private long[] zzLineStarts = new long[16];");
+    println("");
+    println("  /** Number of entries in zzLineStarts. */");
+    println("  private int zzLineStartCount;");
+    println("");
+    println("  /** Offset up to which the input has been indexed. */");
+    println("  private long zzLinesEnd;");
+    println("");
+    println("  /** Whether the last indexed character was \\r. */");
+    println("  private boolean zzLinesR;");
+    println("");
+    println("  /**");
+    println("   * Refills the input buffer and adds the line starts in the new input to the");
+    println("   * line index.");
+    println("   *");
+    println("   * @return {@code false} iff there was new input.");
+    println("   * @exception java.io.IOException  if any I/O-Error occurs");
+    println("   */");
+    println("  private boolean zzLineRefill() throws java.io.IOException {");
+    println("    int zzOld = zzEndRead - zzStartRead;");
+    println("    if (zzLinesEnd != yychar + zzOld) {");
+    println("      // the scanner has been reset");
+    println("      zzLineStartCount = 0;");
+    println("      zzLinesR = false;");
+    println("    }");
+    println("    boolean eof = " + innerRefillCall() + ";");
+    println("    // offset of the start of the buffer");
+    println("    long zzBase = yychar - zzStartRead;");
+    println("    for (int zzPos = zzStartRead + zzOld; zzPos < zzEndRead; zzPos++) {");
+    println("      switch (zzBuffer[zzPos]) {");
+    println("      case '\\n':");
+    println("        if (zzLinesR) {");
+    println("          // \\r\\n is one line terminator");
+    println("          zzLineStarts[zzLineStartCount - 1] = (zzBase + zzPos + 1) << 1 | 1;");
+    println("          zzLinesR = false;");
+    println("          continue;");
+    println("        }");
+    println("        break;");
+    println("      case '\\r':");
+    println("      case '\\u000B':");
+    println("      case '\\u000C':");
+    println("      case '\\u0085':");
+    println("      case '\\u2028':");
+    println("      case '\\u2029':");
+    println("        break;");
+    println("      default:");
+    println("        zzLinesR = false;");
+    println("        continue;");
+    println("      }");
+    println("      if (zzLineStartCount == zzLineStarts.length) {");
+    println("        zzLineStarts = java.util.Arrays.copyOf(zzLineStarts, 2 * zzLineStartCount);");
+    println("      }");
+    println("      zzLineStarts[zzLineStartCount++] = (zzBase + zzPos + 1) << 1;");
+    println("      zzLinesR = zzBuffer[zzPos] == '\\r';");
+    println("    }");
+    println("    zzLinesEnd = yychar + zzEndRead - zzStartRead;");
+    println("    return eof;");
+    println("  }");
+    println("");
+    println("  /**");
+    println("   * Returns the number of line starts up to an offset in the input.");
+    println("   */");
+    println("  private int zzLineOf(long offset) {");
+    println("    long key = (offset + 1) << 1;");
+    println("    int lo = 0;");
+    println("    int hi = zzLineStartCount;");
+    println("    while (lo < hi) {");
+    println("      int mid = (lo + hi) >>> 1;");
+    println("      if (zzLineStarts[mid] < key) lo = mid + 1;");
+    println("      else hi = mid;");
+    println("    }");
+    println("    return lo;");
+    println("  }");
+    println("");
+    println("  /**");
+    println(
+        "   * Returns the line of the start of the matched text, computed from the line index.");
+    println("   *");
+    println("   * @return the number of line terminators before the matched text.");
+    println("   */");
+    println("  " + visibility + " final int yyline() {");
+    println("    return zzLineOf(yychar);");
+    println("  }");
+    println("");
+    println("  /**");
+    println(
+        "   * Returns the column of the start of the matched text, computed from the line index.");
+    println("   *");
+    println(
+        "   * @return the number of characters from the last line terminator up to the matched");
+    println("   *         text.");
+    println("   */");
+    println("  " + visibility + " final int yycolumn() {");
+    println("    int line = zzLineOf(yychar);");
+    println("    if (line < zzLineStartCount && zzLineStarts[line] == ((yychar + 1) << 1 | 1)) {");
+    println("      // between \\r and \\n");
+    println("      return 0;");
+    println("    }");
+    println("    long start = line == 0 ? 0 : zzLineStarts[line - 1] >> 1;");
+    println("    return (int) (yychar - start);");
+    println("  }");
+  }
+
+  /**
+   * Emits the methods the skeleton uses to obtain and give up input buffers, from the buffer pool
+   * of {@code %bufferpool} if there is one.
+   */
+  private void emitBufferPool() {
+    String pool = scanner.bufferPool();
+
+    println("");
+    println("  /**");
+    println("   * Returns a new input buffer.");
+    println("   *");
+    println("   * @param length the minimum length of the buffer");
+    println("   */");
+    println("  private static char[] zzAcquireBuffer(int length) {");
+    if (pool == null) {
+      println("    return new char[length];");
+    } else {
+      println("    return " + pool + ".acquire(length);");
+    }
+    println("  }");
+    println("");
+    println("  /**");
+    println("   * Gives up an input buffer that the scanner does not use any more.");
+    println("   *");
+    println("   * @param buffer the buffer");
+    println("   */");
+    println("  private static void zzReleaseBuffer(char[] buffer) {");
+    if (pool != null) {
+      println("    if (buffer.length > 0) {");
+      println("      " + pool + ".release(buffer);");
+      println("    }");
+    }
+    println("  }");
+    println("");
+    println("  /**");
+    if (pool == null) {
+      println("   * Called when the scanner is closed. The input buffer is kept for yyreset.");
+    } else {
+      println("   * Called when the scanner is closed. Gives the input buffer back to the pool,");
+      println("   * yyreset acquires a new one.");
+    }
+    println("   */");
+    println("  private void zzCloseBuffer() {");
+    if (pool != null) {
+      println("    zzReleaseBuffer(zzBuffer);");
+      println("    zzBuffer = new char[0];");
+      println("    zzStartRead = 0;");
+      println("    zzMarkedPos = 0;");
+      println("    zzCurrentPos = 0;");
+      println("    zzEndRead = 0;");
+      println("    zzFinalHighSurrogate = 0;");
+    }
+    println("  }");
+  }
+
+  /** Counts the characters the scanner has read beyond the end of the current match. */
+  private void emitProfileRescan() {
+    if (scanner.profileOption()) {
+      println("      zzProfileRescanned += zzCurrentPosL - zzMarkedPosL;");
+    }
+  }
+
   public static String sourceFileString(File file) {
     String path = FileUtils.getRelativePath(Options.getRootDirectory(), file);
     if (File.separatorChar == '\\') {
@@ -509,38 +855,40 @@ public final class Emitter {
   }
 
   private void emitDynamicInit() {
-    int count = 0;
-    int value = dfa.table(0, 0);
-
-    println("  /**");
-    println("   * The transition table of the DFA");
-    println("   */");
-
-    CountEmitter e = new CountEmitter("Trans");
-    e.setValTranslation(+1); // allow vals in [-1, 0xFFFE]
-    e.emitInit();
+    int numRows = 0;
+    for (int i = 0; i < dfa.numStates(); i++) {
+      if (!rowKilled[i]) numRows++;
+    }
 
+    int[] trans = new int[numRows * numCols];
+    int n = 0;
     for (int i = 0; i < dfa.numStates(); i++) {
       if (!rowKilled[i]) {
         for (int c = 0; c < dfa.numInput(); c++) {
           if (!colKilled[c]) {
-            if (dfa.table(i, c) == value) {
-              count++;
-            } else {
-              e.emit(count, value);
-
-              count = 1;
-              value = dfa.table(i, c);
-            }
+            trans[n++] = dfa.table(i, c);
           }
         }
       }
     }
 
-    e.emit(count, value);
-    e.emitUnpack();
+    println("  /**");
+    println("   * The transition table of the DFA");
+    println("   */");
 
-    println(e.toString());
+    if (tableResource != null) {
+      print(tableResource.declare("Trans", trans));
+      transType = tableResource.elementType("Trans");
+    } else {
+      CountEmitter e = new CountEmitter("Trans");
+      e.setValTranslation(+1); // allow vals in [-1, 0xFFFE]
+      e.emitInit();
+      e.emitCountValueString(trans);
+      e.emitUnpack();
+      transType = e.getElementType();
+
+      println(e.toString());
+    }
   }
 
   private void emitCharMapArrayUnPacked() {
@@ -578,20 +926,11 @@ public final class Emitter {
   }
 
   /**
-   * Performs an in-place update to map the colMap translation over the char classes in the
-   * second-level cmap table.
-   */
-  private void mapColMap(int[] blocks) {
-    for (int i = 0; i < blocks.length; i++) {
-      blocks[i] = colMap[blocks[i]];
-    }
-  }
-
-  /**
-   * Emits two-level character translation tables. The translation is from raw input codepoint to
-   * the column in the generated DFA table.
+   * Emits the character translation tables. The translation is from raw input codepoint to the
+   * column in the generated DFA table.
    *
-   * <p>For maxCharCode < 256, a single-level unpacked array is used instead.
+   * <p>For maxCharCode < 256, a single-level unpacked array is used. Otherwise the {@link
+   * CharMapLayout} decides the number of levels and the block sizes.
    */
   private void emitCharMapTables() {
     CharClasses cl = parser.getCharClasses();
@@ -599,78 +938,122 @@ public final class Emitter {
     if (cl.getMaxCharCode() < 256) {
       emitCharMapArrayUnPacked();
     } else {
-      Pair<int[], int[]> tables = cl.getTables();
-      mapColMap(tables.snd);
+      int maxCharCode = bmp ? Math.min(cl.getMaxCharCode(), BMP_MAX) : cl.getMaxCharCode();
+      charMapLayout = CharMapLayout.choose(cl, colMap, maxCharCode);
+      Out.println(
+          ErrorMessages.get(
+              ErrorMessages.CMAP_LAYOUT, charMapLayout.description(), charMapLayout.size()));
+
+      if (charMapLayout.levels == 1) {
+        println("");
+        println("  /**");
+        println("   * Translates characters to character classes");
+        println("   */");
+        emitCountValueTable("cmap", charMapLayout.top);
+        return;
+      }
 
       println("");
       println("  /**");
       println("   * Top-level table for translating characters to character classes");
       println("   */");
-      CountEmitter e = new CountEmitter("cmap_top");
-      e.emitInit();
-      e.emitCountValueString(tables.fst);
-      e.emitUnpack();
-      println(e.toString());
+      emitCountValueTable("cmap_top", charMapLayout.top);
+
+      if (charMapLayout.levels == 3) {
+        println("");
+        println("  /**");
+        println("   * Mid-level tables for translating characters to character classes");
+        println("   */");
+        emitCountValueTable("cmap_mid", charMapLayout.mid);
+      }
 
       println("");
       println("  /**");
       println("   * Second-level tables for translating characters to character classes");
       println("   */");
-      e = new CountEmitter("cmap_blocks");
-      e.emitInit();
-      e.emitCountValueString(tables.snd);
-      e.emitUnpack();
-      println(e.toString());
+      emitCountValueTable("cmap_blocks", charMapLayout.blocks);
     }
   }
 
+  /**
+   * Emits a table encoded as count/value string, or only its declaration if the tables go to a
+   * {@link TableResource}.
+   *
+   * @param name the name of the table (mixed case, no yy prefix)
+   * @param values the table, values in [0, 0xFFFF] unless there is a table resource
+   * @return the element type of the table
+   */
+  private String emitCountValueTable(String name, int[] values) {
+    if (tableResource != null) {
+      print(tableResource.declare(name, values));
+      return tableResource.elementType(name);
+    }
+
+    CountEmitter e = new CountEmitter(name);
+    e.emitInit();
+    e.emitCountValueString(values);
+    e.emitUnpack();
+    println(e.toString());
+    return e.getElementType();
+  }
+
   private void emitRowMapArray() {
     println("");
     println("  /**");
     println("   * Translates a state to a row index in the transition table");
     println("   */");
 
-    HiLowEmitter e = new HiLowEmitter("RowMap");
-    e.emitInit();
+    int[] rows = new int[dfa.numStates()];
     for (int i = 0; i < dfa.numStates(); i++) {
-      e.emit(rowMap[i] * numCols);
+      rows[i] = rowMap[i] * numCols;
+    }
+
+    if (tableResource != null) {
+      print(tableResource.declare("RowMap", rows));
+      rowMapType = tableResource.elementType("RowMap");
+    } else {
+      HiLowEmitter e = new HiLowEmitter("RowMap");
+      e.emitInit();
+      for (int row : rows) {
+        e.emit(row);
+      }
+      e.emitUnpack();
+      rowMapType = e.getElementType();
+      println(e.toString());
     }
-    e.emitUnpack();
-    println(e.toString());
   }
 
   private void emitAttributes() {
-    // TODO(lsf): refactor to use CountEmitter.emitCountValueString
     println("  /**");
     println("   * ZZ_ATTRIBUTE[aState] contains the attributes of state {@code aState}");
     println("   */");
 
-    CountEmitter e = new CountEmitter("Attribute");
-    e.emitInit();
-
-    int count = 1;
-    int value = 0;
-    if (dfa.isFinal(0)) value = FINAL;
-    if (!isTransition[0]) value |= NOLOOK;
+    int[] attributes = new int[dfa.numStates()];
+    for (int i = 0; i < dfa.numStates(); i++) {
+      if (dfa.isFinal(i)) attributes[i] = FINAL;
+      if (!isTransition[i]) attributes[i] |= NOLOOK;
+    }
 
-    for (int i = 1; i < dfa.numStates(); i++) {
-      int attribute = 0;
-      if (dfa.isFinal(i)) attribute = FINAL;
-      if (!isTransition[i]) attribute |= NOLOOK;
+    attributeType = emitCountValueTable("Attribute", attributes);
+  }
 
-      if (value == attribute) {
-        count++;
-      } else {
-        e.emit(count, value);
-        count = 1;
-        value = attribute;
-      }
+  /**
+   * Writes the table resource next to the generated scanner and emits the code that loads it, if
+   * the specification asks for {@code %tableresource}.
+   */
+  private void emitTableResource() {
+    if (tableResource == null) return;
+
+    File file = normalize(tableResource.resourceName(), inputFile);
+    try {
+      tableResource.write(file);
+    } catch (IOException e) {
+      throw new GeneratorException(e);
     }
 
-    e.emit(count, value);
-    e.emitUnpack();
-
-    println(e.toString());
+    println();
+    print(tableResource.loader());
+    println();
   }
 
   private void emitClassCode() {
@@ -684,11 +1067,13 @@ public final class Emitter {
       println();
       println("  /* CUP2 code: */");
       println("  private <T> ScannerToken<T> token(Terminal terminal, T value) {");
-      println("    return new ScannerToken<T>(terminal, value, yyline, yycolumn);");
+      println(
+          "    return new ScannerToken<T>(terminal, value, " + yyline() + ", " + yycolumn() + ");");
       println("  }");
       println();
       println("  private ScannerToken<Object> token(Terminal terminal) {");
-      println("    return new ScannerToken<Object>(terminal, yyline, yycolumn);");
+      println(
+          "    return new ScannerToken<Object>(terminal, " + yyline() + ", " + yycolumn() + ");");
       println("  }");
       println();
     }
@@ -813,9 +1198,9 @@ public final class Emitter {
 
     skel.emitNext();
 
-    println("    int [] zzTransL = ZZ_TRANS;");
-    println("    int [] zzRowMapL = ZZ_ROWMAP;");
-    println("    int [] zzAttrL = ZZ_ATTRIBUTE;");
+    println("    " + transType + " [] zzTransL = ZZ_TRANS;");
+    println("    " + rowMapType + " [] zzRowMapL = ZZ_ROWMAP;");
+    println("    " + attributeType + " [] zzAttrL = ZZ_ATTRIBUTE;");
 
     skel.emitNext();
 
@@ -824,15 +1209,20 @@ public final class Emitter {
       println("");
     }
 
-    if (scanner.lineCount() || scanner.columnCount()) {
+    if ((scanner.lineCount() || scanner.columnCount()) && !scanner.lazyLines()) {
       println("      boolean zzR = false;");
       println("      int zzCh;");
       println("      int zzCharCount;");
       println("      for (zzCurrentPosL = zzStartRead  ;");
       println("           zzCurrentPosL < zzMarkedPosL ;");
       println("           zzCurrentPosL += zzCharCount ) {");
-      println("        zzCh = Character.codePointAt(zzBufferL, zzCurrentPosL, zzMarkedPosL);");
-      println("        zzCharCount = Character.charCount(zzCh);");
+      if (bmp) {
+        println("        zzCh = zzBufferL[zzCurrentPosL];");
+        println("        zzCharCount = 1;");
+      } else {
+        println("        zzCh = Character.codePointAt(zzBufferL, zzCurrentPosL, zzMarkedPosL);");
+        println("        zzCharCount = Character.charCount(zzCh);");
+      }
       println("        switch (zzCh) {");
       println("        case '\\u000B':  // fall through");
       println("        case '\\u000C':  // fall through");
@@ -873,7 +1263,7 @@ public final class Emitter {
         println("        else if (zzAtEOF)");
         println("          zzPeek = false;");
         println("        else {");
-        println("          boolean eof = zzRefill();");
+        println("          boolean eof = " + refillCall() + ";");
         println("          zzEndReadL = zzEndRead;");
         println("          zzMarkedPosL = zzMarkedPos;");
         println("          zzBufferL = zzBuffer;");
@@ -907,7 +1297,7 @@ public final class Emitter {
       println("          else if (zzAtEOF)");
       println("            zzAtBOL = false;");
       println("          else {");
-      println("            boolean eof = zzRefill();");
+      println("            boolean eof = " + refillCall() + ";");
       println("            zzMarkedPosL = zzMarkedPos;");
       println("            zzEndReadL = zzEndRead;");
       println("            zzBufferL = zzBuffer;");
@@ -951,23 +1341,19 @@ public final class Emitter {
     println("   * Translates raw input code points to DFA table row");
     println("   */");
     println("  private static int zzCMap(int input) {");
-    if (parser.getCharClasses().getMaxCharCode() <= 0xFF) {
+    if (charMapLayout == null) {
       println("    return ZZ_CMAP[input];");
     } else {
-      println("    int offset = input & " + (CMapBlock.BLOCK_SIZE - 1) + ";");
-      println(
-          "    return offset == input"
-              + " ?"
-              + " ZZ_CMAP_BLOCKS[offset]"
-              + " :"
-              + " ZZ_CMAP_BLOCKS[ZZ_CMAP_TOP[input >> "
-              + CMapBlock.BLOCK_BITS
-              + "] | offset];");
+      if (charMapLayout.levels > 1) {
+        println("    int offset = input & " + ((1 << charMapLayout.blockBits) - 1) + ";");
+      }
+      println("    return " + charMapLayout.lookup() + ";");
     }
     println("  }");
   }
 
   private void emitGetRowMapNext() {
+    if (scanner.profileOption()) println("          zzProfileSteps++;");
     println("          int zzNext = zzTransL[ zzRowMapL[zzState] + zzCMap(zzInput) ];");
     println("          if (zzNext == " + DFA.NO_TARGET + ") break zzForAction;");
     println("          zzState = zzNext;");
@@ -1026,17 +1412,13 @@ public final class Emitter {
   /** emitActionTable. */
   private void emitActionTable() {
     int lastAction = 1;
-    int count = 0;
-    int value = 0;
 
     println("  /**");
     println("   * Translates DFA states to action switch labels.");
     println("   */");
-    CountEmitter e = new CountEmitter("Action");
-    e.emitInit();
 
+    int[] actions = new int[dfa.numStates()];
     for (int i = 0; i < dfa.numStates(); i++) {
-      int newVal = 0;
       if (dfa.isFinal(i)) {
         Action action = dfa.action(i);
         if (action.isEmittable()) {
@@ -1045,27 +1427,220 @@ public final class Emitter {
             stored = lastAction++;
             actionTable.put(action, stored);
           }
-          newVal = stored;
+          actions[i] = stored;
         }
       }
+    }
 
-      if (value == newVal) {
-        count++;
-      } else {
-        if (count > 0) e.emit(count, value);
-        count = 1;
-        value = newVal;
+    emitCountValueTable("Action", actions);
+  }
+
+  /**
+   * Assigns switch labels to the actions of the keyword rules and emits the perfect hash table of
+   * the keywords ({@code %keywordhash}).
+   */
+  private void emitKeywordTable() {
+    Keywords keywords = scanner.keywords();
+    if (keywords == null || keywords.isEmpty()) return;
+
+    List<KeywordHash.Entry> entries = new ArrayList<>();
+    for (Keywords.Keyword k : keywords.keywords()) {
+      Integer match = actionTable.get(k.match);
+      if (match == null) continue; // the matching rule does not survive in the DFA
+      Integer action = actionTable.get(k.action);
+      if (action == null) {
+        action = actionTable.size() + 1;
+        actionTable.put(k.action, action);
       }
+      entries.add(new KeywordHash.Entry(match, k.text, k.caseless, action));
     }
+    if (entries.isEmpty()) return;
 
-    if (count > 0) e.emit(count, value);
+    keywordHash = new KeywordHash(entries);
+    KeywordHash.Entry[] table = keywordHash.table;
 
-    e.emitUnpack();
-    println(e.toString());
+    println("  /**");
+    println("   * Perfect hash table of the keywords (hash and displace): the displacement");
+    println("   * of each bucket, the keyword (folded if caseless),");
+    println("   * the switch label of the rule that matches it (negated if caseless),");
+    println("   * and the switch label of the keyword rule.");
+    println("   */");
+    println(
+        "  private static final int ZZ_KEYWORD_BUCKET_SHIFT = "
+            + (32 - keywordHash.bucketBits)
+            + ";");
+    println("  private static final int ZZ_KEYWORD_SHIFT = " + (32 - keywordHash.bits) + ";");
+    println("  private static final int ZZ_KEYWORD_LENGTH = " + keywords.maxLength() + ";");
+    println();
+
+    int[] displacement = keywordHash.displacement;
+    print("  private static final int[] ZZ_KEYWORD_DISPLACEMENT = {");
+    for (int i = 0; i < displacement.length; i++) {
+      print(i % 16 == 0 ? "\n    " : " ");
+      print(displacement[i]);
+      if (i < displacement.length - 1) print(",");
+    }
+    println();
+    println("  };");
+    println();
+
+    print("  private static final String[] ZZ_KEYWORD_TEXT = {");
+    for (int i = 0; i < table.length; i++) {
+      print(i % 8 == 0 ? "\n    " : " ");
+      print(table[i] == null ? "null" : "\"" + javaString(table[i].text) + "\"");
+      if (i < table.length - 1) print(",");
+    }
+    println();
+    println("  };");
+    println();
+
+    print("  private static final int[] ZZ_KEYWORD_MATCH = {");
+    for (int i = 0; i < table.length; i++) {
+      print(i % 16 == 0 ? "\n    " : " ");
+      print(table[i] == null ? 0 : table[i].caseless ? -table[i].match : table[i].match);
+      if (i < table.length - 1) print(",");
+    }
+    println();
+    println("  };");
+    println();
+
+    print("  private static final int[] ZZ_KEYWORD_ACTION = {");
+    for (int i = 0; i < table.length; i++) {
+      print(i % 16 == 0 ? "\n    " : " ");
+      print(table[i] == null ? 0 : table[i].action);
+      if (i < table.length - 1) print(",");
+    }
+    println();
+    println("  };");
+  }
+
+  /** Escapes a string for a Java string literal, with unicode escapes for non-ASCII characters. */
+  private static String javaString(String s) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') result.append('\\').append(c);
+      else if (c == '\n') result.append("\\n");
+      else if (c == '\r') result.append("\\r");
+      else if (c >= ' ' && c < 0x7f) result.append(c);
+      else result.append(String.format("\\u%04x", (int) c));
+    }
+    return result.toString();
+  }
+
+  /**
+   * Emits the method that replaces the switch label of a rule matching a keyword by the label of
+   * the keyword rule ({@code %keywordhash}).
+   */
+  private void emitKeywordLookup() {
+    if (keywordHash == null) return;
+
+    boolean exact = false;
+    boolean caseless = false;
+    TreeSet<Integer> matches = new TreeSet<>();
+    for (KeywordHash.Entry e : keywordHash.table) {
+      if (e == null) continue;
+      if (e.caseless) caseless = true;
+      else exact = true;
+      matches.add(e.match);
+    }
+
+    println("");
+    println("  /**");
+    println("   * Returns the action switch label for the current match: the label of the");
+    println("   * keyword rule if the text matched by the rule with label {@code zzLabel}");
+    println("   * is a keyword, {@code zzLabel} otherwise.");
+    println("   */");
+    println("  private int zzKeyword(int zzLabel) {");
+    println("    switch (zzLabel) {");
+    for (int match : matches) println("      case " + match + ":");
+    println("        break;");
+    println("      default:");
+    println("        return zzLabel;");
+    println("    }");
+    println("    if (zzMarkedPos - zzStartRead > ZZ_KEYWORD_LENGTH) return zzLabel;");
+    println("    char[] zzBufferL = zzBuffer;");
+    if (exact) println("    int zzHash = zzLabel;");
+    if (caseless) println("    int zzHashFold = zzLabel;");
+    println("    for (int zzPos = zzStartRead; zzPos < zzMarkedPos; zzPos++) {");
+    if (exact) println("      zzHash = (zzHash ^ zzBufferL[zzPos]) * " + KeywordHash.MIX + ";");
+    if (caseless)
+      println(
+          "      zzHashFold = (zzHashFold ^ zzFold(zzBufferL[zzPos])) * " + KeywordHash.MIX + ";");
+    println("    }");
+    if (exact) {
+      println("    int zzSlot = zzKeywordSlot(zzHash);");
+      println("    if (ZZ_KEYWORD_MATCH[zzSlot] == zzLabel");
+      println("        && zzIsKeyword(ZZ_KEYWORD_TEXT[zzSlot], false)) {");
+      println("      return ZZ_KEYWORD_ACTION[zzSlot];");
+      println("    }");
+    }
+    if (caseless) {
+      println("    " + (exact ? "" : "int ") + "zzSlot = zzKeywordSlot(zzHashFold);");
+      println("    if (ZZ_KEYWORD_MATCH[zzSlot] == -zzLabel");
+      println("        && zzIsKeyword(ZZ_KEYWORD_TEXT[zzSlot], true)) {");
+      println("      return ZZ_KEYWORD_ACTION[zzSlot];");
+      println("    }");
+    }
+    println("    return zzLabel;");
+    println("  }");
+    println("");
+    println("  /** Returns the slot of a keyword in the perfect hash table. */");
+    println("  private static int zzKeywordSlot(int zzHash) {");
+    println(
+        "    int zzDisplacement = ZZ_KEYWORD_DISPLACEMENT[zzHash >>> ZZ_KEYWORD_BUCKET_SHIFT];");
+    println(
+        "    return ((zzHash ^ zzDisplacement) * " + KeywordHash.MIX + ") >>> ZZ_KEYWORD_SHIFT;");
+    println("  }");
+    println("");
+    println("  /**");
+    println("   * Compares the current match with a keyword.");
+    println("   *");
+    println("   * @param keyword the keyword, folded if {@code caseless}");
+    println("   * @param caseless whether to fold the matched text");
+    println("   */");
+    println("  private boolean zzIsKeyword(String keyword, boolean caseless) {");
+    println("    if (keyword.length() != zzMarkedPos - zzStartRead) return false;");
+    println("    for (int i = 0; i < keyword.length(); i++) {");
+    println("      char c = zzBuffer[zzStartRead + i];");
+    if (caseless) {
+      println("      if ((caseless ? zzFold(c) : c) != keyword.charAt(i)) return false;");
+    } else {
+      println("      if (c != keyword.charAt(i)) return false;");
+    }
+    println("    }");
+    println("    return true;");
+    println("  }");
+
+    if (!caseless) return;
+
+    Map<Character, List<Character>> sets = new TreeMap<>();
+    for (Map.Entry<Character, Character> f : scanner.keywords().fold().entrySet())
+      sets.computeIfAbsent(f.getValue(), k -> new ArrayList<>()).add(f.getKey());
+
+    println("");
+    println("  /**");
+    println("   * Maps the characters of the caseless keywords to the smallest character");
+    println("   * of their case set.");
+    println("   */");
+    println("  private static int zzFold(char c) {");
+    println("    switch (c) {");
+    for (Map.Entry<Character, List<Character>> set : sets.entrySet()) {
+      for (char c : set.getValue()) println("      case " + (int) c + ":");
+      println("        return " + (int) set.getKey() + ";");
+    }
+    println("      default:");
+    println("        return c;");
+    println("    }");
+    println("  }");
   }
 
   private void emitActions() {
-    println("        switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {");
+    if (keywordHash != null) {
+      println("        switch (zzKeyword(zzAction < 0 ? zzAction : ZZ_ACTION[zzAction])) {");
+    } else {
+      println("        switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {");
+    }
 
     int i = actionTable.size() + 1;
 
@@ -1074,6 +1649,7 @@ public final class Emitter {
       int label = entry.getValue();
 
       println("          case " + label + ":");
+      if (scanner.profileOption()) println("            zzProfileActions[" + label + "]++;");
 
       if (action.lookAhead() == Action.FIXED_BASE) {
         println("            // lookahead expression with fixed base length");
@@ -1095,6 +1671,7 @@ public final class Emitter {
 
       if (action.lookAhead() == Action.GENERAL_LOOK) {
         println("            // general lookahead, find correct zzMarkedPos");
+        if (scanner.profileOption()) println("            zzProfileLookaheadPasses++;");
         println("            { int zzFState = " + dfa.entryState(action.getEntryState()) + ";");
         println("              int zzFPos = zzStartRead;");
         println("              if (zzFin.length <= zzBufferL.length) {");
@@ -1103,8 +1680,13 @@ public final class Emitter {
         println("              boolean zzFinL[] = zzFin;");
         println("              while (zzFState != -1 && zzFPos < zzMarkedPos) {");
         println("                zzFinL[zzFPos] = ((zzAttrL[zzFState] & 1) == 1);");
-        println("                zzInput = Character.codePointAt(zzBufferL, zzFPos, zzMarkedPos);");
-        println("                zzFPos += Character.charCount(zzInput);");
+        if (bmp) {
+          println("                zzInput = zzBufferL[zzFPos++];");
+        } else {
+          println(
+              "                zzInput = Character.codePointAt(zzBufferL, zzFPos, zzMarkedPos);");
+          println("                zzFPos += Character.charCount(zzInput);");
+        }
         println("                zzFState = zzTransL[ zzRowMapL[zzFState] + zzCMap(zzInput) ];");
         println("              }");
         println("              if (zzFState != -1) {");
@@ -1117,9 +1699,14 @@ public final class Emitter {
         println("              zzFState = " + dfa.entryState(action.getEntryState() + 1) + ";");
         println("              zzFPos = zzMarkedPos;");
         println("              while (!zzFinL[zzFPos] || (zzAttrL[zzFState] & 1) != 1) {");
-        println(
-            "                zzInput = Character.codePointBefore(zzBufferL, zzFPos, zzStartRead);");
-        println("                zzFPos -= Character.charCount(zzInput);");
+        if (bmp) {
+          println("                zzInput = zzBufferL[--zzFPos];");
+        } else {
+          println(
+              "                zzInput = Character.codePointBefore(zzBufferL, zzFPos,"
+                  + " zzStartRead);");
+          println("                zzFPos -= Character.charCount(zzInput);");
+        }
         println("                zzFState = zzTransL[ zzRowMapL[zzFState] + zzCMap(zzInput) ];");
         println("              };");
         println("              zzMarkedPos = zzFPos;");
@@ -1128,8 +1715,8 @@ public final class Emitter {
 
       if (scanner.debugOption()) {
         print("            System.out.println(");
-        if (scanner.lineCount()) print("\"line: \"+(yyline+1)+\" \"+");
-        if (scanner.columnCount()) print("\"col: \"+(yycolumn+1)+\" \"+");
+        if (scanner.lineCount()) print("\"line: \"+(" + yyline() + "+1)+\" \"+");
+        if (scanner.columnCount()) print("\"col: \"+(" + yycolumn() + "+1)+\" \"+");
         if (scanner.charCount()) print("\"char: \"+yychar+\" \"+");
         println("\"match: --\"+zzToPrintable(yytext())+\"--\");");
         print("            System.out.println(\"action [" + action.priority + "] { ");
@@ -1164,8 +1751,8 @@ public final class Emitter {
           println("            case " + name + ": {");
           if (scanner.debugOption()) {
             print("              System.out.println(");
-            if (scanner.lineCount()) print("\"line: \"+(yyline+1)+\" \"+");
-            if (scanner.columnCount()) print("\"col: \"+(yycolumn+1)+\" \"+");
+            if (scanner.lineCount()) print("\"line: \"+(" + yyline() + "+1)+\" \"+");
+            if (scanner.columnCount()) print("\"col: \"+(" + yycolumn() + "+1)+\" \"+");
             if (scanner.charCount()) print("\"char: \"+yychar+\" \"+");
             println("\"match: <<EOF>>\");");
             print("              System.out.println(\"action [" + action.priority + "] { ");
@@ -1187,8 +1774,8 @@ public final class Emitter {
       println("              {");
       if (scanner.debugOption()) {
         print("                System.out.println(");
-        if (scanner.lineCount()) print("\"line: \"+(yyline+1)+\" \"+");
-        if (scanner.columnCount()) print("\"col: \"+(yycolumn+1)+\" \"+");
+        if (scanner.lineCount()) print("\"line: \"+(" + yyline() + "+1)+\" \"+");
+        if (scanner.columnCount()) print("\"col: \"+(" + yycolumn() + "+1)+\" \"+");
         if (scanner.charCount()) print("\"char: \"+yychar+\" \"+");
         println("\"match: <<EOF>>\");");
         print("                System.out.println(\"action [" + defaultAction.priority + "] { ");
@@ -1305,14 +1892,14 @@ public final class Emitter {
     // as well.
 
     println("  /** Number of newlines encountered up to the start of the matched text. */");
-    if (!scanner.lineCount()) {
+    if (!scanner.lineCount() || scanner.lazyLines()) {
       println("  @SuppressWarnings(\"unused\")");
     }
     println("  private int yyline;");
     println();
     println(
         "  /** Number of characters from the last newline up to the start of the matched text. */");
-    if (!scanner.columnCount()) {
+    if (!scanner.columnCount() || scanner.lazyLines()) {
       println("  @SuppressWarnings(\"unused\")");
     }
     println("  private int yycolumn;");
@@ -1341,6 +1928,12 @@ public final class Emitter {
   public void emit() {
     String functionName = (scanner.functionName() != null) ? scanner.functionName() : "yylex";
 
+    // the line index is not part of the stream state saved by yypushStream
+    if (scanner.lazyLines() && Skeleton.contains("yypushStream")) {
+      Out.error(ErrorMessages.LAZYLINES_NESTED);
+      throw new GeneratorException();
+    }
+
     setupEOFCode();
 
     reduceColumns();
@@ -1354,6 +1947,12 @@ public final class Emitter {
 
     println("  private static final int ZZ_BUFFERSIZE = " + scanner.bufferSize() + ";");
 
+    if (scanner.maxTokenLength() > 0) {
+      println("");
+      println("  /** Maximum number of characters read for one token. */");
+      println("  private static final int ZZ_MAX_TOKEN = " + scanner.maxTokenLength() + ";");
+    }
+
     if (scanner.debugOption()) {
       println("  private static final String ZZ_NL = System.getProperty(\"line.separator\");");
     }
@@ -1366,6 +1965,8 @@ public final class Emitter {
 
     emitActionTable();
 
+    emitKeywordTable();
+
     reduceRows();
 
     emitRowMapArray();
@@ -1376,6 +1977,8 @@ public final class Emitter {
 
     emitAttributes();
 
+    emitTableResource();
+
     skel.emitNext();
 
     emitLookBuffer();
@@ -1408,6 +2011,14 @@ public final class Emitter {
       println("  }");
     }
 
+    emitProfile();
+
+    emitLazyLines();
+
+    emitBufferPool();
+
+    emitKeywordLookup();
+
     emitCMapAccess();
 
     skel.emitNext();
@@ -1426,6 +2037,8 @@ public final class Emitter {
 
     emitGetRowMapNext();
 
+    emitProfileRescan();
+
     skel.emitNext();
 
     emitEOFVal();
@@ -38,9 +38,10 @@ public class HiLowEmitter extends PackEmitter {
   public void emitUnpack() {
     // close last string chunk:
     println("\";");
+    String type = fixElementType();
     nl();
-    println("  private static int [] zzUnpack" + name + "() {");
-    println("    int [] result = new int[" + numEntries + "];");
+    println("  private static " + type + " [] zzUnpack" + name + "() {");
+    println("    " + type + " [] result = new " + type + "[" + numEntries + "];");
     println("    int offset = 0;");
 
     for (int i = 0; i < chunks; i++) {
@@ -59,13 +60,17 @@ public class HiLowEmitter extends PackEmitter {
 
     nl();
     println(
-        "  private static int zzUnpack" + name + "(String packed, int offset, int [] result) {");
+        "  private static int zzUnpack"
+            + name
+            + "(String packed, int offset, "
+            + type
+            + " [] result) {");
     println("    int i = 0;  /* index in packed string  */");
     println("    int j = offset;  /* index in unpacked array */");
     println("    int l = packed.length();");
     println("    while (i < l) {");
     println("      int high = packed.charAt(i++) << 16;");
-    println("      result[j++] = high | packed.charAt(i++);");
+    println("      result[j++] = " + cast(type, "high | packed.charAt(i++)") + ";");
     println("    }");
     println("    return j;");
     println("  }");
@@ -78,6 +83,7 @@ public class HiLowEmitter extends PackEmitter {
    */
   public void emit(int val) {
     numEntries += 1;
+    addValue(val);
     breaks();
     emitUC(val >> 16);
     emitUC(val & 0xFFFF);
@@ -0,0 +1,153 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.9.0-SNAPSHOT                                                    *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex.generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import jflex.exceptions.GeneratorException;
+
+/**
+ * Perfect hash table for the keywords of a scanner ({@code %keywordhash}).
+ *
+ * <p>An entry is keyed by the action switch label of the rule that matches the keyword in the DFA
+ * and by the keyword. The hash starts with the label and mixes in each character {@code c} of the
+ * text (folded for caseless keywords) by {@code h = (h ^ c) * MIX}. The upper bits of {@code h}
+ * select a bucket, and the displacement {@code d} of the bucket the slot: the upper bits of {@code
+ * (h ^ d) * MIX}. Displacements are chosen bucket by bucket, largest first, such that no two
+ * entries share a slot (hash and displace), so the scanner finds a keyword with one probe and one
+ * comparison, in a table with about twice as many slots as keywords.
+ *
+ * @version JFlex 1.9.0-SNAPSHOT
+ */
+final class KeywordHash {
+
+  /** A keyword with the switch labels of its actions. */
+  static final class Entry {
+    /** label of the rule that matches the keyword in the DFA */
+    final int match;
+    /** the keyword, folded if caseless */
+    final String text;
+
+    final boolean caseless;
+    /** label of the keyword rule */
+    final int action;
+
+    Entry(int match, String text, boolean caseless, int action) {
+      this.match = match;
+      this.text = text;
+      this.caseless = caseless;
+      this.action = action;
+    }
+  }
+
+  /** the multiplier of the hash function, as emitted */
+  static final String MIX = "0x9E3779B1";
+
+  private static final int MIX_VALUE = 0x9E3779B1;
+
+  /** number of displacements tried for a bucket before the table size is doubled */
+  private static final int MAX_DISPLACEMENT = 1 << 16;
+
+  /** log2 of the number of buckets */
+  final int bucketBits;
+
+  /** log2 of the table size */
+  final int bits;
+
+  /** the displacement of each bucket */
+  final int[] displacement;
+
+  /** the entries by slot, null for empty slots */
+  final Entry[] table;
+
+  /**
+   * Finds a perfect hash function for the entries.
+   *
+   * @param entries the keywords, no two with the same label, text and case sensitivity
+   */
+  KeywordHash(List<Entry> entries) {
+    int bits = 1;
+    while ((1 << bits) < 2 * entries.size()) bits++;
+
+    for (; bits < 24; bits++) {
+      int bucketBits = Math.max(1, bits - 3);
+      int[] displacement = new int[1 << bucketBits];
+      Entry[] table = place(entries, bits, bucketBits, displacement);
+      if (table != null) {
+        this.bits = bits;
+        this.bucketBits = bucketBits;
+        this.displacement = displacement;
+        this.table = table;
+        return;
+      }
+    }
+
+    throw new GeneratorException(new IllegalStateException("no perfect hash for keywords"));
+  }
+
+  /**
+   * Places the entries in a table with {@code 2^bits} slots.
+   *
+   * @param displacement filled with the displacement of each bucket
+   * @return the table, or null if some bucket cannot be placed
+   */
+  private static Entry[] place(List<Entry> entries, int bits, int bucketBits, int[] displacement) {
+    List<List<Entry>> buckets = new ArrayList<>();
+    for (int i = 0; i < displacement.length; i++) buckets.add(new ArrayList<>());
+    for (Entry e : entries) buckets.get(bucket(hash(e), bucketBits)).add(e);
+
+    Integer[] order = new Integer[displacement.length];
+    for (int i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(order, Comparator.comparingInt((Integer b) -> buckets.get(b).size()).reversed());
+
+    Entry[] table = new Entry[1 << bits];
+    int[] slots = new int[entries.size()];
+    for (int b : order) {
+      List<Entry> bucket = buckets.get(b);
+      if (bucket.isEmpty()) break;
+
+      int d = 0;
+      while (!fits(bucket, d, bits, table, slots)) {
+        if (++d == MAX_DISPLACEMENT) return null;
+      }
+      for (int i = 0; i < bucket.size(); i++) table[slots[i]] = bucket.get(i);
+      displacement[b] = d;
+    }
+    return table;
+  }
+
+  /** Computes the slots of a bucket with displacement {@code d}, if they are all free. */
+  private static boolean fits(List<Entry> bucket, int d, int bits, Entry[] table, int[] slots) {
+    for (int i = 0; i < bucket.size(); i++) {
+      int slot = slot(hash(bucket.get(i)), d, bits);
+      if (table[slot] != null) return false;
+      for (int j = 0; j < i; j++) if (slots[j] == slot) return false;
+      slots[i] = slot;
+    }
+    return true;
+  }
+
+  /** The hash function, as in the generated scanner. */
+  private static int hash(Entry e) {
+    int h = e.match;
+    for (int i = 0; i < e.text.length(); i++) h = (h ^ e.text.charAt(i)) * MIX_VALUE;
+    return h;
+  }
+
+  private static int bucket(int hash, int bucketBits) {
+    return hash >>> (32 - bucketBits);
+  }
+
+  private static int slot(int hash, int d, int bits) {
+    return ((hash ^ d) * MIX_VALUE) >>> (32 - bits);
+  }
+}
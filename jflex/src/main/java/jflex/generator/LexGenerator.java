@@ -19,7 +19,9 @@ import jflex.core.LexParse;
 import jflex.core.LexScan;
 import jflex.core.NFA;
 import jflex.core.OptionUtils;
+import jflex.dfa.BacktrackAnalysis;
 import jflex.dfa.DFA;
+import jflex.dfa.DfaCache;
 import jflex.dfa.DfaFactory;
 import jflex.exceptions.GeneratorException;
 import jflex.exceptions.MacroException;
@@ -81,34 +83,55 @@ public class LexGenerator {
 
       Out.println(ErrorMessages.NFA_STATES, nfa.numStates());
 
-      time.start();
-      dfa = DfaFactory.createFromNfa(nfa);
-      time.stop();
-      Out.time(ErrorMessages.DFA_TOOK, time);
+      DfaCache cache = Options.cache_dir == null ? null : new DfaCache(Options.cache_dir);
+      String cacheKey = cache == null ? null : DfaCache.fingerprint(nfa);
 
-      dfa.checkActions(scanner, parser);
+      if (cache != null) {
+        dfa = cache.load(cacheKey, nfa);
+        if (dfa != null) {
+          Out.println(ErrorMessages.DFA_CACHE_HIT, dfa.numStates());
+          dfa.checkActions(scanner, parser);
+          Out.checkErrors();
+        }
+      }
 
-      if (Options.dump) Out.dump(ErrorMessages.get(ErrorMessages.DFA_IS) + Out.NL + dfa + Out.NL);
+      if (dfa == null) {
+        time.start();
+        dfa = DfaFactory.createFromNfa(nfa);
+        time.stop();
+        Out.time(ErrorMessages.DFA_TOOK, time);
 
-      if (Options.dot) dfa.writeDot(Emitter.normalize("dfa-big.dot", null)); // $NON-NLS-1$
+        dfa.checkActions(scanner, parser);
 
-      Out.checkErrors();
+        if (Options.dump) Out.dump(ErrorMessages.get(ErrorMessages.DFA_IS) + Out.NL + dfa + Out.NL);
 
-      time.start();
-      int numStatesBefore = dfa.numStates();
-      dfa.minimize();
-      Out.println(
-          String.format(
-              "%d states before minimization, %d states in minimized DFA",
-              numStatesBefore, dfa.numStates()));
-      time.stop();
+        if (Options.dot) dfa.writeDot(Emitter.normalize("dfa-big.dot", null)); // $NON-NLS-1$
 
-      Out.time(ErrorMessages.MIN_TOOK, time);
+        Out.checkErrors();
+
+        time.start();
+        int numStatesBefore = dfa.numStates();
+        dfa.minimize();
+        Out.println(
+            String.format(
+                "%d states before minimization, %d states in minimized DFA",
+                numStatesBefore, dfa.numStates()));
+        time.stop();
+
+        Out.time(ErrorMessages.MIN_TOOK, time);
+
+        if (cache != null) cache.store(cacheKey, nfa, dfa);
+      }
 
       if (Options.dump) Out.dump(ErrorMessages.get(ErrorMessages.MIN_DFA_IS) + Out.NL + dfa);
 
       if (Options.dot) dfa.writeDot(Emitter.normalize("dfa-min.dot", null)); // $NON-NLS-1$
 
+      if (Options.backtrack_report || Options.no_backtrack) {
+        new BacktrackAnalysis(dfa).report(scanner);
+        Out.checkErrors();
+      }
+
       time.start();
 
       Emitter emitter = Emitters.createFileEmitter(inputFile, parser, dfa);
@@ -17,6 +17,10 @@ import jflex.logging.Out;
  *
  * <p>Also splits up strings when longer than 64K in UTF8 encoding. Subclasses emit unpacking code.
  *
+ * <p>The generated array gets the narrowest element type ({@code byte}, {@code short}, {@code
+ * char}, or {@code int}) that holds all its values, so that the tables of the generated scanner
+ * take up as little cache as possible.
+ *
  * <p>Usage protocol: {@code p.emitInit();}<br>
  * {@code for each data: p.emitData(data);}<br>
  * {@code p.emitUnpack();}
@@ -53,6 +57,16 @@ public abstract class PackEmitter {
   /** indent for string lines */
   private static final String indent = "    ";
 
+  /** smallest and largest value in the unpacked array */
+  private int minValue = Integer.MAX_VALUE;
+
+  private int maxValue = Integer.MIN_VALUE;
+
+  /** position and current text of the element type in the declaration of the decoded member */
+  private int typePos;
+
+  private String type = "int";
+
   /**
    * Create new emitter for an array.
    *
@@ -82,9 +96,14 @@ public abstract class PackEmitter {
     return out.toString();
   }
 
-  /** Emit declaration of decoded member and open first chunk. */
+  /**
+   * Emit declaration of decoded member and open first chunk. The element type of the declaration is
+   * updated by {@link #fixElementType()} once all values are known.
+   */
   public void emitInit() {
-    out.append("  private static final int [] ");
+    out.append("  private static final ");
+    typePos = out.length();
+    out.append("int [] ");
     out.append(constName());
     out.append(" = zzUnpack");
     out.append(name);
@@ -136,6 +155,65 @@ public abstract class PackEmitter {
   /** Emit the unpacking code. */
   public abstract void emitUnpack();
 
+  /**
+   * Records a value of the unpacked array, to determine its element type.
+   *
+   * @param value the value, as it will appear in the unpacked array
+   */
+  protected void addValue(int value) {
+    if (value < minValue) minValue = value;
+    if (value > maxValue) maxValue = value;
+  }
+
+  /**
+   * Determines the narrowest element type of the unpacked array, and fixes the declaration emitted
+   * by {@link #emitInit()} to use it. To be called from {@link #emitUnpack()}.
+   *
+   * @return the element type, one of {@code byte}, {@code short}, {@code char}, {@code int}.
+   */
+  protected String fixElementType() {
+    String newType = elementType(minValue, maxValue);
+    out.replace(typePos, typePos + type.length(), newType);
+    type = newType;
+    return type;
+  }
+
+  /**
+   * The narrowest Java primitive type holding all values in {@code [min, max]}.
+   *
+   * @param min the smallest value
+   * @param max the largest value; if {@code max < min} there are no values at all
+   * @return one of {@code byte}, {@code short}, {@code char}, {@code int}.
+   */
+  static String elementType(int min, int max) {
+    if (max < min) return "int";
+    if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) return "byte";
+    if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) return "short";
+    if (min >= Character.MIN_VALUE && max <= Character.MAX_VALUE) return "char";
+    return "int";
+  }
+
+  /**
+   * Returns the element type of the unpacked array; final after {@link #emitUnpack()}.
+   *
+   * @return one of {@code byte}, {@code short}, {@code char}, {@code int}.
+   */
+  public String getElementType() {
+    return type;
+  }
+
+  /**
+   * Casts an {@code int} expression to the element type of the unpacked array, if necessary.
+   *
+   * @param type the element type
+   * @param value an {@code int} expression
+   * @return the expression to assign to an array element
+   */
+  protected static String cast(String type, String value) {
+    if (type.equals("int")) return value;
+    return "(" + type + ") " + (value.indexOf(' ') < 0 ? value : "(" + value + ")");
+  }
+
   /** emit next chunk */
   private void nextChunk() {
     nl();
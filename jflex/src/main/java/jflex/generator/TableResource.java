@@ -0,0 +1,260 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.9.0-SNAPSHOT                                                    *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import jflex.logging.Out;
+
+/**
+ * Collects the tables of a scanner generated with {@code %tableresource} in a binary class path
+ * resource next to the scanner, instead of encoding them in string constants.
+ *
+ * <p>The resource holds the tables one after the other, each in the narrowest element type (see
+ * {@link PackEmitter#elementType(int, int)}), big endian. The scanner reads it in one go at class
+ * initialisation and checks its size and CRC-32 checksum, so that a resource from a different
+ * generator run is detected.
+ *
+ * <p>Usage protocol: {@code for each table: emitter.println(r.declare(name, values));}<br>
+ * {@code r.write(file);}<br>
+ * {@code emitter.println(r.loader());}
+ *
+ * @version JFlex 1.9.0-SNAPSHOT
+ */
+final class TableResource {
+
+  /** name of the scanner class (without generics) */
+  private final String className;
+
+  /** name of the resource, relative to the scanner class */
+  private final String resourceName;
+
+  /** the table data */
+  private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+  private final DataOutputStream data = new DataOutputStream(bytes);
+
+  /** statements of the static initialiser, one per table */
+  private final StringBuilder assignments = new StringBuilder();
+
+  /** element types used by the tables, for the reader methods */
+  private final Set<String> types = new TreeSet<>();
+
+  /** element type of each table, by name */
+  private final Map<String, String> elementTypes = new HashMap<>();
+
+  /**
+   * Creates a table resource for a scanner class.
+   *
+   * @param className the name of the scanner class, without generics
+   */
+  TableResource(String className) {
+    this.className = className;
+    this.resourceName = className + ".tables";
+  }
+
+  /**
+   * Returns the name of the resource file.
+   *
+   * @return the file name, without directory
+   */
+  String resourceName() {
+    return resourceName;
+  }
+
+  /**
+   * Adds a table to the resource.
+   *
+   * @param name the name of the table (mixed case, no yy prefix), as for {@link PackEmitter}
+   * @param values the table
+   * @return the declaration of the table in the scanner
+   */
+  String declare(String name, int[] values) {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int value : values) {
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    String type = PackEmitter.elementType(min, max);
+    String constName = "ZZ_" + name.toUpperCase(Locale.ENGLISH);
+
+    try {
+      int offset = data.size();
+      for (int value : values) {
+        switch (type) {
+          case "byte":
+            data.writeByte(value);
+            break;
+          case "short":
+          case "char":
+            data.writeShort(value);
+            break;
+          default:
+            data.writeInt(value);
+        }
+      }
+      assignments
+          .append("    ")
+          .append(constName)
+          .append(" = zzTable")
+          .append(capitalize(type))
+          .append("s(zzTables, ")
+          .append(offset)
+          .append(", ")
+          .append(values.length)
+          .append(");")
+          .append(Out.NL);
+    } catch (IOException e) {
+      // writes to a byte array do not fail
+      throw new AssertionError(e);
+    }
+    types.add(type);
+    elementTypes.put(name, type);
+
+    return "  private static final " + type + " [] " + constName + ";" + Out.NL;
+  }
+
+  /**
+   * Returns the element type of a declared table.
+   *
+   * @param name the name of the table, as passed to {@link #declare(String, int[])}
+   * @return one of {@code byte}, {@code short}, {@code char}, {@code int}.
+   */
+  String elementType(String name) {
+    return elementTypes.get(name);
+  }
+
+  /**
+   * Writes the resource.
+   *
+   * @param file the resource file, normally next to the generated scanner
+   * @throws IOException if the file cannot be written
+   */
+  void write(File file) throws IOException {
+    Out.println("Writing tables to \"" + file + "\"");
+    try (OutputStream out = new FileOutputStream(file)) {
+      bytes.writeTo(out);
+    }
+  }
+
+  /**
+   * Returns the code that initialises the declared tables from the resource.
+   *
+   * @return the static initialiser and the methods it uses
+   */
+  String loader() {
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray());
+
+    StringBuilder out = new StringBuilder();
+    println(out, "  /** Size and CRC-32 checksum of the table resource " + resourceName + " */");
+    println(out, "  private static final int ZZ_TABLES_SIZE = " + bytes.size() + ";");
+    println(
+        out,
+        "  private static final long ZZ_TABLES_CHECKSUM = 0x"
+            + Long.toHexString(crc.getValue())
+            + "L;");
+    println(out, "");
+    println(out, "  static {");
+    println(out, "    byte [] zzTables = zzLoadTables();");
+    out.append(assignments);
+    println(out, "  }");
+    println(out, "");
+    println(out, "  /**");
+    println(out, "   * Reads the table resource " + resourceName + " and checks that it belongs");
+    println(out, "   * to this scanner.");
+    println(out, "   */");
+    println(out, "  private static byte [] zzLoadTables() {");
+    println(out, "    java.io.InputStream in = " + className + ".class.getResourceAsStream(");
+    println(out, "        \"" + resourceName + "\");");
+    println(out, "    if (in == null) {");
+    println(out, "      throw new IllegalStateException(");
+    println(out, "          \"Table resource " + resourceName + " not found\");");
+    println(out, "    }");
+    println(out, "    // one extra byte to detect a resource that is too long");
+    println(out, "    byte [] data = new byte[ZZ_TABLES_SIZE + 1];");
+    println(out, "    int length = 0;");
+    println(out, "    try {");
+    println(out, "      try {");
+    println(out, "        int n;");
+    println(out, "        while (length < data.length");
+    println(out, "               && (n = in.read(data, length, data.length - length)) > 0) {");
+    println(out, "          length += n;");
+    println(out, "        }");
+    println(out, "      } finally {");
+    println(out, "        in.close();");
+    println(out, "      }");
+    println(out, "    } catch (java.io.IOException e) {");
+    println(out, "      throw new IllegalStateException(");
+    println(out, "          \"Cannot read table resource " + resourceName + "\", e);");
+    println(out, "    }");
+    println(out, "    java.util.zip.CRC32 crc = new java.util.zip.CRC32();");
+    println(out, "    crc.update(data, 0, length);");
+    println(out, "    if (length != ZZ_TABLES_SIZE || crc.getValue() != ZZ_TABLES_CHECKSUM) {");
+    println(out, "      throw new IllegalStateException(");
+    println(
+        out, "          \"Table resource " + resourceName + " does not belong to this scanner,\"");
+    println(out, "          + \" regenerate both from the same specification\");");
+    println(out, "    }");
+    println(out, "    return data;");
+    println(out, "  }");
+
+    for (String type : types) {
+      println(out, "");
+      println(
+          out,
+          "  private static "
+              + type
+              + " [] zzTable"
+              + capitalize(type)
+              + "s(byte [] tables, int offset, int length) {");
+      println(out, "    " + type + " [] result = new " + type + "[length];");
+      switch (type) {
+        case "byte":
+          println(out, "    System.arraycopy(tables, offset, result, 0, length);");
+          break;
+        case "short":
+          println(out, "    java.nio.ByteBuffer.wrap(tables, offset, 2 * length)");
+          println(out, "        .asShortBuffer().get(result);");
+          break;
+        case "char":
+          println(out, "    java.nio.ByteBuffer.wrap(tables, offset, 2 * length)");
+          println(out, "        .asCharBuffer().get(result);");
+          break;
+        default:
+          println(out, "    java.nio.ByteBuffer.wrap(tables, offset, 4 * length)");
+          println(out, "        .asIntBuffer().get(result);");
+      }
+      println(out, "    return result;");
+      println(out, "  }");
+    }
+
+    return out.toString();
+  }
+
+  private static String capitalize(String type) {
+    return Character.toUpperCase(type.charAt(0)) + type.substring(1);
+  }
+
+  private static void println(StringBuilder out, String line) {
+    out.append(line).append(Out.NL);
+  }
+}
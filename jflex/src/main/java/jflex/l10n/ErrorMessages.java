@@ -80,6 +80,8 @@ public class ErrorMessages {
   public static ErrorMessage NO_LAST_ACTION = new ErrorMessage("NO_LAST_ACTION");
   /** Constant {@code NO_DIRECTORY} */
   public static ErrorMessage NO_DIRECTORY = new ErrorMessage("NO_DIRECTORY");
+  /** Constant {@code NO_CACHE_DIRECTORY} */
+  public static ErrorMessage NO_CACHE_DIRECTORY = new ErrorMessage("NO_CACHE_DIRECTORY");
   /** Constant {@code NO_SKEL_FILE} */
   public static ErrorMessage NO_SKEL_FILE = new ErrorMessage("NO_SKEL_FILE");
   /** Constant {@code WRONG_SKELETON} */
@@ -96,6 +98,8 @@ public class ErrorMessages {
   public static ErrorMessage ZERO_STATES = new ErrorMessage("ZERO_STATES");
   /** Constant {@code NO_BUFFER_SIZE} */
   public static ErrorMessage NO_BUFFER_SIZE = new ErrorMessage("NO_BUFFER_SIZE");
+  /** Constant {@code NO_MAX_TOKEN} */
+  public static ErrorMessage NO_MAX_TOKEN = new ErrorMessage("NO_MAX_TOKEN");
   /** Constant {@code NOT_READABLE} */
   public static ErrorMessage NOT_READABLE = new ErrorMessage("NOT_READABLE");
   /** Constant {@code FILE_CYCLE} */
@@ -104,6 +108,8 @@ public class ErrorMessages {
   public static ErrorMessage FILE_WRITE = new ErrorMessage("FILE_WRITE");
   /** Constant {@code QUIL_SCANERROR} */
   public static ErrorMessage QUIL_SCANERROR = new ErrorMessage("QUIL_SCANERROR");
+  /** Constant {@code QUIL_BUFFERPOOL} */
+  public static ErrorMessage QUIL_BUFFERPOOL = new ErrorMessage("QUIL_BUFFERPOOL");
   /** Constant {@code NEVER_MATCH} */
   public static ErrorMessage NEVER_MATCH = new ErrorMessage("NEVER_MATCH");
   /** Constant {@code QUIL_THROW} */
@@ -134,6 +140,22 @@ public class ErrorMessages {
   public static ErrorMessage NFA_STATES = new ErrorMessage("NFA_STATES");
   /** Constant {@code DFA_TOOK} */
   public static ErrorMessage DFA_TOOK = new ErrorMessage("DFA_TOOK");
+  /** Constant {@code DFA_CACHE_HIT} */
+  public static ErrorMessage DFA_CACHE_HIT = new ErrorMessage("DFA_CACHE_HIT");
+  /** Constant {@code DFA_CACHE_UNREADABLE} */
+  public static ErrorMessage DFA_CACHE_UNREADABLE = new ErrorMessage("DFA_CACHE_UNREADABLE");
+  /** Constant {@code DFA_CACHE_NO_DIR} */
+  public static ErrorMessage DFA_CACHE_NO_DIR = new ErrorMessage("DFA_CACHE_NO_DIR");
+  /** Constant {@code DFA_CACHE_WRITE} */
+  public static ErrorMessage DFA_CACHE_WRITE = new ErrorMessage("DFA_CACHE_WRITE");
+  /** Constant {@code BACKTRACK_RULE} */
+  public static ErrorMessage BACKTRACK_RULE = new ErrorMessage("BACKTRACK_RULE");
+  /** Constant {@code BACKTRACK_STATES} */
+  public static ErrorMessage BACKTRACK_STATES = new ErrorMessage("BACKTRACK_STATES");
+  /** Constant {@code BACKTRACK_UNBOUNDED} */
+  public static ErrorMessage BACKTRACK_UNBOUNDED = new ErrorMessage("BACKTRACK_UNBOUNDED");
+  /** Constant {@code CMAP_LAYOUT} */
+  public static ErrorMessage CMAP_LAYOUT = new ErrorMessage("CMAP_LAYOUT");
   /** Constant {@code DFA_IS} */
   public static ErrorMessage DFA_IS = new ErrorMessage("DFA_IS");
   /** Constant {@code MIN_TOOK} */
@@ -194,6 +216,8 @@ public class ErrorMessages {
   public static ErrorMessage NO_ENCODING = new ErrorMessage("NO_ENCODING");
   /** Constant {@code CHARSET_NOT_SUPPORTED} */
   public static ErrorMessage CHARSET_NOT_SUPPORTED = new ErrorMessage("CHARSET_NOT_SUPPORTED");
+  /** Constant {@code LAZYLINES_NESTED} */
+  public static ErrorMessage LAZYLINES_NESTED = new ErrorMessage("LAZYLINES_NESTED");
 
   /* not final static, because initializing here seems too early
    * for OS/2 JDK 1.1.8. See bug 1065521.
@@ -246,16 +246,29 @@ public final class Out {
    * @param column the column of the position
    */
   public static void warning(File file, ErrorMessages.ErrorMessage message, int line, int column) {
+    String text;
+    try {
+      text = ErrorMessages.get(message);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      text = null;
+    }
+    warning(file, text, line, column);
+  }
 
+  /**
+   * print a formatted warning message with location information
+   *
+   * @param file the file the warning is issued for
+   * @param message the message to print, null for none
+   * @param line the line number of the position
+   * @param column the column of the position
+   */
+  public static void warning(File file, String message, int line, int column) {
     String msg = NL + "Warning";
     if (file != null) msg += " in file \"" + file + "\"";
     if (line >= 0) msg = msg + " (line " + (line + 1) + ")";
 
-    try {
-      err(msg + ": " + NL + ErrorMessages.get(message));
-    } catch (ArrayIndexOutOfBoundsException e) {
-      err(msg);
-    }
+    err(message != null ? msg + ": " + NL + message : msg);
 
     warnings++;
 
@@ -318,16 +331,29 @@ public final class Out {
    * @param column the column of error position
    */
   public static void error(File file, ErrorMessages.ErrorMessage message, int line, int column) {
+    String text;
+    try {
+      text = ErrorMessages.get(message);
+    } catch (ArrayIndexOutOfBoundsException e) {
+      text = null;
+    }
+    error(file, text, line, column);
+  }
 
+  /**
+   * print a formatted error message with location information
+   *
+   * @param file the file the error occurred for
+   * @param message the message to print, null for none
+   * @param line the line number of error position
+   * @param column the column of error position
+   */
+  public static void error(File file, String message, int line, int column) {
     String msg = NL + "Error";
     if (file != null) msg += " in file \"" + file + "\"";
     if (line >= 0) msg = msg + " (line " + (line + 1) + ")";
 
-    try {
-      err(msg + ": " + NL + ErrorMessages.get(message));
-    } catch (ArrayIndexOutOfBoundsException e) {
-      err(msg);
-    }
+    err(message != null ? msg + ": " + NL + message : msg);
 
     errors++;
 
@@ -53,6 +53,20 @@ public class Options {
    * If true, dot (.) metachar matches [^\n] instead of [^\r\n\u000B\u000C\u0085\u2028\u2029]|"\r\n"
    */
   public static boolean legacy_dot;
+  /**
+   * If true, report the rules and lexical states for which the scanner may need to back up.
+   *
+   * @see jflex.dfa.BacktrackAnalysis
+   */
+  public static boolean backtrack_report;
+  /** If true, backtracking in the generated scanner is an error (implies the backtrack report). */
+  public static boolean no_backtrack;
+  /**
+   * Directory for cached minimised DFAs, {@code null} if the cache is disabled.
+   *
+   * @see jflex.dfa.DfaCache
+   */
+  public static File cache_dir;
   /** The encoding to use for input and output files. */
   public static Charset encoding;
 
@@ -86,6 +86,19 @@ public class Skeleton {
     }
   }
 
+  /**
+   * Checks whether the current skeleton contains the given text.
+   *
+   * @param text the text to look for
+   * @return true iff one of the skeleton sections contains {@code text}
+   */
+  public static boolean contains(String text) {
+    for (String l : line) {
+      if (l.contains(text)) return true;
+    }
+    return false;
+  }
+
   /**
    * Reads an external skeleton file for later use with this class.
    *
@@ -174,6 +174,40 @@ public class CharClassesQuickcheck {
     }
   }
 
+  @Property(trials = 20)
+  public void getTablesBlockBitsEq(
+      CharClasses classes,
+      @InRange(minInt = 6, maxInt = 12) int blockBits,
+      @Size(min = 100, max = 100)
+          ArrayList<@InRange(minInt = 0, maxInt = CharClasses.maxChar) Integer> inputs) {
+    Pair<int[], int[]> table = classes.getTables(blockBits);
+    int mask = (1 << blockBits) - 1;
+    for (int input : inputs) {
+      int offset = input & mask;
+      int top = table.fst[input >> blockBits];
+      int code = offset == input ? table.snd[offset] : table.snd[top | offset];
+      assertThat(code).isEqualTo(classes.getClassCode(input));
+    }
+  }
+
+  @Property(trials = 20)
+  public void shareBlocksEq(
+      CharClasses classes,
+      @InRange(minInt = 1, maxInt = 6) int midBits,
+      @Size(min = 100, max = 100)
+          ArrayList<@InRange(minInt = 0, maxInt = CharClasses.maxChar) Integer> inputs) {
+    Pair<int[], int[]> table = classes.getTables();
+    Pair<int[], int[]> upper = CharClasses.shareBlocks(table.fst, midBits);
+    assertThat(upper.snd[0]).isEqualTo(0);
+    int mask = CMapBlock.BLOCK_SIZE - 1;
+    int midMask = (1 << midBits) - 1;
+    for (int input : inputs) {
+      int high = input >> CMapBlock.BLOCK_BITS;
+      int mid = upper.snd[upper.fst[high >> midBits] | (high & midMask)];
+      assertThat(table.snd[mid | (input & mask)]).isEqualTo(classes.getClassCode(input));
+    }
+  }
+
   @Property
   public void classCodesUnion(CharClasses classes) {
     CharClassInterval[] intervals = classes.getIntervals();
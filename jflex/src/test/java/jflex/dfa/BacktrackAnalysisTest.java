@@ -0,0 +1,99 @@
+package jflex.dfa;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import jflex.core.Action;
+import org.junit.Test;
+
+public class BacktrackAnalysisTest {
+
+  private static final int A = 0;
+  private static final int B = 1;
+  private static final int C = 2;
+  private static final int D = 3;
+
+  /** DFA with a single lexical state, entry state 0 and inputs {@code a}-{@code d}. */
+  private static DFA newDfa() {
+    DFA dfa = new DFA(2, 4, 1);
+    dfa.setEntryState(0, 0);
+    dfa.setEntryState(1, 0);
+    return dfa;
+  }
+
+  private static void accept(DFA dfa, int state, Action action) {
+    dfa.setFinal(state, true);
+    dfa.setAction(state, action);
+  }
+
+  @Test
+  public void noBacktracking() {
+    // "a"+
+    DFA dfa = newDfa();
+    dfa.addTransition(0, A, 1);
+    dfa.addTransition(1, A, 1);
+    accept(dfa, 1, new Action("a+", 1));
+
+    BacktrackAnalysis analysis = new BacktrackAnalysis(dfa);
+    assertThat(analysis.backtracks()).isFalse();
+    assertThat(analysis.worstCase()).isEqualTo(0);
+    assertThat(analysis.actions()).isEmpty();
+    assertThat(analysis.lexStates()).isEmpty();
+  }
+
+  @Test
+  public void boundedDistance() {
+    // "a" | "abcd"
+    DFA dfa = newDfa();
+    Action a = new Action("a", 1);
+    dfa.addTransition(0, A, 1);
+    dfa.addTransition(1, B, 2);
+    dfa.addTransition(2, C, 3);
+    dfa.addTransition(3, D, 4);
+    accept(dfa, 1, a);
+    accept(dfa, 4, new Action("abcd", 2));
+
+    BacktrackAnalysis analysis = new BacktrackAnalysis(dfa);
+    assertThat(analysis.numStates()).isEqualTo(2);
+    assertThat(analysis.distance(2)).isEqualTo(1);
+    assertThat(analysis.distance(3)).isEqualTo(2);
+    assertThat(analysis.distance(4)).isEqualTo(0);
+    assertThat(analysis.worstCase()).isEqualTo(2);
+    assertThat(analysis.actions()).containsExactly(a);
+    assertThat(analysis.distance(a)).isEqualTo(2);
+    assertThat(analysis.lexStates()).containsExactly(0);
+  }
+
+  @Test
+  public void unboundedDistance() {
+    // "a" | "a" "b"* "c"
+    DFA dfa = newDfa();
+    Action a = new Action("a", 1);
+    dfa.addTransition(0, A, 1);
+    dfa.addTransition(1, B, 2);
+    dfa.addTransition(2, B, 2);
+    dfa.addTransition(2, C, 3);
+    dfa.addTransition(1, C, 3);
+    accept(dfa, 1, a);
+    accept(dfa, 3, new Action("ab*c", 2));
+
+    BacktrackAnalysis analysis = new BacktrackAnalysis(dfa);
+    assertThat(analysis.numStates()).isEqualTo(1);
+    assertThat(analysis.distance(2)).isEqualTo(BacktrackAnalysis.UNBOUNDED);
+    assertThat(analysis.worstCase()).isEqualTo(BacktrackAnalysis.UNBOUNDED);
+    assertThat(analysis.distance(a)).isEqualTo(BacktrackAnalysis.UNBOUNDED);
+  }
+
+  @Test
+  public void unreachableStatesIgnored() {
+    // "a", plus an accepting state 2 that no entry state reaches
+    DFA dfa = newDfa();
+    dfa.addTransition(0, A, 1);
+    accept(dfa, 1, new Action("a", 1));
+    dfa.addTransition(2, A, 3);
+    dfa.addTransition(3, A, 4);
+    accept(dfa, 2, new Action("dead", 2));
+    accept(dfa, 4, new Action("dead", 3));
+
+    assertThat(new BacktrackAnalysis(dfa).backtracks()).isFalse();
+  }
+}
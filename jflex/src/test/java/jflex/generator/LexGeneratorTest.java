@@ -0,0 +1,98 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ * JFlex 1.9.0-SNAPSHOT                                                    *
+ * Copyright (C) 1998-2018  Gerwin Klein <lsf@jflex.de>                    *
+ * All rights reserved.                                                    *
+ *                                                                         *
+ * License: BSD                                                            *
+ *                                                                         *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package jflex.generator;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import jflex.core.OptionUtils;
+import jflex.option.Options;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests for {@link LexGenerator}. */
+public class LexGeneratorTest {
+
+  private static final String SPEC =
+      "%%\n"
+          + "%class Cached\n"
+          + "%int\n"
+          + "%%\n"
+          + "\"if\" | \"while\" { return ACTION; }\n"
+          + "[a-z]+ { return 2; }\n"
+          + "[^] { return 3; }\n";
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private File cacheDir;
+
+  @Before
+  public void setUp() throws IOException {
+    OptionUtils.setDefaultOptions();
+    Options.verbose = false;
+    Options.progress = false;
+    Options.no_backup = true;
+    OptionUtils.setDir(tmp.newFolder("out"));
+    cacheDir = new File(tmp.getRoot(), "cache");
+    Options.cache_dir = cacheDir;
+  }
+
+  @After
+  public void tearDown() {
+    OptionUtils.setDefaultOptions();
+  }
+
+  @Test
+  public void cacheHitOnActionOnlyChange() throws IOException {
+    LexGenerator first = new LexGenerator(writeSpec("1"));
+    String uncached = read(first.generate());
+    int states = first.minimizedDfaStatesCount();
+    assertThat(cacheDir.list()).hasLength(1);
+
+    LexGenerator second = new LexGenerator(writeSpec("1"));
+    assertThat(read(second.generate())).isEqualTo(uncached);
+    assertThat(second.minimizedDfaStatesCount()).isEqualTo(states);
+
+    LexGenerator third = new LexGenerator(writeSpec("42 /* changed */"));
+    String changed = read(third.generate());
+    assertThat(changed).contains("return 42 /* changed */;");
+    assertThat(third.minimizedDfaStatesCount()).isEqualTo(states);
+    assertThat(cacheDir.list()).hasLength(1);
+  }
+
+  @Test
+  public void cacheMissOnRegExpChange() throws IOException {
+    new LexGenerator(writeSpec("1")).generate();
+    File spec = tmp.newFile("other.flex");
+    Files.write(
+        spec.toPath(),
+        SPEC.replace("ACTION", "1")
+            .replace("[a-z]+", "[a-z]+ \"!\"")
+            .getBytes(StandardCharsets.UTF_8));
+    new LexGenerator(spec).generate();
+    assertThat(cacheDir.list()).hasLength(2);
+  }
+
+  private File writeSpec(String action) throws IOException {
+    File spec = new File(tmp.getRoot(), "cached.flex");
+    Files.write(spec.toPath(), SPEC.replace("ACTION", action).getBytes(StandardCharsets.UTF_8));
+    return spec;
+  }
+
+  private static String read(String fileName) throws IOException {
+    return new String(Files.readAllBytes(new File(fileName).toPath()), StandardCharsets.UTF_8);
+  }
+}
@@ -69,4 +69,27 @@ public class PackEmitterTest {
                 + NL
                 + "    \"\\40\\41\\42\\43");
   }
+
+  @Test
+  public void testElementType() {
+    assertThat(PackEmitter.elementType(0, -1)).isEqualTo("int");
+    assertThat(PackEmitter.elementType(-1, 127)).isEqualTo("byte");
+    assertThat(PackEmitter.elementType(-1, 128)).isEqualTo("short");
+    assertThat(PackEmitter.elementType(0, 0xFFFF)).isEqualTo("char");
+    assertThat(PackEmitter.elementType(-1, 0xFFFF)).isEqualTo("int");
+    assertThat(PackEmitter.elementType(0, 0x10000)).isEqualTo("int");
+  }
+
+  @Test
+  public void testNarrowUnpack() {
+    CountEmitter e = new CountEmitter("Bla");
+    e.setValTranslation(+1);
+    e.emitInit();
+    e.emitCountValueString(new int[] {-1, -1, 5});
+    e.emitUnpack();
+    assertThat(e.getElementType()).isEqualTo("byte");
+    assertThat(e.toString()).startsWith("  private static final byte [] ZZ_BLA = zzUnpackBla();");
+    assertThat(e.toString()).contains("    byte [] result = new byte[3];");
+    assertThat(e.toString()).contains("do result[j++] = (byte) value; while (--count > 0);");
+  }
 }
@@ -8,7 +8,9 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -22,6 +24,9 @@ public class CustomClassLoader extends ClassLoader {
   /** the class path */
   private List<String> pathItems = new ArrayList<>();
 
+  /** class files held in memory, by binary name; searched before the class path */
+  private Map<String, byte[]> classes = new HashMap<>();
+
   /**
    * Constructs a CustomClassLoader. It scans the specified class path (system class path is handled
    * by parent/system class loader)
@@ -58,6 +63,11 @@ public class CustomClassLoader extends ClassLoader {
     pathItems.add(pathItem.getAbsolutePath());
   }
 
+  /** Add classes held in memory, by binary name. These take precedence over the class path. */
+  public void addClasses(Map<String, byte[]> classes) {
+    this.classes.putAll(classes);
+  }
+
   /** Returns a named resource as stream. */
   public synchronized InputStream getResourceAsStream(String name) {
     // call super, handles delegation to parent+system class loader
@@ -122,7 +132,8 @@ public class CustomClassLoader extends ClassLoader {
 
   /** Search for a class file, and return class data if found. */
   private byte[] lookupClassData(String className) throws ClassNotFoundException {
-    byte[] data = null;
+    byte[] data = classes.get(className);
+    if (data != null) return data;
     for (String path : pathItems) {
       String fileName = className.replace('.', '/') + ".class";
 
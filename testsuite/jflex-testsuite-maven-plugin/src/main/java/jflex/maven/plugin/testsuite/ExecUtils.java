@@ -1,23 +1,27 @@
 package jflex.maven.plugin.testsuite;
 
-import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
 import jflex.core.OptionUtils;
 import jflex.exceptions.GeneratorException;
 import jflex.exceptions.SilentExit;
 import jflex.logging.Out;
-import org.apache.tools.ant.BuildException;
-import org.apache.tools.ant.Project;
-import org.apache.tools.ant.taskdefs.Javac;
-import org.apache.tools.ant.types.Path;
 
 public class ExecUtils {
 
@@ -26,6 +30,9 @@ public class ExecUtils {
   private static final String JAVA_VERSION = "1.7";
   public static final String NL = System.getProperty("line.separator");
 
+  /** Guards the global state of JFlex. */
+  private static final Object JFLEX_LOCK = new Object();
+
   /**
    * Convert two Lists with String elements into one array containing all elements.
    *
@@ -50,47 +57,89 @@ public class ExecUtils {
    * Call javac on javaSourceFiles in input dir. If javaSourceFiles is {@code null}, all {@code
    * *.java} files in the directory will be compiled.
    *
+   * <p>Compiles in process, and keeps the class files in memory.
+   *
    * @param javaSourceFiles A list of files to compile, or {@code null}
    * @param dir Source directory.
+   * @param classes Receives the compiled classes, by binary name.
    */
   public static TestResult execJavac(
-      List<String> javaSourceFiles, File dir, String additionalJars, String encoding)
+      List<String> javaSourceFiles,
+      File dir,
+      Map<String, byte[]> classes,
+      String additionalJars,
+      String encoding)
       throws FileNotFoundException {
     // javac fails if an input file doesn't exist
     checkFilesExist(javaSourceFiles, dir);
-    Project p = new Project();
-    Path path = new Path(p, dir.toString());
-    Javac javac = new Javac();
-    javac.setProject(p);
-    javac.setSrcdir(path);
-    javac.setDestdir(dir);
-    javac.setTarget(JAVA_VERSION);
-    javac.setSource(JAVA_VERSION);
-    javac.setSourcepath(new Path(p, "")); // Only compile explicitly specified source files
-    if (javaSourceFiles != null) {
-      javac.setIncludes(Joiner.on(' ').join(javaSourceFiles));
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      return new TestResult("No system Java compiler available (running on a JRE?)", false);
     }
-    javac.setEncoding(encoding);
-    Path classPath = javac.createClasspath();
-    // Locate the jflex jar in the user's Maven local repository
-    classPath.setPath(additionalJars);
 
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    PrintStream outSafe = System.err;
-    System.setErr(new PrintStream(out));
+    List<File> sources = new ArrayList<>();
+    if (javaSourceFiles != null) {
+      for (String src : javaSourceFiles) sources.add(new File(dir, src));
+    } else {
+      File[] all = dir.listFiles();
+      if (all != null) {
+        for (File f : all) {
+          if (f.getName().endsWith(".java")) sources.add(f);
+        }
+      }
+    }
 
-    try {
-      javac.execute();
-      return new TestResult(out.toString(), true);
-    } catch (BuildException e) {
-      return new TestResult(e + NL + out.toString() + NL + "classpath: " + classPath, false);
-    } finally {
-      System.setErr(outSafe);
+    List<String> options =
+        ImmutableList.of(
+            "-source",
+            JAVA_VERSION,
+            "-target",
+            JAVA_VERSION,
+            "-encoding",
+            encoding,
+            "-classpath",
+            additionalJars,
+            // Only compile explicitly specified source files
+            "-sourcepath",
+            "");
+
+    StringWriter out = new StringWriter();
+    StandardJavaFileManager standardManager =
+        compiler.getStandardFileManager(null, null, Charset.forName(encoding));
+    try (JavaFileManager fileManager = new InMemoryFileManager(standardManager, classes)) {
+      boolean success =
+          compiler
+              .getTask(
+                  out,
+                  fileManager,
+                  null,
+                  options,
+                  null,
+                  standardManager.getJavaFileObjectsFromFiles(sources))
+              .call();
+      if (success) {
+        return new TestResult(out.toString(), true);
+      }
+      return new TestResult(out + NL + "classpath: " + additionalJars, false);
+    } catch (IOException | RuntimeException e) {
+      return new TestResult(e + NL + out + NL + "classpath: " + additionalJars, false);
     }
   }
 
-  /** Call jflex with command line and input files. */
+  /**
+   * Call jflex with command line and input files.
+   *
+   * <p>JFlex keeps its options and output stream in static fields, so concurrent test cases take
+   * turns here.
+   */
   public static TestResult execJFlex(List<String> cmdline, List<String> files) {
+    synchronized (JFLEX_LOCK) {
+      return execJFlexLocked(cmdline, files);
+    }
+  }
+
+  private static TestResult execJFlexLocked(List<String> cmdline, List<String> files) {
     String[] cmd = toArray(cmdline, files);
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     try {
@@ -108,11 +157,13 @@ public class ExecUtils {
   /**
    * Call main method of specified class with command line and input files.
    *
+   * @param classes compiled classes, by binary name; take precedence over {@code path}
    * @param path the directory in which to search for the class
    * @param additionalJars
    */
   public static TestResult execClass(
       String theClass,
+      Map<String, byte[]> classes,
       String path,
       List<String> files,
       List<File> additionalJars,
@@ -129,6 +180,7 @@ public class ExecUtils {
     // System.out.println("cmdline "+cmdline+"\nfiles: "+files);
 
     CustomClassLoader l = new CustomClassLoader(path);
+    l.addClasses(classes);
     // Locate the shaded jar in the lib directory
     // TODO(regisd) Alternatively, we could load JFlex and its dependency graph.
     try {
@@ -159,19 +211,18 @@ public class ExecUtils {
 
     // System.out.println("loaded class "+theClass);
 
-    PrintStream stdOut = System.out;
-    System.setOut(new PrintStream(out, true));
+    PrintStream stdOut = ThreadRoutingPrintStream.setOut(new PrintStream(out, true));
 
     try {
       Object[] params = {cmd};
       main.invoke(null, params);
-      System.setOut(stdOut);
+      ThreadRoutingPrintStream.setOut(stdOut);
     } catch (IllegalAccessException e) {
-      System.setOut(stdOut);
+      ThreadRoutingPrintStream.setOut(stdOut);
       System.out.println("main not public :" + e + main);
       return null;
     } catch (InvocationTargetException e) {
-      System.setOut(stdOut);
+      ThreadRoutingPrintStream.setOut(stdOut);
       System.out.println("test subject threw exception :" + e);
       success = false;
     }
@@ -0,0 +1,59 @@
+package jflex.maven.plugin.testsuite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * A file manager that keeps the class files produced by the compiler in memory.
+ *
+ * <p>Sources and the class path are still read through the standard file manager. Class files are
+ * put into a map from binary class name to class file contents, from where {@link
+ * CustomClassLoader} defines them without a round trip through the file system.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+  /** the compiled classes, by binary name */
+  private final Map<String, byte[]> classes;
+
+  /**
+   * @param fileManager the file manager for sources and class path
+   * @param classes receives the compiled classes, by binary name
+   */
+  InMemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+    super(fileManager);
+    this.classes = classes;
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForOutput(
+      JavaFileManager.Location location,
+      final String className,
+      JavaFileObject.Kind kind,
+      FileObject sibling)
+      throws IOException {
+    if (kind != JavaFileObject.Kind.CLASS) {
+      return super.getJavaFileForOutput(location, className, kind, sibling);
+    }
+    URI uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+    return new SimpleJavaFileObject(uri, kind) {
+      @Override
+      public OutputStream openOutputStream() {
+        return new ByteArrayOutputStream() {
+          @Override
+          public void close() {
+            classes.put(className, toByteArray());
+          }
+        };
+      }
+    };
+  }
+}
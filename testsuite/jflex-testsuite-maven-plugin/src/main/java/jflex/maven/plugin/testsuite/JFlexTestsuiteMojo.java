@@ -30,6 +30,15 @@ public class JFlexTestsuiteMojo extends AbstractMojo {
    */
   @Parameter() private String testcases;
 
+  /**
+   * Number of test cases to run concurrently.
+   *
+   * <p>With the default of 1, test cases run one after the other and the suite stops at the first
+   * failure. Values less than 1 use one thread per available processor.
+   */
+  @Parameter(property = "jflex.testsuite.threads", defaultValue = "1")
+  private int threads;
+
   /** Path of the JFlex uber jar under test. */
   @Parameter(
       defaultValue = "${project.parent.basedir}/jflex/target/jflex-full-${project.version}.jar")
@@ -65,7 +74,10 @@ public class JFlexTestsuiteMojo extends AbstractMojo {
       TestsuiteUtils.verbose = verbose;
       getLog().info("verbose: " + verbose);
 
-      success = TestsuiteUtils.runTests(files, jflexUberJar);
+      int numThreads = threads < 1 ? Runtime.getRuntime().availableProcessors() : threads;
+      getLog().info("threads: " + numThreads);
+
+      success = TestsuiteUtils.runTests(files, jflexUberJar, numThreads);
 
     } catch (Exception e) {
       throw new MojoExecutionException("Failed to execute test suite: " + e.getMessage(), e);
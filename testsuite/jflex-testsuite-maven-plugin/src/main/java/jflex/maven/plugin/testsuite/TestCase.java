@@ -12,8 +12,10 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import org.apache.maven.plugin.MojoFailureException;
 
@@ -52,6 +54,9 @@ public class TestCase {
   /** base directory of this test case */
   private File testPath;
 
+  /** compiled classes of this test case, by binary name */
+  private final Map<String, byte[]> classes = new HashMap<>();
+
   private boolean expectJavacFail, expectJFlexFail;
 
   /** inputOutputFiles to invoke test.main on and compare */
@@ -209,7 +214,8 @@ public class TestCase {
       }
       try {
         TestResult javacResult =
-            ExecUtils.execJavac(toCompile, testPath, jflexUberJar.getAbsolutePath(), javacEncoding);
+            ExecUtils.execJavac(
+                toCompile, testPath, classes, jflexUberJar.getAbsolutePath(), javacEncoding);
 
         // System.out.println(javacResult);
         if (TestsuiteUtils.verbose) {
@@ -291,6 +297,7 @@ public class TestCase {
     TestResult classExecResult =
         ExecUtils.execClass(
             className,
+            classes,
             testPath.toString(),
             inputFiles,
             additionalJars,
@@ -1,11 +1,20 @@
 package jflex.maven.plugin.testsuite;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FilenameFilter;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
@@ -65,50 +74,155 @@ public class TestsuiteUtils {
   }
 
   /**
+   * Runs the tests, either serially or on a pool of worker threads.
+   *
+   * <p>Each test case compiles in memory and runs in its own class loader. JFlex still writes the
+   * generated sources into the test directory, which several test cases may share; the test cases
+   * of one directory therefore run one after the other on the same worker, and different
+   * directories run concurrently. With more than one thread, the output of each test case is
+   * captured and printed in the order of {@code tests} once all test cases have finished, so the
+   * result does not depend on scheduling. If tests fail, the failure of the first one in this order
+   * is reported.
+   *
    * @param tests a list of File
    * @param jflexUberJar The JFlex shaded jar
+   * @param threads the number of worker threads; 1 runs the tests serially and stops at the first
+   *     failure
    * @return true if all tests succeeded, false otherwise
    */
-  public static boolean runTests(List<File> tests, File jflexUberJar)
-      throws TestFailException, MojoExecutionException, MojoFailureException {
+  public static boolean runTests(List<File> tests, final File jflexUberJar, int threads)
+      throws MojoExecutionException, MojoFailureException {
     Locale.setDefault(Locale.US);
-    int successCount = 0;
-    int totalCount = 0;
 
-    for (File test : tests) {
-      totalCount++;
-      if (verbose) {
-        System.out.println("");
-        System.out.println("Processing test [" + test + "]");
+    if (threads <= 1) {
+      for (File test : tests) {
+        runTest(test, jflexUberJar);
       }
-      try {
-        // set path to test
-        File currentDir = new File(test.getParent());
-        // trying to load
-        TestLoader loader = new TestLoader(new FileReader(test));
-        TestCase currentTest = loader.load();
-        currentTest.init(currentDir);
-
-        // failure above would have thrown exception
-        if (verbose) System.out.println("Loaded successfully"); // - Details:\n"+currentTest);
-
-        if (currentTest.checkJavaVersion()) {
-          currentTest.createScanner(jflexUberJar, verbose);
-          while (currentTest.hasMoreToDo()) currentTest.runNext(jflexUberJar);
-
-          successCount++;
-          System.out.println("Test [" + test + "] finished successfully.");
-        } else {
-          successCount++;
-          System.out.println("Test [" + test + "] skipped (JDK version mismatch).");
+      printSummary(tests.size(), tests.size());
+      return true;
+    }
+
+    final Map<File, Outcome> outcomes = new ConcurrentHashMap<>();
+    PrintStream stdOut = System.out;
+    PrintStream stdErr = System.err;
+    System.setOut(new ThreadRoutingPrintStream(stdOut));
+    System.setErr(new ThreadRoutingPrintStream(stdErr));
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      Map<File, List<File>> testsByDir = new LinkedHashMap<>();
+      for (File test : tests) {
+        File dir = test.getParentFile();
+        if (!testsByDir.containsKey(dir)) {
+          testsByDir.put(dir, new ArrayList<File>());
         }
-      } catch (TestFailException e) {
-        throw new MojoFailureException("Test [" + test + "] failed", e);
-      } catch (Exception e) {
-        throw new MojoExecutionException("Test [" + test.getName() + "] failed to execute", e);
+        testsByDir.get(dir).add(test);
+      }
+      List<Future<?>> futures = new ArrayList<>();
+      for (final List<File> dirTests : testsByDir.values()) {
+        futures.add(
+            pool.submit(
+                new Runnable() {
+                  public void run() {
+                    for (File test : dirTests) {
+                      outcomes.put(test, runCaptured(test, jflexUberJar));
+                    }
+                  }
+                }));
       }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted while running tests", e);
+    } catch (ExecutionException e) {
+      throw new MojoExecutionException("Test execution failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+      System.setOut(stdOut);
+      System.setErr(stdErr);
     }
 
+    int successCount = 0;
+    Exception firstFailure = null;
+    for (File test : tests) {
+      Outcome outcome = outcomes.get(test);
+      System.out.print(outcome.log);
+      if (outcome.failure == null) {
+        successCount++;
+      } else if (firstFailure == null) {
+        firstFailure = outcome.failure;
+      }
+    }
+
+    printSummary(successCount, tests.size());
+
+    if (firstFailure instanceof MojoFailureException) {
+      throw (MojoFailureException) firstFailure;
+    }
+    if (firstFailure != null) {
+      throw (MojoExecutionException) firstFailure;
+    }
+    return true;
+  }
+
+  /** Runs a single test on the current thread, capturing everything it prints. */
+  private static Outcome runCaptured(File test, File jflexUberJar) {
+    ByteArrayOutputStream log = new ByteArrayOutputStream();
+    PrintStream capture = new PrintStream(log, true);
+    PrintStream previousOut = ThreadRoutingPrintStream.setOut(capture);
+    PrintStream previousErr = ThreadRoutingPrintStream.setErr(capture);
+    Exception failure = null;
+    try {
+      runTest(test, jflexUberJar);
+    } catch (MojoFailureException | MojoExecutionException e) {
+      failure = e;
+    } finally {
+      ThreadRoutingPrintStream.setOut(previousOut);
+      ThreadRoutingPrintStream.setErr(previousErr);
+    }
+    return new Outcome(log.toString(), failure);
+  }
+
+  /**
+   * Loads and runs a single test case.
+   *
+   * @throws MojoFailureException if the test fails
+   * @throws MojoExecutionException if the test cannot be executed
+   */
+  private static void runTest(File test, File jflexUberJar)
+      throws MojoExecutionException, MojoFailureException {
+    if (verbose) {
+      System.out.println("");
+      System.out.println("Processing test [" + test + "]");
+    }
+    try {
+      // set path to test
+      File currentDir = new File(test.getParent());
+      // trying to load
+      TestLoader loader = new TestLoader(new FileReader(test));
+      TestCase currentTest = loader.load();
+      currentTest.init(currentDir);
+
+      // failure above would have thrown exception
+      if (verbose) System.out.println("Loaded successfully"); // - Details:\n"+currentTest);
+
+      if (currentTest.checkJavaVersion()) {
+        currentTest.createScanner(jflexUberJar, verbose);
+        while (currentTest.hasMoreToDo()) currentTest.runNext(jflexUberJar);
+
+        System.out.println("Test [" + test + "] finished successfully.");
+      } else {
+        System.out.println("Test [" + test + "] skipped (JDK version mismatch).");
+      }
+    } catch (TestFailException e) {
+      throw new MojoFailureException("Test [" + test + "] failed", e);
+    } catch (Exception e) {
+      throw new MojoExecutionException("Test [" + test.getName() + "] failed to execute", e);
+    }
+  }
+
+  private static void printSummary(int successCount, int totalCount) {
     // Give some Status
     System.out.println();
     System.out.println(
@@ -117,6 +231,16 @@ public class TestsuiteUtils {
             + " tests completed successfully, "
             + (totalCount - successCount)
             + " tests failed.");
-    return 0 == totalCount - successCount;
+  }
+
+  /** Captured output and failure (if any) of a test case run on a worker thread. */
+  private static class Outcome {
+    final String log;
+    final Exception failure;
+
+    Outcome(String log, Exception failure) {
+      this.log = log;
+      this.failure = failure;
+    }
   }
 }
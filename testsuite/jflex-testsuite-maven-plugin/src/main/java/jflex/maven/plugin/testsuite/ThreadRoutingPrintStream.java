@@ -0,0 +1,83 @@
+package jflex.maven.plugin.testsuite;
+
+import java.io.PrintStream;
+
+/**
+ * A {@link PrintStream} that forwards output to a per-thread target, and to a fallback stream for
+ * threads that have no target.
+ *
+ * <p>Installed as {@code System.out} and {@code System.err} while test cases run concurrently, so
+ * that the output of each test case (and of the scanners it runs) can be captured separately.
+ */
+class ThreadRoutingPrintStream extends PrintStream {
+
+  private final ThreadLocal<PrintStream> target = new ThreadLocal<>();
+
+  ThreadRoutingPrintStream(PrintStream fallback) {
+    super(fallback, true);
+  }
+
+  /**
+   * Routes output of the current thread to {@code stream}.
+   *
+   * @param stream the new target, or {@code null} to route to the fallback stream.
+   * @return the previous target of the current thread, {@code null} for the fallback stream.
+   */
+  PrintStream route(PrintStream stream) {
+    PrintStream previous = target.get();
+    if (stream == null) target.remove();
+    else target.set(stream);
+    return previous;
+  }
+
+  @Override
+  public void write(int b) {
+    PrintStream t = target.get();
+    if (t != null) t.write(b);
+    else super.write(b);
+  }
+
+  @Override
+  public void write(byte[] buf, int off, int len) {
+    PrintStream t = target.get();
+    if (t != null) t.write(buf, off, len);
+    else super.write(buf, off, len);
+  }
+
+  @Override
+  public void flush() {
+    PrintStream t = target.get();
+    if (t != null) t.flush();
+    else super.flush();
+  }
+
+  /**
+   * Redirects {@code System.out} for the current thread if output is routed per thread, globally
+   * otherwise.
+   *
+   * @return the stream to pass to this method to restore the previous state.
+   */
+  static PrintStream setOut(PrintStream out) {
+    if (System.out instanceof ThreadRoutingPrintStream) {
+      return ((ThreadRoutingPrintStream) System.out).route(out);
+    }
+    PrintStream previous = System.out;
+    System.setOut(out);
+    return previous;
+  }
+
+  /**
+   * Redirects {@code System.err} for the current thread if output is routed per thread, globally
+   * otherwise.
+   *
+   * @return the stream to pass to this method to restore the previous state.
+   */
+  static PrintStream setErr(PrintStream err) {
+    if (System.err instanceof ThreadRoutingPrintStream) {
+      return ((ThreadRoutingPrintStream) System.err).route(err);
+    }
+    PrintStream previous = System.err;
+    System.setErr(err);
+    return previous;
+  }
+}
@@ -8,9 +8,10 @@ import edu.tum.cup2.grammar.Grammar;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
 import java.io.PrintStream;
 
 import edu.tum.cup2.generator.exceptions.GeneratorException;
@@ -47,11 +48,51 @@ public abstract class AutomatonFactory<I extends Item, S extends LRState<I>>
 	// the following variables are used for the parallel AutomatonFactories
 	protected int numThreads;
 	protected final static int defaultNumThreads = 4;
-	protected ThreadPoolExecutor threadPool;
 	protected S state0;
-	protected int taskCount = 0;
-	protected ReentrantLock taskCountLock;
-	protected Thread shutDownThread;
+	
+	// worker pools shared by all parallel AutomatonFactories, by number of threads
+	private static final ConcurrentMap<Integer, ForkJoinPool> pools = new ConcurrentHashMap<Integer, ForkJoinPool>();
+	
+	/**
+	 * Used in the parallel AutomatonFactories.
+	 * A group of {@link WorkerTask}s, which runs on a shared {@link ForkJoinPool}
+	 * and completes when all of its tasks, including those submitted while
+	 * running, are done. The pools use daemon threads and are kept for later
+	 * runs, so no threads are created or shut down per automaton.
+	 */
+	protected static final class TaskGroup extends CountedCompleter<Void> {
+		private static final long serialVersionUID = 1L;
+		
+		private final List<WorkerTask<?>> initialTasks = new LinkedList<WorkerTask<?>>();
+		
+		/**
+		 * Adds a task which is started when the group is run.
+		 */
+		public void add(WorkerTask<?> task) {
+			initialTasks.add(task);
+		}
+		
+		/**
+		 * Runs all tasks of this group with the given number of threads and waits
+		 * until they are done. Exceptions thrown by a task are rethrown.
+		 */
+		public void run(int numThreads) {
+			pools.computeIfAbsent(numThreads, ForkJoinPool::new).invoke(this);
+		}
+		
+		@Override
+		public void compute() {
+			for (WorkerTask<?> task : initialTasks)
+				submit(task);
+			initialTasks.clear();
+			tryComplete();
+		}
+		
+		private void submit(WorkerTask<?> task) {
+			addToPendingCount(1);
+			task.fork();
+		}
+	}
 	
 	/**
 	 * Used in the parallel AutomatonFactories.
@@ -61,65 +102,43 @@ public abstract class AutomatonFactory<I extends Item, S extends LRState<I>>
 	 *
 	 * @param <WS> type of state used
 	 */
-	protected abstract class WorkerTask<WS> implements Callable<Integer> {
+	protected abstract static class WorkerTask<WS> extends CountedCompleter<Void> {
+		private static final long serialVersionUID = 1L;
 
+		protected final TaskGroup group;
 		protected WS stateKernel;
 		protected WS currentState;
-		protected ThreadPoolExecutor threadPool;
-		protected ReentrantLock taskCountLock;
 
 		/**
 		 * Constructor for a new WorkerTask.
+		 * @param group the group this task belongs to.
 		 * @param state the state to be handled by this task.
 		 */
-		public WorkerTask(WS state, ThreadPoolExecutor threadPool, ReentrantLock lock) {
+		public WorkerTask(TaskGroup group, WS state) {
+			super(group);
+			this.group = group;
 			this.stateKernel = state;
-			this.threadPool = threadPool;
-			this.taskCountLock = lock;
-			incrementTaskCount();
 		}
 		
 		/**
-		 * When a thread for this task is started by the ThreadPool, this method is called.
+		 * Handles the state of this task. New tasks are started by {@link #submit(WorkerTask)}.
 		 */
-		public Integer call() {
-			return 0;
-		}
+		protected abstract void handle();
 		
 		/**
-		 * Decrements the number of running tasks.
-		 * If this number is 0, the ThreadPool is notified.
+		 * When a thread for this task is started by the pool, this method is called.
 		 */
-		protected void decrementTaskCount() {
-			taskCountLock.lock();
-			try {
-				taskCount--;
-//				System.out.println("\ttaskCount decremented to "+taskCount+" by "+Thread.currentThread());
-				// check if this task was the last
-				if(taskCount == 0) { 
-					// wake up shutdown-thread
-					synchronized(threadPool) {
-						threadPool.notify();
-					}
-				}
-			} catch(Exception e) {
-				e.printStackTrace();
-			} finally {
-				taskCountLock.unlock();
-			}
+		@Override
+		public final void compute() {
+			handle();
+			tryComplete();
 		}
-
+		
 		/**
-		 * Increments the number of running tasks.
+		 * Starts a new task of the same group.
 		 */
-		protected void incrementTaskCount() {
-			taskCountLock.lock();
-			try {
-				taskCount++;
-//				System.out.println("taskCount incremented to "+taskCount+" by "+Thread.currentThread());
-			} finally {
-				taskCountLock.unlock();
-			}
+		protected void submit(WorkerTask<?> task) {
+			group.submit(task);
 		}
 		
 	}
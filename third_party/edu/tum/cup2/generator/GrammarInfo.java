@@ -6,6 +6,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import edu.tum.cup2.generator.items.LR0Item;
 import edu.tum.cup2.generator.terminals.EfficientTerminalSet;
 import edu.tum.cup2.grammar.Grammar;
 import edu.tum.cup2.grammar.NonTerminal;
@@ -31,6 +32,7 @@ public final class GrammarInfo
 	private final FirstSets firstSets;
 	private final HashMap<NonTerminal, List<Production>> productionsStartingWith;
 	private final Map<NonTerminal, List<Production>> constProductionsStartingWith;
+	private final HashMap<Production, LR0Item> initialItems;
 	
 	private final EfficientTerminalSet emptyTerminalsSet;
 	
@@ -56,6 +58,12 @@ public final class GrammarInfo
 			this.productionsStartingWith.put(nonTerminal, Collections.unmodifiableList(list));
 		}
 		this.constProductionsStartingWith = Collections.unmodifiableMap(this.productionsStartingWith);
+		//one shared LR(0) item at the beginning of each production
+		this.initialItems = new HashMap<Production, LR0Item>();
+		for (Production p : grammar.getProductions())
+		{
+			this.initialItems.put(p, new LR0Item(p, 0));
+		}
 		//empty set of terminals
 		this.emptyTerminalsSet = new EfficientTerminalSet(grammar.getTerminals());
 	}
@@ -88,6 +96,20 @@ public final class GrammarInfo
 	}
 
 
+	/**
+	 * Gets the {@link LR0Item} with the position at the beginning of the given
+	 * production. The same instance is returned for each call, so the closure
+	 * computations share their items (and the items reached by shifting them).
+	 */
+	public LR0Item getInitialItem(Production production)
+	{
+		LR0Item ret = initialItems.get(production);
+		if (ret == null)
+			ret = new LR0Item(production, 0);
+		return ret;
+	}
+
+
 	/**
 	 * Gets the set of all nullable non-terminals, that means the
 	 * non-terminals that can derive the empty string.
@@ -52,7 +52,7 @@ public class LLkGenerator extends Generator
 		super(grammar.extendByAuxStartProduction(), precedences, verbosity);
 		
 		// Additional infos
-		this.grammarInfo = new GrammarInfo(grammar);
+		this.grammarInfo = new GrammarInfo(this.grammar);
 		this.k = k;
 		
 		
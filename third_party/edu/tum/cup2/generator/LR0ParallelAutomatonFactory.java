@@ -6,13 +6,6 @@ import edu.tum.cup2.generator.exceptions.GeneratorException;
 import edu.tum.cup2.generator.items.LR0Item;
 import edu.tum.cup2.generator.states.LR0State;
 import edu.tum.cup2.grammar.Symbol;
-import java.util.LinkedList;
-import java.util.Objects;
-import java.util.concurrent.Callable;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Factory for a LR(0) automaton, that is computed concurrently.
@@ -24,19 +17,15 @@ import java.util.concurrent.locks.ReentrantLock;
 public class LR0ParallelAutomatonFactory extends AutomatonFactory<LR0Item, LR0State> {
 
   private class WorkerTaskLR0 extends WorkerTask<LR0State> {
+    private static final long serialVersionUID = 1L;
 
-    public WorkerTaskLR0(LR0State state, ThreadPoolExecutor threadPool, ReentrantLock lock) {
-      super(state, threadPool, lock);
+    public WorkerTaskLR0(TaskGroup group, LR0State state) {
+      super(group, state);
     }
 
-    /**
-     * Handles one state; creates new tasks by shifting.
-     *
-     * @return 0 - we don't care about the return value, but the {@link Callable} interface forces
-     *     us to return an Integer.
-     */
+    /** Handles one state; creates new tasks by shifting. */
     @Override
-    public Integer call() {
+    protected void handle() {
 
       // for all states, find their edges to other (possibly new) states
       // Appel says: "until E and T did not change in this iteration".
@@ -60,17 +49,13 @@ public class LR0ParallelAutomatonFactory extends AutomatonFactory<LR0Item, LR0St
             LR0State shiftedState = (LR0State) currentState.goTo(symbol);
             // new state?
             if (dfaStates.add(shiftedState)) {
-              threadPool.submit(new WorkerTaskLR0(shiftedState, threadPool, taskCountLock));
+              submit(new WorkerTaskLR0(group, shiftedState));
             }
             // add the edge
             dfaEdges.add(new Edge(stateKernel, symbol, shiftedState, item));
           } /* end else */
         } /* end if */
       } /* end for */
-
-      decrementTaskCount();
-
-      return 0;
     }
   }
 
@@ -92,56 +77,11 @@ public class LR0ParallelAutomatonFactory extends AutomatonFactory<LR0Item, LR0St
 
     initCreation();
 
-    threadPool =
-        new ThreadPoolExecutor(
-            numThreads,
-            numThreads,
-            Long.MAX_VALUE,
-            TimeUnit.NANOSECONDS,
-            new LinkedBlockingQueue<Runnable>());
-    taskCountLock = new ReentrantLock();
-
-    // create a new thread that waits until all tasks are done
-    shutDownThread =
-        new Thread() {
-          @Override
-          public void run() {
-            try {
-              synchronized (threadPool) {
-                threadPool.wait();
-              }
-            } catch (InterruptedException e) {
-              e.printStackTrace();
-            }
-            threadPool.shutdown();
-          }
-        };
-    shutDownThread.start();
-
-    // we need to ensure that the shutDownThread is already waiting to be notified
-    while (!Objects.equals(shutDownThread.getState(), Thread.State.WAITING)) {}
-
-    taskCountLock.lock();
-    try {
-      taskCount = 0;
-    } finally {
-      taskCountLock.unlock();
-    }
-    // add one task for state0 to the thread pool and start the thread pool
-    LinkedList<WorkerTaskLR0> tasks = new LinkedList<WorkerTaskLR0>();
-    tasks.add(new WorkerTaskLR0(state0, threadPool, taskCountLock));
-    try {
-      threadPool.invokeAll(tasks);
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    // handle state0 and all states reachable from it on the shared pool
+    TaskGroup tasks = new TaskGroup();
+    tasks.add(new WorkerTaskLR0(tasks, state0));
+    tasks.run(numThreads);
 
-    // wait until the ThreadPool has been shut down
-    try {
-      shutDownThread.join();
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-    }
     printDebugResult();
 
     return ret;
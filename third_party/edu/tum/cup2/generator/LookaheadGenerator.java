@@ -1,9 +1,6 @@
 package edu.tum.cup2.generator;
 
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -22,340 +19,209 @@ import edu.tum.cup2.grammar.Terminal;
 
 
 /**
- * This class serves as factory for lookaheads of arbitrary and fixed length for a given grammar. The algorithm is a
- * somewhat intuitive approach.
- * 
+ * This class serves as factory for lookaheads of arbitrary and fixed length for a given grammar.
+ *
+ * The lookahead of an item A → α . β is FIRST_k(β FOLLOW_k(A)), the set of terminal sequences of
+ * length k which may be read when the parser is at this item. The FIRST_k and FOLLOW_k sets of the
+ * non-terminals are computed as fixpoints, so nullable symbols and left recursions are handled.
+ * Sequences ending with {@link SpecialTerminals#EndOfInputStream} may be shorter than k, as nothing
+ * can follow them.
+ *
  * @author Gero
- * 
+ *
  */
 public class LookaheadGenerator
 {
-	// private final int terminalsSize;
-	private final Map<NonTerminal, List<Production>> productionsFor;
-	private final Map<NonTerminal, List<BasicItem>> followItems;
-	
-	
+	private final Grammar grammar;
+
+	// FIRST_k and FOLLOW_k sets of the non-terminals for the lookahead length laLength
+	private int laLength = -1;
+	private Map<NonTerminal, TerminalSeqSet> first;
+	private Map<NonTerminal, TerminalSeqSet> follow;
+
+
 	/**
 	 * @param gr
 	 */
 	public LookaheadGenerator(Grammar gr)
 	{
-		// this.terminalsSize = gr.getTerminals().contains(SpecialTerminals.EndOfInputStream) ? gr.getTerminals().size() -
-		// 1
-		// : gr.getTerminals().size();
-		//
-		this.productionsFor = calcProductionsStartingWith(gr);
-		this.followItems = calcFollowItems(gr);
+		this.grammar = gr;
 	}
-	
-	
+
+
 	/**
-	 * @param gr
+	 * @param gri
 	 */
 	public LookaheadGenerator(GrammarInfo gri)
 	{
-		this.productionsFor = gri.getProductionsFrom();
-		this.followItems = calcFollowItems(gri.getGrammar());
+		this.grammar = gri.getGrammar();
+	}
+
+
+	public ITerminalSeqSet calcLookahead(Item forItem, int laLength) throws LLkGeneratorException
+	{
+		return calcLookahead(forItem.getProduction(), forItem.getPosition(), laLength);
 	}
-	
-	
+
+
+	public ITerminalSeqSet calcLookahead(Production production, int position, int laLength) throws LLkGeneratorException
+	{
+		if (laLength < 1)
+		{
+			throw new LLkGeneratorException("The length of the lookahead must be positive, not " + laLength + "!");
+		}
+		prepare(laLength);
+		return concat(first(production.getRHS(), position), follow.get(production.getLHS()));
+	}
+
+
 	/**
-	 * Build map NonTerminal (1) -> (*) productions (starting with NonTerminal)
-	 * 
-	 * @param gr
-	 * @return
+	 * Computes the FIRST_k and FOLLOW_k sets of all non-terminals for the given length, unless they are
+	 * already known.
 	 */
-	private static Map<NonTerminal, List<Production>> calcProductionsStartingWith(Grammar gr)
+	private void prepare(int laLength)
 	{
-		final HashMap<NonTerminal, List<Production>> productionsStartingWith = new HashMap<NonTerminal, List<Production>>();
-		for (NonTerminal nonTerminal : gr.getNonTerminals())
+		if (this.laLength == laLength)
 		{
-			final List<Production> list = new LinkedList<Production>();
-			for (Production p : gr.getProductions())
+			return;
+		}
+		this.laLength = laLength;
+
+		first = new HashMap<NonTerminal, TerminalSeqSet>();
+		follow = new HashMap<NonTerminal, TerminalSeqSet>();
+		for (Production production : grammar.getProductions())
+		{
+			first.put(production.getLHS(), new TerminalSeqSet());
+			follow.put(production.getLHS(), new TerminalSeqSet());
+		}
+
+		// FIRST_k: each production adds the sequences its right hand side may start with
+		boolean changed = true;
+		while (changed)
+		{
+			changed = false;
+			for (Production production : grammar.getProductions())
 			{
-				if (p.getLHS() == nonTerminal)
-					list.add(p);
+				changed |= addAll(first.get(production.getLHS()), first(production.getRHS(), 0));
 			}
-			productionsStartingWith.put(nonTerminal, Collections.unmodifiableList(list));
 		}
-		return productionsStartingWith;
-	}
-	
-	
-	private static Map<NonTerminal, List<BasicItem>> calcFollowItems(Grammar gr)
-	{
-		// Build map of NonTerminal (1) -> (*) "follow Item" associations
-		HashMap<NonTerminal, List<BasicItem>> followItems = new HashMap<NonTerminal, List<BasicItem>>();
-		for (Production production : gr.getProductions())
+
+		// FOLLOW_k: nothing follows the start symbol (the end of input is part of the start production,
+		// if the grammar is extended). Each occurrence of a non-terminal adds what may follow it there.
+		follow.get(grammar.getStartProduction().getLHS()).plus(new TerminalSeqf());
+		changed = true;
+		while (changed)
 		{
-			final List<Symbol> rhs = production.getRHS();
-			int i = 0;
-			for (Symbol symbol : rhs)
+			changed = false;
+			for (Production production : grammar.getProductions())
 			{
-				if (symbol instanceof NonTerminal)
+				final List<Symbol> rhs = production.getRHS();
+				for (int pos = 0; pos < rhs.size(); pos++)
 				{
-					final NonTerminal nonTerminal = (NonTerminal) symbol;
-					List<BasicItem> items = followItems.get(nonTerminal);
-					if (items == null)
+					if (rhs.get(pos) instanceof NonTerminal)
 					{
-						items = new LinkedList<BasicItem>();
-						followItems.put(nonTerminal, items);
+						final ITerminalSeqSet followers = concat(first(rhs, pos + 1), follow.get(production.getLHS()));
+						changed |= addAll(follow.get(rhs.get(pos)), followers);
 					}
-					items.add(new BasicItem(production, i + 1));
 				}
-				
-				i++;
 			}
 		}
-		// // Assure that the lookaheads for the transition start -> (end) will be generated
-		// if (gr.getStartProduction().getLHS() == SpecialNonTerminals.StartLHS)
-		// {
-		// final Production pseudoProduction = new Production(-1, SpecialNonTerminals.StartLHS,
-		// SpecialTerminals.EndOfInputStream);
-		// addRelation(SpecialNonTerminals.StartLHS, pseudoProduction, 0);
-		// }
-		return followItems;
-	}
-	
-	
-	public ITerminalSeqSet calcLookahead(Item forItem, int laLength) throws LLkGeneratorException
-	{
-		return calcLookahead(forItem.getProduction(), forItem.getPosition(), laLength);
 	}
-	
-	
-	public ITerminalSeqSet calcLookahead(Production production, int position, int laLength) throws LLkGeneratorException
+
+
+	/**
+	 * @return FIRST_k of the given symbols starting at the given position, using the FIRST_k sets of the
+	 *         non-terminals computed so far
+	 */
+	private ITerminalSeqSet first(List<Symbol> symbols, int position)
 	{
-		final BasicItem startItem = new BasicItem(production, position);
-		final TerminalSeqf emptyStartPath = new TerminalSeqf();
-		final TerminalSeqSet result = new TerminalSeqSet();
-		try
-		{
-			descend(startItem, 0, laLength, emptyStartPath, result);
-		} catch (StackOverflowError err)
+		ITerminalSeqSet result = new TerminalSeqSet(new TerminalSeqf());
+		for (int pos = position; pos < symbols.size(); pos++)
 		{
-			throw new LLkGeneratorException(
-					"Cannot create lookahead; the grammar seems to contain non-trivial left-recursions!", err);
+			final Symbol symbol = symbols.get(pos);
+			if (symbol == SpecialTerminals.Epsilon)
+			{
+				// Jump over Epsilon as it's not visible
+				continue;
+			}
+			if (symbol instanceof Terminal)
+			{
+				result = concat(result, new TerminalSeqSet(new TerminalSeqf((Terminal) symbol)));
+			} else
+			{
+				result = concat(result, first.get(symbol));
+			}
+			if (allComplete(result))
+			{
+				break;
+			}
 		}
 		return result;
 	}
-	
-	
+
+
 	/**
-	 * @param curItem The item which is currently handled
-	 * @param curDepth The recursion depth the algorithm is actually in. > 0 means processing the items symbols (first),
-	 *           < 0 means somewhere behind the item (follow), == 0 means current item.
-	 * @param maxLength The length the branches/paths should try to reach
-	 * @param parentPath The path which lays before the curItem
-	 * @param result Here all finished paths are stored
-	 * @return The currently not finished paths
-	 * @throws LLkGeneratorException In case the given a left-recursion is detected
+	 * @return The set of all sequences of a sequence from a and one from b, cut to the lookahead length.
+	 *         Complete sequences of a are taken as they are.
 	 */
-	private ITerminalSeqSet descend(BasicItem curItem, int curDepth, final int maxLength, TerminalSeqf parentPath,
-			TerminalSeqSet result) throws LLkGeneratorException
+	private ITerminalSeqSet concat(ITerminalSeqSet a, ITerminalSeqSet b)
 	{
-		TerminalSeqSet curPaths = new TerminalSeqSet(parentPath);
-		
-		// Walk the path along the current item..
+		final TerminalSeqSet result = new TerminalSeqSet();
+		for (TerminalSeqf seqA : a)
 		{
-			final List<Symbol> rhs = curItem.getProduction().getRHS();
-			for (int pos = curItem.getPosition(); pos < rhs.size() && curPaths.size() > 0; pos++)
+			if (isComplete(seqA))
 			{
-				// Handle symbol
-				final Symbol curSymbol = rhs.get(pos);
-				if (curSymbol instanceof Terminal)
-				{
-					// Handle terminal: Simply add it to all current paths
-					final Terminal curTerminal = (Terminal) curSymbol;
-					
-					// Jump over Epsilon as it's not visible
-					if (curTerminal == SpecialTerminals.Epsilon)
-					{
-						continue;
-					}
-					
-					// Else: add Terminal to current path!
-					final Iterator<TerminalSeqf> it = curPaths.iterator();
-					final TerminalSeqSet newCurPaths = new TerminalSeqSet();
-					while (it.hasNext())
-					{
-						final TerminalSeqf curPath = it.next();
-						it.remove(); // Remove it, it has to be changed anyway
-						final ITerminalSeq curPathFinished = curPath.append(curTerminal);
-						
-						// Check for length: if...
-						if (curPath.size() + 1 == maxLength || curTerminal == SpecialTerminals.EndOfInputStream)
-						{
-							// ... we'll reach maxLength in this step:
-							// Stop walking this path, and save it as branch in result
-							result.plus(curPathFinished);
-						} else
-						{
-							// else: We have to follow this path a bit longer. Add it so it is not forgotten
-							newCurPaths.plus(curPathFinished);
-						}
-					}
-					curPaths = newCurPaths;
-				} else if (curSymbol instanceof NonTerminal)
-				{
-					// Handle non-terminal: Add all possible paths to all current paths
-					final NonTerminal curNonTerminal = (NonTerminal) curSymbol;
-					
-					// For all currently open paths: Follow all paths the non-terminal allows/resolves to
-					// (and store the result as new current paths, as the non-terminal is then consumed!)
-					final TerminalSeqSet newCurPaths = new TerminalSeqSet();
-					for (TerminalSeqf curPath : curPaths)
-					{
-						// For the current path: Follow all paths the non-terminal allows
-						for (Production nextProduction : this.productionsFor.get(curNonTerminal))
-						{
-							// // Check for trivial left recursion, 0 and 1 step deep
-							// final Symbol nextFirstRhsSymbol = nextProduction.getRHS().get(0);
-							// if (nextFirstRhsSymbol == curNonTerminal)
-							// {
-							// // 0: rule resolves to itself
-							// throw new LLkGeneratorException("The production " + nextProduction
-							// + " is left-recursive; LLkGenerator cannot handle such a grammar!");
-							// } else if (nextFirstRhsSymbol == curItem.getProduction().getLHS())
-							// {
-							// // Check productivity before
-							// if (!isProductiveBefore(curItem, nextProduction.getLHS()))
-							// { // 1: rule resolves to itself with one intermediate rule
-							// throw new LLkGeneratorException("The production " + nextProduction
-							// + " is left-recursive; LLkGenerator cannot handle such a grammar!");
-							// }
-							// }
-							
-							final ITerminalSeqSet newPossiblePaths = descend(new BasicItem(nextProduction, 0), curDepth + 1,
-									maxLength, curPath, result);
-							newCurPaths.plusAll(newPossiblePaths);
-						}
-					}
-					
-					// Now we consumed the current non-terminal, and have to procceed with the paths we resolved it to
-					curPaths = newCurPaths;
-				}
+				result.plus(seqA);
+				continue;
 			}
-		}
-		
-		// At this point, we finished the item, but there might still be branches/paths which are not long enough.
-		// How we have to decide: If we are somewhere down in the tree, we simply return our current paths and can rely
-		// on the upper contexts to handle the following symbols.
-		// But if we are at the the top, we have to take into account all possible following productions.
-		if (curDepth > 0)
-		{
-			return curPaths;
-		} else
-		{
-			if (!curPaths.isEmpty())
+			for (TerminalSeqf seqB : b)
 			{
-				// As long as there are items following the one we just resolved:
-				// Resolve all possible 'follow' items to new paths and return them
-				final ITerminalSeqSet newCurPaths = new TerminalSeqSet();
-				final List<BasicItem> followups = this.followItems.get(curItem.getProduction().getLHS());
-				if (followups != null && !followups.isEmpty())
-				{
-					for (TerminalSeqf curPath : curPaths)
-					{
-						for (BasicItem item : followups)
-						{
-							// Check
-							final List<Symbol> rhs = item.getProduction().getRHS();
-							final Symbol lastSymbol = rhs.get(rhs.size() - 1);
-							if (lastSymbol == curItem.getProduction().getLHS())
-							{
-								// Nothing to gain here, except an StackOverflow!
-								continue;
-							}
-							
-							final ITerminalSeqSet newPossiblePaths = descend(item, curDepth - 1, maxLength, curPath, result);
-							newCurPaths.plusAll(newPossiblePaths);
-						}
-					}
-					
-					return newCurPaths;
-				} else
+				ITerminalSeq seq = seqA;
+				for (Terminal terminal : seqB)
 				{
-					// There might be still some paths which are not finished yet because they are not resolveable for
-					// maxLength.
-					// Simply add them to the tree!
-					final Iterator<TerminalSeqf> it = curPaths.iterator();
-					while (it.hasNext())
+					if (isComplete(seq))
 					{
-						final TerminalSeqf pathStub = it.next();
-						if (!pathStub.isEmtpy())
-						{
-							result.plus(pathStub);
-							it.remove();
-						}
+						break;
 					}
+					seq = seq.append(terminal);
 				}
+				result.plus(seq);
 			}
-			
-			return curPaths;
 		}
+		return result;
 	}
-	
-	
-	// /**
-	// * Not yet ready!!!
-	// *
-	// * @param item
-	// * @param targetSymbol
-	// * @return
-	// */
-	// private static boolean isProductiveBefore(BasicItem item, Symbol targetSymbol)
-	// {
-	// final Iterator<Symbol> rhsIt = item.getProduction().getRHS().iterator();
-	// while (rhsIt.hasNext())
-	// {
-	// final Symbol curSymbol = rhsIt.next();
-	//
-	// if (curSymbol.equals(targetSymbol))
-	// {
-	// return false;
-	// }
-	//
-	// if (curSymbol instanceof Terminal)
-	// {
-	// return true;
-	// }
-	// }
-	// return false;
-	// }
-	
+
+
 	/**
-	 * Simple container
+	 * @return <code>true</code> if nothing can be appended to the given sequence, as it has the lookahead
+	 *         length or ends with the end of input
 	 */
-	private static class BasicItem
+	private boolean isComplete(ITerminalSeq seq)
 	{
-		private final Production production;
-		private final int position;
-		
-		
-		public BasicItem(Production production, int position)
-		{
-			this.production = production;
-			this.position = position;
-		}
-		
-		
-		public Production getProduction()
-		{
-			return production;
-		}
-		
-		
-		public int getPosition()
-		{
-			return position;
-		}
-		
-		
-		@Override
-		public String toString()
+		return seq.size() >= laLength || (seq.size() > 0 && seq.peekLast() == SpecialTerminals.EndOfInputStream);
+	}
+
+
+	private boolean allComplete(ITerminalSeqSet seqs)
+	{
+		for (TerminalSeqf seq : seqs)
 		{
-			return production.toString(position);
+			if (!isComplete(seq))
+			{
+				return false;
+			}
 		}
+		return true;
+	}
+
+
+	/**
+	 * @return <code>true</code> if the target set changed
+	 */
+	private static boolean addAll(TerminalSeqSet target, ITerminalSeqSet seqs)
+	{
+		final int oldSize = target.size();
+		target.plusAll(seqs);
+		return target.size() != oldSize;
 	}
 }
@@ -104,7 +104,7 @@ public final class LALR1CPItem
 		if (stripped.position >= stripped.getProduction().getRHS().size())
 			throw new RuntimeException(
 				"Shifting not possible: Item already closed: " + stripped.production.toString(stripped.position));
-		return new LALR1CPItem(new LR0Item(stripped.production, stripped.position + 1), lookaheads);
+		return new LALR1CPItem(stripped.shift(), lookaheads);
 	}
 	
 	
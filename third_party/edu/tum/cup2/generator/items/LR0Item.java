@@ -23,6 +23,7 @@ public class LR0Item implements Item {
   protected final Symbol nextSymbol;
   protected final int hashCode;
   private final boolean shiftable;
+  private LR0Item shifted = null; // compute on demand
 
   /**
    * Creates a new {@link LR0Item}, using the given {@link Production} and position within this
@@ -76,8 +77,14 @@ public class LR0Item implements Item {
     if (!isShiftable())
       throw new RuntimeException("Shifting not possible: Item already closed: " + this);
 
-    // return shifted item
-    return new LR0Item(production, position + 1);
+    // return shifted item. it is cached, so that all items reached by shifting the same
+    // item are the same instance, which makes comparing them cheap
+    LR0Item ret = shifted;
+    if (ret == null) {
+      ret = new LR0Item(production, position + 1);
+      shifted = ret;
+    }
+    return ret;
   }
 
   /** @return A new {@link LR0Item} with the same production but shifted until it is complete */
@@ -96,11 +103,13 @@ public class LR0Item implements Item {
 
   @Override
   public boolean equals(Object obj) {
+    if (obj == this) return true;
     if (obj instanceof LR0Item) {
       LR0Item l = (LR0Item) obj;
+      if (hashCode != l.hashCode) return false;
+      if (position != l.position) return false;
       // if (production != l.production) //OBSOLETE:
       if (!Objects.equals(production, l.production)) return false;
-      if (position != l.position) return false;
       return true;
     }
     return false;
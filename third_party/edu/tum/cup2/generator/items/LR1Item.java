@@ -78,7 +78,7 @@ public final class LR1Item implements Item {
     if (Objects.equals(this.lookaheads, lookaheads)) {
       return this;
     } else {
-      return new LR1Item(kernel.production, kernel.position, this.lookaheads.plusAll(lookaheads));
+      return new LR1Item(kernel, this.lookaheads.plusAll(lookaheads));
     }
   }
 
@@ -88,7 +88,7 @@ public final class LR1Item implements Item {
       throw new RuntimeException(
           "Shifting not possible: Item already closed: "
               + kernel.production.toString(kernel.position));
-    return new LR1Item(kernel.production, kernel.position + 1, lookaheads);
+    return new LR1Item(kernel.shift(), lookaheads);
   }
 
   /** Gets the lookahead terminals assigned to this item. */
@@ -134,7 +134,7 @@ public final class LR1Item implements Item {
   public LR1Item merge(LR1Item item) {
     if (!Objects.equals(kernel, item.kernel))
       throw new IllegalArgumentException("Only items with equal LR(0) kernel can be merged!");
-    return new LR1Item(kernel.production, kernel.position, lookaheads.plusAll(item.lookaheads));
+    return new LR1Item(kernel, lookaheads.plusAll(item.lookaheads));
   }
 
   @Override
@@ -148,8 +148,10 @@ public final class LR1Item implements Item {
 
   @Override
   public boolean equals(Object obj) {
+    if (obj == this) return true;
     if (obj instanceof LR1Item) {
       LR1Item l = (LR1Item) obj;
+      if (hashCode != l.hashCode) return false;
       if (!Objects.equals(kernel, l.kernel)) return false;
       if (!Objects.equals(lookaheads, l.lookaheads)) return false;
       return true;
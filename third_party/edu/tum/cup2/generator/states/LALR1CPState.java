@@ -79,7 +79,7 @@ public final class LALR1CPState extends LRState<LALR1CPItem> {
         for (Production p :
             grammarInfo.getProductionsFrom((NonTerminal) nextSymbol)) // p is each "X → γ"
         {
-          LR0Item destKernel = new LR0Item(p, 0);
+          LR0Item destKernel = grammarInfo.getInitialItem(p);
           // look, if there is already a LALR(1)-CP item with that LR(0) kernel. if so, add the
           // new lookahead symbols there. If not, add the LALR(1)-CP item to the result set.
           LALR1CPItem sameKernelItem = retItems.get(destKernel);
@@ -88,7 +88,7 @@ public final class LALR1CPState extends LRState<LALR1CPItem> {
             retItems.put(destKernel, sameKernelItem.plusLookaheads(firstSet));
           } else {
             // new item
-            retItems.put(destKernel, new LALR1CPItem(new LR0Item(p, 0), firstSet));
+            retItems.put(destKernel, new LALR1CPItem(destKernel, firstSet));
             queue.add(destKernel);
           }
           // if required, add CP link to source item
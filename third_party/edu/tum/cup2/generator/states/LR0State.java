@@ -79,7 +79,7 @@ public final class LR0State
 			{
 				for (Production p : grammarInfo.getProductionsFrom((NonTerminal) nextSymbol))
 				{
-					LR0Item newitem = new LR0Item(p, 0);
+					LR0Item newitem = grammarInfo.getInitialItem(p);
 					if (!ret.contains(newitem))
 					{
 						ret.add(newitem);
@@ -13,6 +13,7 @@ import edu.tum.cup2.grammar.Terminal;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -82,7 +83,7 @@ public class LR1State extends LRState<LR1Item> {
         for (Production p :
             grammarInfo.getProductionsFrom((NonTerminal) nextSymbol)) // p is each "X → γ"
         {
-          LR0Item newItemLR0 = new LR0Item(p, 0);
+          LR0Item newItemLR0 = grammarInfo.getInitialItem(p);
           // look, if there is already a LR(1) item with that LR(0) kernel. if so, add the
           // new lookahead symbols there. If not, add the LR(1) item to the result set.
           TerminalSet sameKernelItemLookaheads = items.get(newItemLR0);
@@ -104,8 +105,8 @@ public class LR1State extends LRState<LR1Item> {
     }
     // collect resulting LR(1) items
     HashSet<LR1Item> ret = new HashSet<LR1Item>();
-    for (LR0Item itemLR0 : items.keySet()) {
-      ret.add(new LR1Item(itemLR0.getProduction(), itemLR0.getPosition(), items.get(itemLR0)));
+    for (Map.Entry<LR0Item, TerminalSet> item : items.entrySet()) {
+      ret.add(new LR1Item(item.getKey(), item.getValue()));
     }
     return ret;
   }
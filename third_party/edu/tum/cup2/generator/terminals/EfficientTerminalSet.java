@@ -3,6 +3,7 @@ package edu.tum.cup2.generator.terminals;
 import static edu.tum.cup2.grammar.SpecialTerminals.Epsilon;
 import static edu.tum.cup2.util.CollectionTools.set;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
@@ -24,13 +25,14 @@ public final class EfficientTerminalSet
 	implements TerminalSet
 {
 	
-	private final int[] data;
+	private final long[] data;
 	
 	private final Map<Terminal, Integer> indices;
 	private final Collection<Terminal> terminals;
 	
 	//cache
 	private final int indexEpsilon;
+	private final int hashCode;
 	
 	
 	/**
@@ -53,10 +55,11 @@ public final class EfficientTerminalSet
 			indices.put(terminal, count);
 			count++;
 		}
-		int dataCount = (count - 1) / 32 + 1;
-		this.data = new int[dataCount];
+		int dataCount = (count - 1) / 64 + 1;
+		this.data = new long[dataCount];
 		//cache
 		this.indexEpsilon = indices.get(Epsilon);
+		this.hashCode = 0;
 	}
 	
 	
@@ -67,13 +70,14 @@ public final class EfficientTerminalSet
 	 * @param data       the bit array
 	 */
 	private EfficientTerminalSet(Collection<Terminal> terminals,
-		Map<Terminal, Integer> indices, int[] data)
+		Map<Terminal, Integer> indices, long[] data)
 	{
 		this.terminals = terminals;
 		this.indices = indices;
 		this.data = data;
 		//cache
 		this.indexEpsilon = indices.get(Epsilon);
+		this.hashCode = computeHashCode(data);
 	}
 	
 	
@@ -82,7 +86,7 @@ public final class EfficientTerminalSet
 	 */
 	public EfficientTerminalSet empty()
 	{
-		return new EfficientTerminalSet(terminals, indices, new int[data.length]);
+		return new EfficientTerminalSet(terminals, indices, new long[data.length]);
 	}
 	
 	
@@ -101,17 +105,12 @@ public final class EfficientTerminalSet
 	/**
 	 * Returns this set of terminals merged with the given one.
 	 * Optimized implementation for other {@link EfficientTerminalSet}.
+	 * If the given set adds nothing new, <code>this</code> is returned,
+	 * so callers can detect that nothing changed by a reference comparison.
 	 */
 	public EfficientTerminalSet plusAll(EfficientTerminalSet terminals)
 	{
-		if (this.terminals != terminals.terminals)
-			throw new IllegalArgumentException("The two sets were initialized with different terminal arrays");
-		int[] newData = new int[data.length];
-		for (int i = 0; i < data.length; i++)
-		{
-			newData[i] = data[i] | terminals.data[i];
-		}
-		return new EfficientTerminalSet(this.terminals, indices, newData);
+		return union(terminals, -1);
 	}
 	
 	
@@ -122,8 +121,45 @@ public final class EfficientTerminalSet
 	 */
 	public EfficientTerminalSet plusAllExceptEpsilon(EfficientTerminalSet terminals)
 	{
-		boolean valueEpsilon = getBit(indexEpsilon);
-		return plusAll(terminals).setBit(indexEpsilon, valueEpsilon);
+		return union(terminals, indexEpsilon);
+	}
+	
+	
+	/**
+	 * Computes the union of this set and the given one in a single pass,
+	 * without the bit with the given index of the given set (-1 for none).
+	 * Returns one of the two sets if it is already the result.
+	 */
+	private EfficientTerminalSet union(EfficientTerminalSet terminals, int ignoredIndex)
+	{
+		if (this.terminals != terminals.terminals)
+			throw new IllegalArgumentException("The two sets were initialized with different terminal arrays");
+		if (terminals == this)
+			return this;
+		int ignoredBlock = ignoredIndex < 0 ? -1 : ignoredIndex / 64;
+		long ignoredMask = ignoredIndex < 0 ? 0 : ~(1L << (ignoredIndex % 64));
+		long[] newData = null;
+		boolean isOther = ignoredBlock < 0;
+		for (int i = 0; i < data.length; i++)
+		{
+			long other = terminals.data[i];
+			if (i == ignoredBlock)
+				other &= ignoredMask;
+			long merged = data[i] | other;
+			if (merged != terminals.data[i])
+				isOther = false;
+			if (merged != data[i])
+			{
+				if (newData == null)
+					newData = data.clone();
+				newData[i] = merged;
+			}
+		}
+		if (newData == null)
+			return this;
+		else if (isOther)
+			return terminals;
+		return new EfficientTerminalSet(this.terminals, indices, newData);
 	}
 	
 	
@@ -178,9 +214,7 @@ public final class EfficientTerminalSet
 	 */
 	private boolean getBit(int index)
 	{
-		int blockIndex = index / 32;
-		int bitIndex = index % 32;
-		return (data[blockIndex] & (1 << bitIndex)) != 0;
+		return (data[index / 64] & (1L << (index % 64))) != 0;
 	}
 	
 	
@@ -189,13 +223,10 @@ public final class EfficientTerminalSet
 	 */
 	private EfficientTerminalSet setBit(int index, boolean value)
 	{
-		int[] newData = data.clone();
-		int blockIndex = index / 32;
-		int bitIndex = index % 32;
-		if (value)
-			newData[blockIndex] |= 1 << bitIndex;
-		else
-			newData[blockIndex] &= ~(1 << bitIndex);
+		if (getBit(index) == value)
+			return this;
+		long[] newData = data.clone();
+		newData[index / 64] ^= 1L << (index % 64);
 		return new EfficientTerminalSet(terminals, indices, newData);
 	}
 	
@@ -237,12 +268,9 @@ public final class EfficientTerminalSet
 	{
 //		if (this.terminals != terminals.terminals)
 //			return false;
-		for (int i = 0; i < data.length; i++)
-		{
-			if (data[i] != terminals.data[i])
-				return false;
-		}
-		return true;
+		if (terminals == this)
+			return true;
+		return hashCode == terminals.hashCode && Arrays.equals(data, terminals.data);
 	}
 	
 	
@@ -275,10 +303,20 @@ public final class EfficientTerminalSet
 	
 	
 	@Override public int hashCode()
+	{
+		return hashCode;
+	}
+	
+	
+	/**
+	 * Computes the hash code of the given bit array, which is the XOR of all
+	 * its 32 bit halves.
+	 */
+	private static int computeHashCode(long[] data)
 	{
 		int ret = 0;
-		for (int d : data)
-			ret ^= d;
+		for (long d : data)
+			ret ^= (int) d ^ (int) (d >>> 32);
 		return ret;
 	}
 	
@@ -5,18 +5,31 @@ import java.io.ObjectOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.FileInputStream;
+import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import edu.tum.cup2.parser.LRParser;
+import edu.tum.cup2.parser.tables.PackedLRTable;
 
 /**
  * This class allows to serialize a {@link LRParser}.
  * 
+ * The parser is saved in the compact binary format of {@link PackedLRTable},
+ * which is memory-mapped when it is loaded again. Files with a serialized
+ * {@link LRParser} object, as written by older versions, can still be loaded.
+ * 
  * @author Michael Hausmann
  */
 public class LRParserSerialization 
 	implements IParserLoader, IParserSaver
 {
 	private String fFileName = "default.cup2"; //file that contains the serialized parser
+	private ClassLoader fClassLoader = null; //loader for the classes of the grammar
 	
 	/**
 	 * construct a LRParserSerialization object associated with a certain file
@@ -27,17 +40,39 @@ public class LRParserSerialization
 		fFileName = strFileName;
 	}
 	
+	/**
+	 * construct a LRParserSerialization object associated with a certain file,
+	 * loading the classes of the grammar with the given class loader
+	 * @param strFileName
+	 * @param classLoader
+	 */
+	public LRParserSerialization(String strFileName, ClassLoader classLoader)
+	{
+		fFileName = strFileName;
+		fClassLoader = classLoader;
+	}
+	
 	/**
 	 * load a LRParser instance from file
 	 */
 	public LRParser loadParser()
 	{
 		try{
+			//parsing table in binary format?
+			try (FileChannel channel = FileChannel.open(Paths.get(fFileName), StandardOpenOption.READ))
+			{
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (buffer.remaining() >= 4 && buffer.getInt(0) == PackedLRTable.MAGIC)
+					return new LRParser(PackedLRTable.read(buffer, getClassLoader()));
+			}
+			
+			//no, serialized LRParser object
 			FileInputStream fis = new FileInputStream(fFileName);
 			ObjectInputStream ois = new ObjectInputStream(fis);
 			LRParser parser = (LRParser)ois.readObject();
+			ois.close();
 			return parser;
-		}catch(FileNotFoundException fnfe)
+		}catch(FileNotFoundException | NoSuchFileException fnfe)
 		{
 			System.err.println("File Not Found: " + fFileName);
 		}
@@ -60,6 +95,18 @@ public class LRParserSerialization
 	public void saveParser(LRParser parser)
 	{
 		try{
+			//write the parsing table in binary format
+			try (OutputStream fos = new FileOutputStream(fFileName))
+			{
+				parser.getPackedTable().write(fos);
+				return;
+			}
+			catch(NotSerializableException nse)
+			{
+				//the grammar can not be stored in binary format, serialize the whole parser instead
+				System.err.println("Parser table not stored in binary format: " + nse.getMessage());
+			}
+			
 			//create file stream for saving the parser
 			FileOutputStream fos = new FileOutputStream(fFileName);
 			ObjectOutputStream oos = new ObjectOutputStream(fos);
@@ -71,8 +118,8 @@ public class LRParserSerialization
 			oos.writeObject(parser);
 			
 			//close the streams
-			fos.close();
 			oos.close();
+			fos.close();
 		}catch(FileNotFoundException fnfe)
 		{
 			System.err.println("FileNotFoundException " + fnfe.getMessage());
@@ -84,5 +131,17 @@ public class LRParserSerialization
 			
 		}
 	}
+	
+	/**
+	 * gets the class loader for the classes of the grammar: the given one,
+	 * otherwise the context class loader of the current thread
+	 */
+	private ClassLoader getClassLoader()
+	{
+		if (fClassLoader != null)
+			return fClassLoader;
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		return loader != null ? loader : LRParserSerialization.class.getClassLoader();
+	}
 
 }
@@ -1,8 +1,8 @@
 package edu.tum.cup2.parser;
 
 import java.io.IOException;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import edu.tum.cup2.parser.exceptions.ParserException;
 import edu.tum.cup2.scanner.Scanner;
@@ -17,7 +17,8 @@ import edu.tum.cup2.semantics.ParserObserver;
  */
 public abstract class AParser
 {
-	protected final List<ParserObserver> observers = new LinkedList<ParserObserver>();
+	//copy-on-write, since observers may be notified by concurrent parses
+	protected final List<ParserObserver> observers = new CopyOnWriteArrayList<ParserObserver>();
 	
 	
 	public abstract Object parse(Scanner input, Object... initArgs) throws IOException, ParserException;
@@ -0,0 +1,60 @@
+package edu.tum.cup2.parser;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/** Unsynchronized, array-backed stack of ints. */
+final class IntStack {
+
+  private int[] values;
+  private int size;
+
+  IntStack(int capacity) {
+    values = new int[capacity];
+  }
+
+  private IntStack(IntStack other) {
+    values = other.values.clone();
+    size = other.size;
+  }
+
+  void push(int value) {
+    if (size == values.length) values = Arrays.copyOf(values, Math.max(16, 2 * size));
+    values[size++] = value;
+  }
+
+  /**
+   * Removes the top value.
+   *
+   * @throws EmptyStackException if the stack is empty
+   */
+  int pop() {
+    if (size == 0) throw new EmptyStackException();
+    return values[--size];
+  }
+
+  /**
+   * Gets the top value.
+   *
+   * @throws EmptyStackException if the stack is empty
+   */
+  int peek() {
+    if (size == 0) throw new EmptyStackException();
+    return values[size - 1];
+  }
+
+  /** Gets the value with the given index, counted from the bottom of the stack. */
+  int get(int index) {
+    if (index < 0 || index >= size) throw new ArrayIndexOutOfBoundsException(index);
+    return values[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Returns an independent copy of this stack. */
+  IntStack copy() {
+    return new IntStack(this);
+  }
+}
@@ -8,6 +8,7 @@ import edu.tum.cup2.grammar.AuxiliaryLHS4SemanticShiftAction;
 import edu.tum.cup2.grammar.NonTerminal;
 import edu.tum.cup2.grammar.Production;
 import edu.tum.cup2.grammar.SpecialTerminals;
+import edu.tum.cup2.grammar.Symbol;
 import edu.tum.cup2.parser.exceptions.LLkParserException;
 import edu.tum.cup2.parser.states.LLkErrorState;
 import edu.tum.cup2.parser.tables.LLkParsingTable;
@@ -18,36 +19,46 @@ import edu.tum.cup2.semantics.Action;
 import edu.tum.cup2.semantics.ActionPerformer;
 import edu.tum.cup2.semantics.SymbolValue;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Deque;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Objects;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.HashMap;
 
 /**
  * This class implements a (strong) LL(k)-Parsing pushdown automaton. Its state is represented by
- * the {@link LLkItem}s on the {@link #stack} - or a {@link LLkParserState} containing these one (or
- * two) items.
+ * the {@link LLkItem}s on the stack - or a {@link LLkState} containing these one (or two) items.
+ *
+ * <p>The stack holds the ids of the items, and the terminals of the lookahead are numbered as well.
+ * Each transition found in the {@link LLkParsingTable} is remembered in a hash table keyed by these
+ * numbers, so the table (and its objects for states and lookaheads) is only consulted once for each
+ * combination of items, symbol and lookahead.
  *
  * @author Gero
  */
 public class LLkParser extends AParser {
   private final boolean DEBUG = false;
 
+  private static final int EXPAND = 0, SHIFT = 1, REDUCE = 2;
+
   protected final LLkParsingTable table;
   private final int k;
 
-  private final Stack<LLkItem> stack;
-  private final Stack<Object> valueStack;
+  // numbered items (equal items share one id) and their kind of transition
+  private final HashMap<LLkItem, Integer> itemIds = new HashMap<LLkItem, Integer>();
+  private LLkItem[] items = new LLkItem[64];
+  private byte[] itemKinds = new byte[64];
+
+  // numbered terminals
+  private final HashMap<Symbol, Integer> terminalIds = new HashMap<Symbol, Integer>();
+
+  // transitions found in the table: the ids of the first and second item of the target state
+  private final PredictionCache predictions;
+  private int[] transitions = new int[64];
+  private int transitionsCount = 0;
 
   /** @param table */
   public LLkParser(LLkParsingTable table) {
     this.table = table;
     this.k = table.getK();
-
-    this.stack = new Stack<LLkItem>();
-    this.valueStack = new Stack<Object>();
+    this.predictions = new PredictionCache(k + 3);
   }
 
   public synchronized Object parse(Scanner input, Object... initArgs)
@@ -56,40 +67,37 @@ public class LLkParser extends AParser {
     // table.getParserInterface().init(this, initArgs);
 
     // # Prepare parser stack
-    stack.clear();
-    final LLkState startState = table.getStartState();
-    stack.push(startState.getFirstItem());
+    final IntStack stack = new IntStack(64);
+    stack.push(itemId(table.getStartState().getFirstItem()));
 
     // # Prepare semantic stack
-    valueStack.clear();
+    final ValueStack valueStack = new ValueStack(64);
     valueStack.push(SymbolValue.NoValue);
+    Object[][] arguments = new Object[8][];
 
     // # Prepare Lookahead
-    final LinkedList<ScannerToken<?>> tokenBuffer = new LinkedList<ScannerToken<?>>();
+    final TokenBuffer tokenBuffer = new TokenBuffer(k + 1);
+
+    // the key for the transition: ids of the top most items, symbol and lookahead
+    final int[] key = new int[k + 3];
 
     // ### Process input
-    final LLkItem endItem = table.getEndState().getFirstItem();
-    LLkItem currentItem = null;
+    final int endItem = itemId(table.getEndState().getFirstItem());
 
     ScannerToken<?> currentToken = readNextToken(input, tokenBuffer, k);
 
     while (stack.size() > 0) {
       // # Init cycle
-      currentItem = stack.peek();
+      final int currentItem = stack.peek();
 
       // Check for Accept..
-      if (Objects.equals(currentItem, endItem)) {
+      if (currentItem == endItem) {
         // # Accept!
         if (DEBUG) {
           if (!(currentToken.getSymbol() == SpecialTerminals.EndOfInputStream)) {
             System.err.println("Accepted, but not end of input stream... error?");
           }
 
-          if (stack.size() != 0) {
-            System.err.println(
-                "Something went wrong; somehow we think we should accept but the stack is not empty...???");
-          }
-
           System.out.println("Accepted!");
         }
 
@@ -99,67 +107,69 @@ public class LLkParser extends AParser {
       }
 
       // # What to do?
-      final ITerminalSeq lookahead = createLookahead(tokenBuffer, k);
-
-      if (!currentItem.isComplete()) {
-        // # Push/Expand or Shift/Consume...
-        // Get new state
-        final LLkState currentState = getTopMostItems(1);
-
-        // ...?
-        if (currentItem.getNextSymbol() instanceof NonTerminal) {
-          // # Expand! Add both incoming items on top of the stack
-          final LLkState to = table.get(currentState, SpecialTerminals.Epsilon, lookahead);
-          checkError(currentToken, to);
-
-          stack.pop();
-          stack.push(to.getSecondItem());
-          stack.push(to.getFirstItem());
+      final int kind = itemKinds[currentItem];
+      key[0] = currentItem;
+      key[1] = (kind == REDUCE) ? stack.get(stack.size() - 2) : -1;
+      key[2] = (kind == SHIFT && tokenBuffer.count > 0) ? tokenBuffer.ids[tokenBuffer.head] : -1;
+      for (int i = 0; i < k; i++) {
+        key[3 + i] = (i < tokenBuffer.count) ? tokenBuffer.ids[tokenBuffer.index(i)] : -1;
+      }
+      int transition = predictions.get(key);
+      if (transition < 0) {
+        transition = findTransition(stack, kind, currentToken, tokenBuffer, key);
+      }
+      final int toFirst = transitions[2 * transition];
 
-          if (DEBUG) {
-            System.out.println("Expand to: " + to);
-          }
-        } else {
-          // # Shift!
-          final LLkState to = table.get(currentState, currentToken.getSymbol(), lookahead);
-          checkError(currentToken, to);
+      if (kind == EXPAND) {
+        // # Expand! Add both incoming items on top of the stack
+        stack.pop();
+        stack.push(transitions[2 * transition + 1]);
+        stack.push(toFirst);
 
-          valueStack.push(currentToken.hasValue() ? currentToken.getValue() : SymbolValue.NoValue);
+        if (DEBUG) {
+          System.out.println("Expand to: " + items[toFirst]);
+        }
+      } else if (kind == SHIFT) {
+        // # Shift!
+        valueStack.push(currentToken.hasValue() ? currentToken.getValue() : SymbolValue.NoValue);
 
-          stack.pop();
-          stack.push(to.getFirstItem());
+        stack.pop();
+        stack.push(toFirst);
 
-          if (DEBUG) {
-            System.out.println("Consume: " + currentToken.getSymbol() + ", change to: " + to);
-          }
-          currentToken = readNextToken(input, tokenBuffer, k); // Consume one input!
+        if (DEBUG) {
+          System.out.println(
+              "Consume: " + currentToken.getSymbol() + ", change to: " + items[toFirst]);
         }
+        currentToken = readNextToken(input, tokenBuffer, k); // Consume one input!
       } else {
         // # Reduce!
-        final LLkState currentState = getTopMostItems(2);
-        final LLkState to = table.get(currentState, SpecialTerminals.Epsilon, lookahead);
-        checkError(currentToken, to);
-
         // Perform reduce action
-        final Production currentProduction = currentItem.getProduction();
+        final Production currentProduction = items[currentItem].getProduction();
         final Action reduceAction = currentProduction.getReduceAction();
         Object newValue = SymbolValue.NoValue;
         if (reduceAction != null) {
+          int count = reduceAction.getParamsCount();
+          if (count >= arguments.length) arguments = Arrays.copyOf(arguments, count + 1);
+          Object[] parameters = arguments[count];
+          if (parameters == null) parameters = arguments[count] = new Object[count];
           newValue =
-              ActionPerformer.perform(reduceAction, valueStack, calcRhsSize(currentProduction));
+              ActionPerformer.perform(
+                  reduceAction,
+                  valueStack.array(),
+                  valueStack.size(),
+                  calcRhsSize(currentProduction),
+                  parameters);
         }
         // For each symbol on the right hand side pop one value from the stack
-        for (int i = 0; i < currentProduction.getRHSSizeWithoutEpsilon(); i++) {
-          valueStack.pop();
-        }
+        valueStack.pop(currentProduction.getRHSSizeWithoutEpsilon());
         valueStack.push(newValue);
 
         stack.pop();
         stack.pop();
-        stack.push(to.getFirstItem());
+        stack.push(toFirst);
 
         if (DEBUG) {
-          System.out.println("Reduce to: " + to);
+          System.out.println("Reduce to: " + items[toFirst]);
         }
       }
     }
@@ -168,6 +178,58 @@ public class LLkParser extends AParser {
     throw new RuntimeException("Incomplete statement: Stack is emtpy but no accept!!!");
   }
 
+  /**
+   * Looks up the transition for the given key in the table and remembers it.
+   *
+   * @return the index of the transition
+   * @throws LLkParserException if there is no transition
+   */
+  private int findTransition(
+      IntStack stack, int kind, ScannerToken<?> currentToken, TokenBuffer tokenBuffer, int[] key)
+      throws LLkParserException {
+    final LLkState currentState = getTopMostItems(stack, (kind == REDUCE) ? 2 : 1);
+    final Symbol symbol = (kind == SHIFT) ? currentToken.getSymbol() : SpecialTerminals.Epsilon;
+    final LLkState to = table.get(currentState, symbol, createLookahead(tokenBuffer, k));
+    checkError(currentToken, to);
+
+    final int transition = transitionsCount++;
+    if (2 * transitionsCount > transitions.length) {
+      transitions = Arrays.copyOf(transitions, 2 * transitions.length);
+    }
+    transitions[2 * transition] = itemId(to.getFirstItem());
+    transitions[2 * transition + 1] = (kind == EXPAND) ? itemId(to.getSecondItem()) : -1;
+    predictions.put(key, transition);
+    return transition;
+  }
+
+  /** Gets the id of the given item, numbering it if it is new. */
+  private int itemId(LLkItem item) {
+    Integer id = itemIds.get(item);
+    if (id == null) {
+      id = itemIds.size();
+      itemIds.put(item, id);
+      if (id == items.length) {
+        items = Arrays.copyOf(items, 2 * id);
+        itemKinds = Arrays.copyOf(itemKinds, 2 * id);
+      }
+      items[id] = item;
+      if (item.isComplete()) itemKinds[id] = REDUCE;
+      else if (item.getNextSymbol() instanceof NonTerminal) itemKinds[id] = EXPAND;
+      else itemKinds[id] = SHIFT;
+    }
+    return id;
+  }
+
+  /** Gets the id of the given terminal, numbering it if it is new. */
+  private int terminalId(Symbol terminal) {
+    Integer id = terminalIds.get(terminal);
+    if (id == null) {
+      id = terminalIds.size();
+      terminalIds.put(terminal, id);
+    }
+    return id;
+  }
+
   /**
    * TODO Relevant for LL-Parser???
    *
@@ -194,7 +256,7 @@ public class LLkParser extends AParser {
     }
   }
 
-  private LLkState getTopMostItems(int numOfItems) {
+  private LLkState getTopMostItems(IntStack stack, int numOfItems) {
     if (numOfItems < 0 || numOfItems > 2) {
       throw new IllegalArgumentException("NumOfItems must 1 or 2!!!");
     }
@@ -205,9 +267,9 @@ public class LLkParser extends AParser {
     }
 
     if (numOfItems == 1) {
-      return new LLkState(stack.peek());
+      return new LLkState(items[stack.peek()]);
     } else if (numOfItems == 2) {
-      return new LLkState(stack.get(stack.size() - 2), stack.peek());
+      return new LLkState(items[stack.get(stack.size() - 2)], items[stack.peek()]);
     }
 
     return null; // Logically unreachable!!!
@@ -221,18 +283,18 @@ public class LLkParser extends AParser {
    * @param k
    * @return The current token!
    */
-  private ScannerToken<?> readNextToken(
-      final Scanner input, final Deque<ScannerToken<?>> tokens, final int k) {
+  private ScannerToken<?> readNextToken(final Scanner input, final TokenBuffer tokens, final int k) {
     final int nominalSize = k + 1; // 1 extra for currentToken
 
     // Remove head in case there is anything to remove
-    if (!tokens.isEmpty()) {
-      tokens.pop();
+    if (tokens.count > 0) {
+      tokens.removeFirst();
     }
 
     // Fill up the buffer
-    final ScannerToken<?> last = tokens.peekLast();
-    if (last == null || last.getSymbol() != SpecialTerminals.EndOfInputStream) {
+    if (tokens.count == 0
+        || tokens.tokens[tokens.index(tokens.count - 1)].getSymbol()
+            != SpecialTerminals.EndOfInputStream) {
       try {
         // Empty or there are still tokens left: Read tokens into the buffer until we have enough
         // for lookahead
@@ -245,8 +307,8 @@ public class LLkParser extends AParser {
             throw new IOException("Null-token received! Check your scanner implementation!");
           }
 
-          tokens.add(nextToken);
-        } while (tokens.size() < nominalSize
+          tokens.add(nextToken, terminalId(nextToken.getSymbol()));
+        } while (tokens.count < nominalSize
             && nextToken.getSymbol() != SpecialTerminals.EndOfInputStream);
 
       } catch (IOException e) {
@@ -257,11 +319,11 @@ public class LLkParser extends AParser {
     }
 
     // Keep lookahead and tokens in sync
-    final ScannerToken<?> currentToken = tokens.peek();
-    if (currentToken == null) {
+    if (tokens.count == 0) {
       System.err.println("Tried to read over END_OF_INPUTSTREAM!");
       return null;
     }
+    final ScannerToken<?> currentToken = tokens.tokens[tokens.head];
 
     // Check for inserted scanner-tokens
     if (currentToken instanceof InsertedScannerToken) {
@@ -273,14 +335,109 @@ public class LLkParser extends AParser {
     return currentToken;
   }
 
-  private ITerminalSeq createLookahead(Collection<ScannerToken<?>> buffer, final int k) {
+  private ITerminalSeq createLookahead(TokenBuffer buffer, final int k) {
     final ITerminalSeq seq = new TerminalSeq();
 
-    final Iterator<ScannerToken<?>> it = buffer.iterator();
-    while (seq.size() < k && it.hasNext()) {
-      seq.append(it.next().getSymbol());
+    for (int i = 0; seq.size() < k && i < buffer.count; i++) {
+      seq.append(buffer.tokens[buffer.index(i)].getSymbol());
     }
 
     return seq;
   }
+
+  /** Ring buffer of the current token and the tokens of the lookahead, with their terminal ids. */
+  private static final class TokenBuffer {
+    final ScannerToken<?>[] tokens;
+    final int[] ids;
+    int head = 0;
+    int count = 0;
+
+    TokenBuffer(int capacity) {
+      tokens = new ScannerToken<?>[capacity];
+      ids = new int[capacity];
+    }
+
+    /** Gets the array index of the i-th buffered token. */
+    int index(int i) {
+      int index = head + i;
+      return (index < tokens.length) ? index : index - tokens.length;
+    }
+
+    void add(ScannerToken<?> token, int id) {
+      int index = index(count++);
+      tokens[index] = token;
+      ids[index] = id;
+    }
+
+    void removeFirst() {
+      tokens[head] = null;
+      head = index(1);
+      count--;
+    }
+  }
+
+  /** Open addressing hash table, mapping tuples of ints with a fixed length to ints. */
+  private static final class PredictionCache {
+    private final int width;
+    private int[] keys;
+    private int[] values; // -1 for free slots
+    private int size = 0;
+
+    PredictionCache(int width) {
+      this.width = width;
+      this.keys = new int[64 * width];
+      this.values = new int[64];
+      Arrays.fill(values, -1);
+    }
+
+    /** Gets the value for the given key, or -1 if there is none. */
+    int get(int[] key) {
+      int mask = values.length - 1;
+      for (int slot = hash(key, 0) & mask; values[slot] >= 0; slot = (slot + 1) & mask) {
+        if (matches(key, slot)) return values[slot];
+      }
+      return -1;
+    }
+
+    /** Stores the given (non-negative) value for the given new key. */
+    void put(int[] key, int value) {
+      if (2 * (size + 1) > values.length) grow();
+      int mask = values.length - 1;
+      int slot = hash(key, 0) & mask;
+      while (values[slot] >= 0) slot = (slot + 1) & mask;
+      System.arraycopy(key, 0, keys, slot * width, width);
+      values[slot] = value;
+      size++;
+    }
+
+    private boolean matches(int[] key, int slot) {
+      int offset = slot * width;
+      for (int i = 0; i < width; i++) {
+        if (keys[offset + i] != key[i]) return false;
+      }
+      return true;
+    }
+
+    private void grow() {
+      int[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = new int[2 * oldKeys.length];
+      values = new int[2 * oldValues.length];
+      Arrays.fill(values, -1);
+      int mask = values.length - 1;
+      for (int old = 0; old < oldValues.length; old++) {
+        if (oldValues[old] < 0) continue;
+        int slot = hash(oldKeys, old * width) & mask;
+        while (values[slot] >= 0) slot = (slot + 1) & mask;
+        System.arraycopy(oldKeys, old * width, keys, slot * width, width);
+        values[slot] = oldValues[old];
+      }
+    }
+
+    private int hash(int[] array, int offset) {
+      int h = 1;
+      for (int i = 0; i < width; i++) h = 31 * h + array[offset + i];
+      return h ^ (h >>> 16);
+    }
+  }
 }
@@ -0,0 +1,95 @@
+package edu.tum.cup2.parser;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Unsynchronized, array-backed stack of LR parser states.
+ *
+ * <p>Each entry is the ID of a state together with the position (line and column) where the input
+ * belonging to this state begins, in parallel int arrays, so pushing a state allocates nothing.
+ */
+final class StateStack {
+
+  private int[] states;
+  private int[] lines;
+  private int[] columns;
+  private int size;
+
+  StateStack(int capacity) {
+    states = new int[capacity];
+    lines = new int[capacity];
+    columns = new int[capacity];
+  }
+
+  private StateStack(StateStack other) {
+    states = other.states.clone();
+    lines = other.lines.clone();
+    columns = other.columns.clone();
+    size = other.size;
+  }
+
+  /** Pushes a state with the given begin position. */
+  void push(int state, int line, int column) {
+    if (size == states.length) {
+      int capacity = Math.max(16, 2 * size);
+      states = Arrays.copyOf(states, capacity);
+      lines = Arrays.copyOf(lines, capacity);
+      columns = Arrays.copyOf(columns, capacity);
+    }
+    states[size] = state;
+    lines[size] = line;
+    columns[size] = column;
+    size++;
+  }
+
+  /**
+   * Removes the top entry.
+   *
+   * @return the state ID of the removed entry
+   * @throws EmptyStackException if the stack is empty
+   */
+  int pop() {
+    if (size == 0) throw new EmptyStackException();
+    return states[--size];
+  }
+
+  /**
+   * Removes the top {@code n} entries.
+   *
+   * @throws EmptyStackException if the stack has less than {@code n} entries
+   */
+  void pop(int n) {
+    if (n > size) throw new EmptyStackException();
+    size -= n;
+  }
+
+  /**
+   * Gets the state ID of the top entry.
+   *
+   * @throws EmptyStackException if the stack is empty
+   */
+  int peek() {
+    if (size == 0) throw new EmptyStackException();
+    return states[size - 1];
+  }
+
+  /** Gets the begin line of the entry with the given index, counted from the bottom. */
+  int line(int index) {
+    return lines[index];
+  }
+
+  /** Gets the begin column of the entry with the given index, counted from the bottom. */
+  int column(int index) {
+    return columns[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Returns an independent copy of this stack. */
+  StateStack copy() {
+    return new StateStack(this);
+  }
+}
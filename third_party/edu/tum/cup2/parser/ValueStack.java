@@ -0,0 +1,63 @@
+package edu.tum.cup2.parser;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/** Unsynchronized, array-backed stack of semantic values. */
+final class ValueStack {
+
+  private Object[] values;
+  private int size;
+
+  ValueStack(int capacity) {
+    values = new Object[capacity];
+  }
+
+  void push(Object value) {
+    if (size == values.length) values = Arrays.copyOf(values, Math.max(16, 2 * size));
+    values[size++] = value;
+  }
+
+  /**
+   * Removes the top value.
+   *
+   * @throws EmptyStackException if the stack is empty
+   */
+  Object pop() {
+    if (size == 0) throw new EmptyStackException();
+    Object value = values[--size];
+    values[size] = null;
+    return value;
+  }
+
+  /** Removes the top {@code n} values. */
+  void pop(int n) {
+    if (n > size) throw new EmptyStackException();
+    Arrays.fill(values, size - n, size, null);
+    size -= n;
+  }
+
+  /**
+   * Gets the top value.
+   *
+   * @throws EmptyStackException if the stack is empty
+   */
+  Object peek() {
+    if (size == 0) throw new EmptyStackException();
+    return values[size - 1];
+  }
+
+  /** Gets the backing array, whose first {@link #size()} elements are the values (bottom first). */
+  Object[] array() {
+    return values;
+  }
+
+  int size() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(Arrays.copyOf(values, size));
+  }
+}
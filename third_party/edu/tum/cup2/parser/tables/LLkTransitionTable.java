@@ -11,7 +11,9 @@ import edu.tum.cup2.generator.terminals.ITerminalSeqSet;
 import edu.tum.cup2.generator.terminals.TerminalSeqSetf;
 import edu.tum.cup2.generator.terminals.TerminalSeqf;
 import edu.tum.cup2.grammar.Grammar;
+import edu.tum.cup2.grammar.SpecialTerminals;
 import edu.tum.cup2.grammar.Symbol;
+import edu.tum.cup2.grammar.Terminal;
 import edu.tum.cup2.parser.states.LLkErrorState;
 
 
@@ -67,9 +69,12 @@ public class LLkTransitionTable extends ALLkTransitionTable implements Serializa
 		
 		// 3. Store new assignment lookahead->LLkTransition
 		final ITerminalSeqSet sealedSet;
-		if (to.getLookahead().size() > 0)
+		// a shift is predicted by the lookahead in front of the consumed terminal
+		final ITerminalSeqSet lookahead = (symbol instanceof Terminal && symbol != SpecialTerminals.Epsilon)
+				? from.getLookahead() : to.getLookahead();
+		if (lookahead.size() > 0)
 		{
-			sealedSet = to.getLookahead().seal(); // guarantuees that a immutable, caching instance is used
+			sealedSet = lookahead.seal(); // guarantuees that a immutable, caching instance is used
 		} else
 		{
 			// If empty lookahead, store as only alternative
@@ -88,8 +93,9 @@ public class LLkTransitionTable extends ALLkTransitionTable implements Serializa
 		{
 			if (!lookaheadMap.put(seq, newTransition))
 			{
-				throw new LLkGeneratorException("Given combination of LLkItems, symbol '" + symbol + "' and lookahead '"
-						+ sealedSet + "' is not unique!!!");
+				// two transitions for the same lookahead: the grammar is not (strong) LL(k)
+				throw new LLkGeneratorException("The grammar is not LL(" + k + "): the lookahead '" + seq
+						+ "' predicts more than one transition from state '" + from + "' with symbol '" + symbol + "'!");
 			}
 		}
 	}
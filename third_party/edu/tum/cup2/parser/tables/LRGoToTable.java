@@ -69,6 +69,15 @@ public final class LRGoToTable implements Serializable
 	}
 	
 	
+	/**
+	 * returns a reference to the internal hashtable containing the goto states
+	 */
+	Hashtable<StateSymbolKey, LRParserState> getTable()
+	{
+		return this.table;
+	}
+	
+	
 	/**
 	 * Gets an iterator over all columns, returning the corresponding non-terminals
 	 * in the order in which they were defined.
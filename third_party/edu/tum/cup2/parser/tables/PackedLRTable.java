@@ -0,0 +1,711 @@
+package edu.tum.cup2.parser.tables;
+
+import edu.tum.cup2.grammar.AuxiliaryLHS4SemanticShiftAction;
+import edu.tum.cup2.grammar.NonTerminal;
+import edu.tum.cup2.grammar.Production;
+import edu.tum.cup2.grammar.SpecialTerminals;
+import edu.tum.cup2.grammar.Symbol;
+import edu.tum.cup2.grammar.Terminal;
+import edu.tum.cup2.parser.actions.Accept;
+import edu.tum.cup2.parser.actions.ConsecutiveNonAssocAction;
+import edu.tum.cup2.parser.actions.LRAction;
+import edu.tum.cup2.parser.actions.Reduce;
+import edu.tum.cup2.parser.actions.Shift;
+import edu.tum.cup2.parser.states.LRParserState;
+import edu.tum.cup2.semantics.Action;
+import edu.tum.cup2.semantics.ParserInterface;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, read-only form of an {@link LRParsingTable}, used by the parser driver.
+ *
+ * <p>Each action cell is encoded as an int: the kind of the action ({@link #SHIFT}, {@link
+ * #REDUCE}, {@link #ACCEPT}, {@link #NONASSOC} or {@link #ERROR}) in the low bits and an operand
+ * (the target state of a shift, the index of a reduction) in the high bits. Whole-row actions are
+ * expanded into the cells of their row. Goto cells hold the target state plus one, 0 for errors.
+ *
+ * <p>Both tables are stored with comb compression: the non-error cells of all rows are overlaid in
+ * one array, each row starting at its own base offset, and a check array records which row a slot
+ * belongs to. A lookup is two array accesses, without allocating keys, hashing or locking.
+ *
+ * <p>Terminals are mapped to columns by their enum ordinal. Symbols that are not a column of the
+ * table share one extra column, which holds the whole-row action of each row.
+ *
+ * <p>A table can be stored in a compact, versioned binary format with {@link #write(OutputStream)}
+ * and restored with {@link #read(ByteBuffer, ClassLoader)}. Reading it back costs time proportional
+ * to the size of the table data; no grammar analysis and no Java object serialization is involved.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ */
+public final class PackedLRTable {
+
+  /** Action kind: no action, i.e. a syntax error. */
+  public static final int ERROR = 0;
+  /** Action kind: shift, the operand is the target state. */
+  public static final int SHIFT = 1;
+  /** Action kind: reduce, the operand is the index of the reduction. */
+  public static final int REDUCE = 2;
+  /** Action kind: accept. */
+  public static final int ACCEPT = 3;
+  /** Action kind: consecutive non-associative terminals. */
+  public static final int NONASSOC = 4;
+
+  private static final int KIND_BITS = 3;
+  private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+  /** First four bytes of the binary format ("CUP2"). */
+  public static final int MAGIC = 0x43555032;
+  /** Version of the binary format written by {@link #write(OutputStream)}. */
+  public static final int VERSION = 1;
+
+  private final ParserInterface parserInterface;
+  private final int startState;
+  private final LRParserState[] states;
+
+  // columns of the action table: the terminals of the grammar come first,
+  // followed by other terminals found in the table and the whole-row column
+  private final Terminal[] terminals;
+  private final int grammarColumns;
+  private final int otherColumn;
+  private final int[] specialColumn;
+  private final Class<?> terminalClass;
+  private final int[] terminalColumn;
+  private final Map<Terminal, Integer> columnMap = new HashMap<Terminal, Integer>();
+
+  // action table
+  private final int[] actionBase;
+  private final int[] actionCheck;
+  private final int[] action;
+  private final int[] singleReduction;
+
+  // reductions
+  private final Reduce[] reductions;
+  private final Action[] reduceAction;
+  private final int[] reducePop;
+  private final int[] reduceArgs;
+  private final int[] reduceGoto;
+
+  // goto table
+  private final int[] gotoBase;
+  private final int[] gotoCheck;
+  private final int[] gotoTarget;
+
+  /** Compiles the given table. Later changes of the table are not reflected. */
+  public PackedLRTable(LRParsingTable table) {
+    parserInterface = table.getParserInterface();
+    startState = table.getStartState().getID();
+    int numStates = table.getStatesCount();
+    states = new LRParserState[numStates];
+    for (LRParserState state : table.getStates()) states[state.getID()] = state;
+
+    // action columns
+    List<Terminal> columns = new ArrayList<Terminal>(table.getGrammar().getTerminals());
+    columns.remove(SpecialTerminals.WholeRow);
+    grammarColumns = columns.size();
+    Map<StateSymbolKey, LRAction> actionCells = table.getActionTable().getTable();
+    for (StateSymbolKey key : actionCells.keySet()) {
+      Terminal t = (Terminal) key.getSymbol();
+      if (t != SpecialTerminals.WholeRow && !columns.contains(t)) columns.add(t);
+    }
+    terminals = columns.toArray(new Terminal[0]);
+    otherColumn = terminals.length;
+    specialColumn = new int[SpecialTerminals.values().length];
+    terminalClass = indexColumns(terminals, columnMap, specialColumn);
+    terminalColumn = terminalColumns(terminals, terminalClass);
+
+    // encode the action rows, expanding whole-row actions
+    Map<Production, Integer> reductionIndex = new IdentityHashMap<Production, Integer>();
+    List<Reduce> reductionList = new ArrayList<Reduce>();
+    int[][] rows = new int[numStates][terminals.length + 1];
+    int[] wholeRow = new int[numStates];
+    for (Map.Entry<StateSymbolKey, LRAction> cell : actionCells.entrySet()) {
+      int code = encode(cell.getValue(), reductionIndex, reductionList);
+      int state = cell.getKey().getState().getID();
+      Symbol symbol = cell.getKey().getSymbol();
+      if (symbol == SpecialTerminals.WholeRow) wholeRow[state] = code;
+      else rows[state][columnMap.get(symbol)] = code;
+    }
+    singleReduction = new int[numStates];
+    for (int s = 0; s < numStates; s++) {
+      if (wholeRow[s] != ERROR) {
+        for (int c = 0; c <= terminals.length; c++) {
+          if (rows[s][c] == ERROR) rows[s][c] = wholeRow[s];
+        }
+      }
+      singleReduction[s] = findSingleReduction(rows[s]);
+    }
+    int[][] packed = pack(rows);
+    actionBase = packed[0];
+    actionCheck = packed[1];
+    action = packed[2];
+
+    // reductions
+    reductions = reductionList.toArray(new Reduce[0]);
+    int numReductions = reductions.length;
+    reduceAction = new Action[numReductions];
+    reducePop = new int[numReductions];
+    reduceArgs = new int[numReductions];
+    reduceGoto = new int[numReductions];
+    Map<Symbol, Integer> gotoColumns = new HashMap<Symbol, Integer>();
+    for (int r = 0; r < numReductions; r++) {
+      Production p = reductions[r].getProduction();
+      reduceAction[r] = reductions[r].getAction();
+      reducePop[r] = p.getRHSSizeWithoutEpsilon();
+      reduceArgs[r] =
+          reducePop[r]
+              + ((p.getLHS() instanceof AuxiliaryLHS4SemanticShiftAction)
+                  ? ((AuxiliaryLHS4SemanticShiftAction) p.getLHS()).numPrecedingSymbolsNotEpsilon
+                  : 0);
+      reduceGoto[r] = gotoColumn(gotoColumns, p.getLHS());
+    }
+
+    // goto table
+    Map<StateSymbolKey, LRParserState> gotoCells = table.getGotoTable().getTable();
+    for (StateSymbolKey key : gotoCells.keySet()) gotoColumn(gotoColumns, key.getSymbol());
+    int[][] gotoRows = new int[numStates][gotoColumns.size()];
+    for (Map.Entry<StateSymbolKey, LRParserState> cell : gotoCells.entrySet()) {
+      int state = cell.getKey().getState().getID();
+      gotoRows[state][gotoColumns.get(cell.getKey().getSymbol())] = cell.getValue().getID() + 1;
+    }
+    packed = pack(gotoRows);
+    gotoBase = packed[0];
+    gotoCheck = packed[1];
+    gotoTarget = packed[2];
+  }
+
+  /** Reads a table in the binary format, see {@link #read(ByteBuffer, ClassLoader)}. */
+  private PackedLRTable(ByteBuffer in, ClassLoader loader) throws IOException {
+    if (in.remaining() < 8 || in.getInt() != MAGIC) {
+      throw new StreamCorruptedException("not a CUP2 parser table");
+    }
+    int version = in.getInt();
+    if (version != VERSION) {
+      throw new InvalidClassException("unsupported CUP2 parser table version " + version);
+    }
+    try {
+      SpecificationObjects objects = new SpecificationObjects(loader, readString(in));
+      String parserInterfaceClass = readString(in);
+
+      // symbols: the columns of the action table come first
+      Class<?>[] symbolClasses = new Class<?>[readCount(in, 4)];
+      for (int i = 0; i < symbolClasses.length; i++) {
+        symbolClasses[i] = objects.load(readString(in));
+      }
+      Symbol[] symbols = new Symbol[readCount(in, 8)];
+      for (int i = 0; i < symbols.length; i++) {
+        int symbolClass = in.getInt();
+        String name = readString(in);
+        symbols[i] =
+            symbolClass < 0
+                ? objects.auxiliarySymbol(name)
+                : objects.symbol(symbolClasses[symbolClass], name);
+      }
+      terminals = new Terminal[readCount(in, 0)];
+      for (int i = 0; i < terminals.length; i++) {
+        terminals[i] = (Terminal) symbols[checkIndex(in.getInt(), symbols.length)];
+      }
+      grammarColumns = checkIndex(in.getInt(), terminals.length + 1);
+      otherColumn = terminals.length;
+      specialColumn = new int[SpecialTerminals.values().length];
+      terminalClass = indexColumns(terminals, columnMap, specialColumn);
+      terminalColumn = terminalColumns(terminals, terminalClass);
+
+      // states
+      states = new LRParserState[readCount(in, 0)];
+      for (int i = 0; i < states.length; i++) states[i] = new LRParserState(i);
+      startState = checkIndex(in.getInt(), states.length);
+
+      // reductions
+      int numReductions = readCount(in, 24);
+      reductions = new Reduce[numReductions];
+      reduceAction = new Action[numReductions];
+      reducePop = new int[numReductions];
+      reduceArgs = new int[numReductions];
+      reduceGoto = new int[numReductions];
+      for (int r = 0; r < numReductions; r++) {
+        int id = in.getInt();
+        NonTerminal lhs = (NonTerminal) symbols[checkIndex(in.getInt(), symbols.length)];
+        Symbol[] rhs = new Symbol[readCount(in, 4)];
+        for (int i = 0; i < rhs.length; i++)
+          rhs[i] = symbols[checkIndex(in.getInt(), symbols.length)];
+        reduceAction[r] = objects.action(readString(in));
+        Production p = new Production(id, lhs, Arrays.asList(rhs), reduceAction[r], null);
+        reductions[r] = new Reduce(p);
+        reducePop[r] = in.getInt();
+        reduceArgs[r] = in.getInt();
+        reduceGoto[r] = in.getInt();
+      }
+      parserInterface = objects.parserInterface(parserInterfaceClass);
+
+      // tables
+      actionBase = readInts(in);
+      actionCheck = readInts(in);
+      action = readInts(in);
+      singleReduction = readInts(in);
+      gotoBase = readInts(in);
+      gotoCheck = readInts(in);
+      gotoTarget = readInts(in);
+    } catch (BufferUnderflowException e) {
+      throw new EOFException("truncated CUP2 parser table");
+    } catch (ClassCastException | IllegalArgumentException e) {
+      throw (IOException) new StreamCorruptedException("invalid grammar").initCause(e);
+    }
+    checkTables();
+  }
+
+  /** Makes sure that no lookup in the tables can go out of bounds. */
+  private void checkTables() throws StreamCorruptedException {
+    int numStates = states.length;
+    int numGotoColumns = 0;
+    for (int r = 0; r < reductions.length; r++) {
+      if (reduceGoto[r] < 0) throw new StreamCorruptedException("invalid goto column");
+      numGotoColumns = Math.max(numGotoColumns, reduceGoto[r] + 1);
+    }
+    checkPacked(actionBase, actionCheck, action, numStates, terminals.length + 1);
+    checkPacked(gotoBase, gotoCheck, gotoTarget, numStates, numGotoColumns);
+    if (singleReduction.length != numStates) {
+      throw new StreamCorruptedException("invalid number of states");
+    }
+    for (int code : action) checkAction(code);
+    for (int code : singleReduction) checkAction(code);
+    for (int target : gotoTarget) {
+      if (target < 0 || target > numStates) throw new StreamCorruptedException("invalid state");
+    }
+  }
+
+  private static void checkPacked(int[] base, int[] check, int[] value, int rows, int width)
+      throws StreamCorruptedException {
+    if (base.length != rows || check.length != value.length) {
+      throw new StreamCorruptedException("invalid table size");
+    }
+    for (int b : base) {
+      if (b < 0 || b + width > check.length) {
+        throw new StreamCorruptedException("invalid table offset");
+      }
+    }
+  }
+
+  private void checkAction(int code) throws StreamCorruptedException {
+    int operand = operand(code);
+    boolean valid;
+    switch (kind(code)) {
+      case SHIFT:
+        valid = operand < states.length;
+        break;
+      case REDUCE:
+        valid = operand < reductions.length;
+        break;
+      case ERROR:
+      case ACCEPT:
+      case NONASSOC:
+        valid = operand == 0;
+        break;
+      default:
+        valid = false;
+    }
+    if (!valid) throw new StreamCorruptedException("invalid action");
+  }
+
+  /**
+   * Reads a table in the binary format written by {@link #write(OutputStream)}, starting at the
+   * current position of the given buffer, which may for example be a memory-mapped file.
+   *
+   * <p>Symbols are looked up by the names of their enum classes and constants. The specification
+   * class of the grammar is instantiated once, to create its semantic actions and its {@link
+   * ParserInterface}.
+   *
+   * @param in the buffer to read from; its position is moved behind the table
+   * @param loader the class loader for the classes of the grammar
+   * @throws IOException if the data is not a valid table, or refers to classes or symbols which
+   *     cannot be found or instantiated
+   */
+  public static PackedLRTable read(ByteBuffer in, ClassLoader loader) throws IOException {
+    return new PackedLRTable(in.order(ByteOrder.BIG_ENDIAN), loader);
+  }
+
+  /**
+   * Writes this table in a compact binary format, which can be read with {@link #read(ByteBuffer,
+   * ClassLoader)}. The grammar is stored as references to its symbol enums and semantic action
+   * classes, so these have to be available to the reader.
+   *
+   * @throws NotSerializableException if a symbol is not an enum constant, if a semantic action
+   *     cannot be instantiated by its class name (e.g. because it captures local variables), or if
+   *     the semantic actions belong to different specifications
+   */
+  public void write(OutputStream out) throws IOException {
+    SpecificationObjects.checkRestorable(reduceAction, parserInterface);
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    writeString(data, SpecificationObjects.specificationClass(reduceAction, parserInterface));
+    writeString(data, parserInterface.getClass().getName());
+
+    // symbols: the columns of the action table come first
+    Map<Symbol, Integer> symbolIndex = new LinkedHashMap<Symbol, Integer>();
+    for (Terminal t : terminals) symbolIndex(symbolIndex, t);
+    for (Reduce reduction : reductions) {
+      Production p = reduction.getProduction();
+      symbolIndex(symbolIndex, p.getLHS());
+      for (Symbol symbol : p.getRHS()) symbolIndex(symbolIndex, symbol);
+    }
+    Map<Class<?>, Integer> classIndex = new LinkedHashMap<Class<?>, Integer>();
+    for (Symbol symbol : symbolIndex.keySet()) {
+      if (!(symbol instanceof Enum)) {
+        throw new NotSerializableException(symbol.getClass().getName());
+      }
+      Class<?> c = ((Enum<?>) symbol).getDeclaringClass();
+      if (c != AuxiliaryLHS4SemanticShiftAction.class && !classIndex.containsKey(c)) {
+        classIndex.put(c, classIndex.size());
+      }
+    }
+    data.writeInt(classIndex.size());
+    for (Class<?> c : classIndex.keySet()) writeString(data, c.getName());
+    data.writeInt(symbolIndex.size());
+    for (Symbol symbol : symbolIndex.keySet()) {
+      Enum<?> e = (Enum<?>) symbol;
+      Integer c = classIndex.get(e.getDeclaringClass());
+      data.writeInt(c == null ? -1 : c);
+      writeString(data, e.name());
+    }
+    data.writeInt(terminals.length);
+    for (Terminal t : terminals) data.writeInt(symbolIndex.get(t));
+    data.writeInt(grammarColumns);
+
+    // states
+    data.writeInt(states.length);
+    data.writeInt(startState);
+
+    // reductions
+    data.writeInt(reductions.length);
+    for (int r = 0; r < reductions.length; r++) {
+      Production p = reductions[r].getProduction();
+      data.writeInt(p.getID());
+      data.writeInt(symbolIndex.get(p.getLHS()));
+      data.writeInt(p.getRHS().size());
+      for (Symbol symbol : p.getRHS()) data.writeInt(symbolIndex.get(symbol));
+      writeString(data, reduceAction[r] == null ? "" : reduceAction[r].getClass().getName());
+      data.writeInt(reducePop[r]);
+      data.writeInt(reduceArgs[r]);
+      data.writeInt(reduceGoto[r]);
+    }
+
+    // tables
+    writeInts(data, actionBase);
+    writeInts(data, actionCheck);
+    writeInts(data, action);
+    writeInts(data, singleReduction);
+    writeInts(data, gotoBase);
+    writeInts(data, gotoCheck);
+    writeInts(data, gotoTarget);
+    data.flush();
+  }
+
+  private static void symbolIndex(Map<Symbol, Integer> index, Symbol symbol) {
+    if (!index.containsKey(symbol)) index.put(symbol, index.size());
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    out.writeInt(values.length);
+    for (int v : values) out.writeInt(v);
+  }
+
+  private static String readString(ByteBuffer in) throws IOException {
+    byte[] bytes = new byte[readCount(in, 1)];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int[] readInts(ByteBuffer in) throws IOException {
+    int[] values = new int[readCount(in, 4)];
+    in.asIntBuffer().get(values);
+    in.position(in.position() + 4 * values.length);
+    return values;
+  }
+
+  /**
+   * Reads the number of elements that follow, each taking at least {@code minBytes} bytes, so that
+   * corrupted data cannot make us allocate huge arrays.
+   */
+  private static int readCount(ByteBuffer in, int minBytes) throws IOException {
+    int count = in.getInt();
+    if (count < 0 || (long) count * minBytes > in.remaining()) {
+      throw new EOFException("truncated CUP2 parser table");
+    }
+    return count;
+  }
+
+  private static int checkIndex(int index, int size) throws StreamCorruptedException {
+    if (index < 0 || index >= size) throw new StreamCorruptedException("invalid index " + index);
+    return index;
+  }
+
+  /**
+   * Fills the lookup of action columns by terminal and the columns of the special terminals.
+   *
+   * @return the (usually single) enum class of the grammar's own terminals, whose columns can be
+   *     found by ordinal
+   */
+  private static Class<?> indexColumns(
+      Terminal[] terminals, Map<Terminal, Integer> columnMap, int[] specialColumn) {
+    int otherColumn = terminals.length;
+    for (int i = 0; i < terminals.length; i++) columnMap.put(terminals[i], i);
+    Arrays.fill(specialColumn, otherColumn);
+    Class<?> userClass = null;
+    for (int i = 0; i < terminals.length; i++) {
+      Terminal t = terminals[i];
+      if (t instanceof SpecialTerminals) specialColumn[t.ordinal()] = i;
+      else if (userClass == null) userClass = t.getClass();
+    }
+    return userClass;
+  }
+
+  /** Maps the ordinals of the terminals of the given class to their action columns. */
+  private static int[] terminalColumns(Terminal[] terminals, Class<?> terminalClass) {
+    int maxOrdinal = -1;
+    for (Terminal t : terminals) {
+      if (t.getClass() == terminalClass) maxOrdinal = Math.max(maxOrdinal, t.ordinal());
+    }
+    int[] columns = new int[maxOrdinal + 1];
+    Arrays.fill(columns, terminals.length);
+    for (int i = 0; i < terminals.length; i++) {
+      if (terminals[i].getClass() == terminalClass) columns[terminals[i].ordinal()] = i;
+    }
+    return columns;
+  }
+
+  private static int gotoColumn(Map<Symbol, Integer> columns, Symbol symbol) {
+    Integer column = columns.get(symbol);
+    if (column == null) {
+      column = columns.size();
+      columns.put(symbol, column);
+    }
+    return column;
+  }
+
+  private int encode(LRAction a, Map<Production, Integer> index, List<Reduce> list) {
+    if (a instanceof Shift) return code(SHIFT, ((Shift) a).getState().getID());
+    if (a instanceof Reduce) {
+      Production p = ((Reduce) a).getProduction();
+      Integer r = index.get(p);
+      if (r == null) {
+        r = list.size();
+        index.put(p, r);
+        list.add((Reduce) a);
+      }
+      return code(REDUCE, r);
+    }
+    if (a instanceof Accept) return code(ACCEPT, 0);
+    if (a instanceof ConsecutiveNonAssocAction) return code(NONASSOC, 0);
+    return ERROR;
+  }
+
+  /**
+   * The single reduction of a row, if the row contains reductions of only one production and no
+   * shifts. Only the columns of the grammar's terminals are considered.
+   */
+  private int findSingleReduction(int[] row) {
+    int result = ERROR;
+    for (int c = 0; c < grammarColumns; c++) {
+      int code = row[c];
+      if (kind(code) == REDUCE) {
+        if (result == ERROR) result = code;
+        else if (code != result) return ERROR;
+      } else if (kind(code) == SHIFT) return ERROR;
+    }
+    return result;
+  }
+
+  /**
+   * Overlays the non-zero cells of the given rows into one array, first fit, placing the fullest
+   * rows first.
+   *
+   * @return base offsets, check array and values
+   */
+  private static int[][] pack(int[][] rows) {
+    int numRows = rows.length;
+    int width = numRows == 0 ? 0 : rows[0].length;
+    Integer[] order = new Integer[numRows];
+    final int[] filled = new int[numRows];
+    for (int r = 0; r < numRows; r++) {
+      order[r] = r;
+      for (int v : rows[r]) if (v != 0) filled[r]++;
+    }
+    Arrays.sort(order, (a, b) -> filled[b] - filled[a]);
+
+    int[] base = new int[numRows];
+    int[] check = new int[Math.max(16, 2 * width)];
+    int[] value = new int[check.length];
+    Arrays.fill(check, -1);
+    int firstFree = 0;
+    int size = 0;
+    for (int r : order) {
+      int[] row = rows[r];
+      if (filled[r] == 0) continue; // base 0, no slot is checked for r
+      int b = Math.max(0, firstFree - firstNonZero(row));
+      while (true) {
+        if (b + width > check.length) {
+          int oldLength = check.length;
+          int newLength = Math.max(2 * oldLength, b + width);
+          check = Arrays.copyOf(check, newLength);
+          value = Arrays.copyOf(value, newLength);
+          Arrays.fill(check, oldLength, newLength, -1);
+        }
+        if (fits(row, check, b)) break;
+        b++;
+      }
+      base[r] = b;
+      for (int c = 0; c < width; c++) {
+        if (row[c] != 0) {
+          check[b + c] = r;
+          value[b + c] = row[c];
+        }
+      }
+      size = Math.max(size, b + width);
+      while (firstFree < size && check[firstFree] != -1) firstFree++;
+    }
+    // every row is followed by at least width slots, so lookups need no bounds check
+    size = Math.max(size, width);
+    return new int[][] {base, Arrays.copyOf(check, size), Arrays.copyOf(value, size)};
+  }
+
+  private static int firstNonZero(int[] row) {
+    for (int c = 0; c < row.length; c++) if (row[c] != 0) return c;
+    return 0;
+  }
+
+  private static boolean fits(int[] row, int[] check, int b) {
+    for (int c = 0; c < row.length; c++) {
+      if (row[c] != 0 && check[b + c] != -1) return false;
+    }
+    return true;
+  }
+
+  private static int code(int kind, int operand) {
+    return operand << KIND_BITS | kind;
+  }
+
+  /** Gets the kind of an encoded action. */
+  public static int kind(int code) {
+    return code & KIND_MASK;
+  }
+
+  /** Gets the operand of an encoded action (target state or reduction index). */
+  public static int operand(int code) {
+    return code >>> KIND_BITS;
+  }
+
+  /** Gets the action column of the given terminal. */
+  public int column(Symbol terminal) {
+    if (terminal instanceof SpecialTerminals) {
+      return specialColumn[((SpecialTerminals) terminal).ordinal()];
+    }
+    if (terminal != null && terminal.getClass() == terminalClass) {
+      int ordinal = ((Terminal) terminal).ordinal();
+      return ordinal < terminalColumn.length ? terminalColumn[ordinal] : otherColumn;
+    }
+    Integer column = columnMap.get(terminal);
+    return column == null ? otherColumn : column;
+  }
+
+  /** Gets the encoded action at the given state and action column. */
+  public int action(int state, int column) {
+    int i = actionBase[state] + column;
+    return actionCheck[i] == state ? action[i] : ERROR;
+  }
+
+  /** Gets the encoded action at the given state and terminal. */
+  public int action(int state, Terminal terminal) {
+    return action(state, column(terminal));
+  }
+
+  /**
+   * Gets the encoded reduction of the given state, if it is the only action of the state besides
+   * errors, otherwise {@link #ERROR}.
+   */
+  public int singleReduction(int state) {
+    return singleReduction[state];
+  }
+
+  /**
+   * Gets the terminals of the grammar that have a non-error action in the given state, in the order
+   * in which they were defined.
+   */
+  public List<Terminal> expectedTerminals(int state) {
+    List<Terminal> result = new ArrayList<Terminal>();
+    for (int c = 0; c < grammarColumns; c++) {
+      if (action(state, c) != ERROR) result.add(terminals[c]);
+    }
+    return result;
+  }
+
+  /** Gets the {@link ParserInterface} of the grammar. */
+  public ParserInterface parserInterface() {
+    return parserInterface;
+  }
+
+  /** Gets the ID of the start state. */
+  public int startState() {
+    return startState;
+  }
+
+  /** Gets the state with the given ID. */
+  public LRParserState state(int id) {
+    return states[id];
+  }
+
+  /** Gets the reduce action with the given index. */
+  public Reduce reduction(int index) {
+    return reductions[index];
+  }
+
+  /** Gets the semantic action of the given reduction, or null. */
+  public Action reduceAction(int index) {
+    return reduceAction[index];
+  }
+
+  /** Gets the number of states to pop for the given reduction. */
+  public int reducePop(int index) {
+    return reducePop[index];
+  }
+
+  /**
+   * Gets the number of semantic values passed to the action of the given reduction, including the
+   * values of preceding symbols for semantic shift actions.
+   */
+  public int reduceArgs(int index) {
+    return reduceArgs[index];
+  }
+
+  /**
+   * Gets the ID of the state to go to after the given reduction in the given state, or -1 for the
+   * error state.
+   */
+  public int gotoState(int state, int reduction) {
+    int i = gotoBase[state] + reduceGoto[reduction];
+    return gotoCheck[i] == state ? gotoTarget[i] - 1 : -1;
+  }
+}
@@ -0,0 +1,219 @@
+package edu.tum.cup2.parser.tables;
+
+import edu.tum.cup2.grammar.AuxiliaryLHS4SemanticShiftAction;
+import edu.tum.cup2.grammar.NonTerminal;
+import edu.tum.cup2.grammar.Symbol;
+import edu.tum.cup2.semantics.Action;
+import edu.tum.cup2.semantics.ParserInterface;
+import edu.tum.cup2.spec.CUP2Specification;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Restores the objects a {@link PackedLRTable} in binary format refers to by name: the symbols of
+ * the grammar, its semantic actions and its {@link ParserInterface}.
+ *
+ * <p>Semantic actions are usually anonymous inner classes of a {@link CUP2Specification}. All of
+ * them are created with one shared instance of their enclosing class, just like when the
+ * specification itself is constructed.
+ */
+final class SpecificationObjects {
+
+  private final ClassLoader loader;
+  private final Class<?> specClass;
+  private final Map<Class<?>, Object> instances = new HashMap<Class<?>, Object>();
+
+  /**
+   * @param loader the class loader for the classes of the grammar
+   * @param specClassName the name of the specification class, or an empty string if unknown
+   */
+  SpecificationObjects(ClassLoader loader, String specClassName) throws IOException {
+    this.loader = loader;
+    this.specClass = specClassName.isEmpty() ? null : load(specClassName);
+    if (specClass != null && !CUP2Specification.class.isAssignableFrom(specClass)) {
+      throw new InvalidClassException(specClassName, "not a CUP2 specification");
+    }
+  }
+
+  /**
+   * Finds the specification class which the semantic actions and the parser interface of a table
+   * belong to.
+   *
+   * @return the name of the class, or an empty string if there is none
+   * @throws NotSerializableException if the objects belong to different specifications
+   */
+  static String specificationClass(Action[] actions, ParserInterface parserInterface)
+      throws NotSerializableException {
+    Class<?> result = specificationClass(parserInterface.getClass());
+    for (Action action : actions) {
+      if (action == null) continue;
+      Class<?> c = specificationClass(action.getClass());
+      if (result == null) result = c;
+      else if (c != null && c != result) {
+        throw new NotSerializableException(
+            "semantic actions of " + result.getName() + " and " + c.getName());
+      }
+    }
+    return result == null ? "" : result.getName();
+  }
+
+  private static Class<?> specificationClass(Class<?> c) {
+    for (Class<?> outer = c.getEnclosingClass(); outer != null; outer = outer.getEnclosingClass()) {
+      if (CUP2Specification.class.isAssignableFrom(outer)) return outer;
+    }
+    return null;
+  }
+
+  /** Loads the class with the given name. */
+  Class<?> load(String name) throws IOException {
+    try {
+      return Class.forName(name, false, loader);
+    } catch (ClassNotFoundException e) {
+      throw (IOException) new InvalidClassException(name, "class not found").initCause(e);
+    }
+  }
+
+  /** Gets the enum constant with the given name of the given symbol class. */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  Symbol symbol(Class<?> c, String name) throws IOException {
+    if (!c.isEnum() || !Symbol.class.isAssignableFrom(c)) {
+      throw new InvalidClassException(c.getName(), "not a symbol enum");
+    }
+    try {
+      return (Symbol) Enum.valueOf((Class) c, name);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidObjectException("unknown symbol " + c.getName() + "." + name);
+    }
+  }
+
+  /**
+   * Gets the auxiliary non-terminal with the given name. These are created at runtime by the
+   * specification, so they are looked up in the grammar of the specification instance.
+   */
+  Symbol auxiliarySymbol(String name) throws IOException {
+    if (specClass != null) {
+      CUP2Specification spec = (CUP2Specification) instance(specClass);
+      if (spec.getGrammar() != null) {
+        for (NonTerminal nt : spec.getGrammar().getNonTerminals()) {
+          if (nt instanceof AuxiliaryLHS4SemanticShiftAction
+              && ((AuxiliaryLHS4SemanticShiftAction) nt).name().equals(name)) {
+            return nt;
+          }
+        }
+      }
+    }
+    throw new InvalidObjectException("unknown auxiliary symbol " + name);
+  }
+
+  /**
+   * Gets the semantic action of the given class.
+   *
+   * @param className the name of the class, or an empty string for no action
+   */
+  Action action(String className) throws IOException {
+    if (className.isEmpty()) return null;
+    Class<?> c = load(className);
+    if (!Action.class.isAssignableFrom(c)) {
+      throw new InvalidClassException(className, "not a semantic action");
+    }
+    return (Action) instance(c);
+  }
+
+  /**
+   * Gets the parser interface of the given class. If it is the one registered by the specification,
+   * the instance of the specification is used.
+   */
+  ParserInterface parserInterface(String className) throws IOException {
+    Class<?> c = load(className);
+    if (c == ParserInterface.class) return new ParserInterface();
+    if (!ParserInterface.class.isAssignableFrom(c)) {
+      throw new InvalidClassException(className, "not a parser interface");
+    }
+    if (specClass != null) {
+      ParserInterface registered = ((CUP2Specification) instance(specClass)).getParserInterface();
+      if (registered.getClass() == c) return registered;
+    }
+    return (ParserInterface) instance(c);
+  }
+
+  /** Gets the shared instance of the given class, creating it on first use. */
+  private Object instance(Class<?> c) throws IOException {
+    Object instance = instances.get(c);
+    if (instance == null) {
+      instance = newInstance(c);
+      instances.put(c, instance);
+    }
+    return instance;
+  }
+
+  /**
+   * Checks that the semantic actions and the parser interface of a table can be created again by
+   * {@link #action} and {@link #parserInterface} when the table is read. This is not the case for
+   * local and anonymous classes which capture variables, nor for classes without a constructor
+   * taking no arguments (or only the instance of their enclosing class).
+   *
+   * @throws NotSerializableException if one of the classes cannot be instantiated by name
+   */
+  static void checkRestorable(Action[] actions, ParserInterface parserInterface)
+      throws NotSerializableException {
+    for (Action action : actions) {
+      if (action != null) checkRestorable(action.getClass());
+    }
+    if (parserInterface.getClass() != ParserInterface.class) {
+      checkRestorable(parserInterface.getClass());
+    }
+  }
+
+  private static void checkRestorable(Class<?> c) throws NotSerializableException {
+    Constructor<?> constructor = constructor(c);
+    if (constructor == null) {
+      throw new NotSerializableException(c.getName() + " cannot be instantiated by name");
+    }
+    if (constructor.getParameterCount() == 1) checkRestorable(c.getEnclosingClass());
+  }
+
+  /**
+   * Finds the constructor used to create instances of the given class: the one taking the instance
+   * of the enclosing class for inner classes, otherwise the one without parameters.
+   *
+   * @return the constructor, or null if there is none of these
+   */
+  private static Constructor<?> constructor(Class<?> c) {
+    Class<?> outer = c.getEnclosingClass();
+    if (outer != null && !Modifier.isStatic(c.getModifiers())) {
+      for (Constructor<?> constructor : c.getDeclaredConstructors()) {
+        Class<?>[] params = constructor.getParameterTypes();
+        if (params.length == 1 && params[0] == outer) return constructor;
+      }
+    }
+    try {
+      return c.getDeclaredConstructor();
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Creates an instance of the given class, using the instance of the enclosing class for inner
+   * classes.
+   */
+  private Object newInstance(Class<?> c) throws IOException {
+    try {
+      Constructor<?> constructor = constructor(c);
+      if (constructor == null) throw new NoSuchMethodException(c.getName() + ".<init>()");
+      constructor.setAccessible(true);
+      if (constructor.getParameterCount() == 1) {
+        return constructor.newInstance(instance(c.getEnclosingClass()));
+      }
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      throw (IOException) new InvalidClassException(c.getName(), "cannot instantiate").initCause(e);
+    }
+  }
+}
@@ -55,6 +55,10 @@ public final class StateSymbolKey implements Serializable {
     hashCode = symbolNo * 1000000 + stateNo; // TODO: find good hash code
   }
 
+  public LRParserState getState() {
+    return state;
+  }
+
   public Symbol getSymbol() {
     return symbol;
   }
@@ -0,0 +1,151 @@
+package edu.tum.cup2.scanner;
+
+import edu.tum.cup2.grammar.SpecialTerminals;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Decorator for a {@link Scanner} which reads the tokens in batches, using {@link
+ * Scanner#readNextTerminals}. Optionally, the decorated scanner runs on its own producer thread, so
+ * that scanning and parsing overlap on multi-core machines.
+ *
+ * <p>Since tokens are read ahead of the parser, only scanners which do not depend on the state of
+ * the parser (e.g. no lexical feedback from semantic actions) may be decorated. With a producer
+ * thread, the decorated scanner is only used from that thread. If the parser stops before the end
+ * of the input, {@link #close()} stops the producer thread.
+ *
+ * <p>After the end of the input, the last token (usually {@link SpecialTerminals#EndOfInputStream})
+ * is delivered again, without calling the decorated scanner.
+ */
+public class BatchedScanner implements Scanner, Closeable {
+
+  /** The default number of tokens per batch. */
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  /** The number of batches the producer thread may read ahead. */
+  private static final int QUEUED_BATCHES = 4;
+
+  private final Scanner scanner;
+  private final int batchSize;
+  // filled batches (or the exception of the scanner) of the producer thread, or null without one
+  private final BlockingQueue<Object> batches;
+  private final Thread producer;
+
+  private ScannerToken<?>[] batch;
+  private int position = 0;
+  private int count = 0;
+  private boolean finished = false; // true, when the last batch has been read
+  private boolean closed = false;
+  private Throwable failure = null;
+
+  /** Creates a {@link BatchedScanner} with the default batch size and without a producer thread. */
+  public BatchedScanner(Scanner scanner) {
+    this(scanner, DEFAULT_BATCH_SIZE, false);
+  }
+
+  /**
+   * Creates a {@link BatchedScanner}.
+   *
+   * @param scanner the decorated scanner
+   * @param batchSize the maximum number of tokens read at once
+   * @param producerThread true, if the decorated scanner should run on its own thread
+   */
+  public BatchedScanner(Scanner scanner, int batchSize, boolean producerThread) {
+    if (scanner == null)
+      throw new IllegalArgumentException("The Scanner passed to BatchedScanner may not be null!");
+    if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive!");
+    this.scanner = scanner;
+    this.batchSize = batchSize;
+    if (producerThread) {
+      this.batches = new ArrayBlockingQueue<Object>(QUEUED_BATCHES);
+      this.producer = new Thread(this::produce, "CUP2 scanner");
+      this.producer.setDaemon(true);
+      this.producer.start();
+    } else {
+      this.batches = null;
+      this.producer = null;
+      this.batch = new ScannerToken<?>[batchSize];
+    }
+  }
+
+  @Override
+  public ScannerToken<? extends Object> readNextTerminal() throws IOException {
+    if (closed) throw new IOException("BatchedScanner is closed");
+    if (position == count) nextBatch();
+    return batch[position++];
+  }
+
+  /** Stops the producer thread, if there is one. No more tokens can be read afterwards. */
+  @Override
+  public void close() {
+    closed = true;
+    if (producer != null) producer.interrupt();
+  }
+
+  /** Replaces the consumed batch by the next one. */
+  private void nextBatch() throws IOException {
+    if (failure != null) rethrow(failure);
+    if (finished) {
+      // after the end of the input, the last token is delivered again
+      position = count - 1;
+      return;
+    }
+    if (batches == null) {
+      count = scanner.readNextTerminals(batch, 0, batchSize);
+      position = 0;
+      finished = isLast(batch[count - 1]);
+      return;
+    }
+    Object next;
+    try {
+      next = batches.take();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the scanner");
+    }
+    if (next instanceof Throwable) {
+      failure = (Throwable) next;
+      rethrow(failure);
+    }
+    batch = (ScannerToken<?>[]) next;
+    count = batch.length;
+    position = 0;
+    finished = isLast(batch[count - 1]);
+  }
+
+  /** Runs the decorated scanner on the producer thread. */
+  private void produce() {
+    try {
+      boolean last = false;
+      while (!last) {
+        ScannerToken<?>[] tokens = new ScannerToken<?>[batchSize];
+        int n = scanner.readNextTerminals(tokens, 0, batchSize);
+        if (n < batchSize) tokens = Arrays.copyOf(tokens, n);
+        last = isLast(tokens[n - 1]);
+        batches.put(tokens);
+      }
+    } catch (InterruptedException ex) {
+      // closed
+    } catch (IOException | RuntimeException | Error ex) {
+      try {
+        batches.put(ex);
+      } catch (InterruptedException ex2) {
+        // closed
+      }
+    }
+  }
+
+  private static boolean isLast(ScannerToken<?> token) {
+    return token == null || token.getSymbol() == SpecialTerminals.EndOfInputStream;
+  }
+
+  private static void rethrow(Throwable ex) throws IOException {
+    if (ex instanceof IOException) throw (IOException) ex;
+    if (ex instanceof RuntimeException) throw (RuntimeException) ex;
+    throw (Error) ex;
+  }
+}
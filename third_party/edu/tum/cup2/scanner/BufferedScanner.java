@@ -40,7 +40,7 @@ public class BufferedScanner implements Scanner
 		else
 		{
 			fNumberOfBufferedTokens --;
-			ScannerToken<? extends Object> t = fTokenQueue.remove(0);
+			ScannerToken<? extends Object> t = fTokenQueue.removeFirst();
 			return t;
 		}
 	}
@@ -65,11 +65,9 @@ public class BufferedScanner implements Scanner
 			fTokenQueue.add(currToken);
 		}
 		
-		LinkedList<ScannerToken<? extends Object>> retList = new LinkedList<ScannerToken<? extends Object>>();
-		for(int i = 0 ; i < iLookAheadAmount ; i++)
-		{
-			retList.add(fTokenQueue.get(i));
-		}
+		//copy the first tokens in one pass (get(i) on the linked list would be quadratic)
+		LinkedList<ScannerToken<? extends Object>> retList =
+			new LinkedList<ScannerToken<? extends Object>>(fTokenQueue.subList(0, Math.max(iLookAheadAmount, 0)));
 		return retList; 
 	}
 	
@@ -1,5 +1,7 @@
 package edu.tum.cup2.scanner;
 
+import edu.tum.cup2.grammar.SpecialTerminals;
+
 
 /**
  * Interface for all lexical scanners connected to CUP2.
@@ -11,5 +13,29 @@ public interface Scanner
   
   public ScannerToken<? extends Object> readNextTerminal()
   	throws java.io.IOException;
+
+
+  /**
+   * Reads up to <code>length</code> tokens into the given array, starting
+   * at <code>offset</code>, and returns the number of tokens read (at least one).
+   * Reading stops early after the {@link SpecialTerminals#EndOfInputStream}
+   * token (or a <code>null</code> token, which is passed on as well).
+   *
+   * The default implementation calls {@link #readNextTerminal()} for each token.
+   * Scanners which can produce tokens more efficiently in chunks may override it.
+   */
+  public default int readNextTerminals(ScannerToken<?>[] tokens, int offset, int length)
+  	throws java.io.IOException
+  {
+    int count = 0;
+    while (count < length)
+    {
+      ScannerToken<?> token = readNextTerminal();
+      tokens[offset + count++] = token;
+      if (token == null || token.getSymbol() == SpecialTerminals.EndOfInputStream)
+        break;
+    }
+    return count;
+  }
   
 }
@@ -5,6 +5,10 @@ import static edu.tum.cup2.semantics.SymbolValue.NoValue;
 import edu.tum.cup2.parser.LRParser;
 import edu.tum.cup2.spec.exceptions.IllegalSpecException;
 import edu.tum.cup2.spec.util.RHSItem;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Objects;
 
@@ -31,6 +35,10 @@ public class Action implements RHSItem {
   protected transient boolean
       returnsVoid; // can not be final as it has to be set after de-serializing the Action object
 
+  // the method bound to this action, taking the parameters as an Object[] and returning Object;
+  // null if the method is not accessible through a method handle
+  private transient MethodHandle invoker;
+
   private transient LRParser parserInstance = null; // associated parser instance
 
   /** Creates a new instance of a semantic action. */
@@ -50,25 +58,69 @@ public class Action implements RHSItem {
         // we are not allowed to call a public method of an inner class,
         // but we can circumvent that
         this.returnsVoid = Objects.equals(method.getReturnType(), Void.TYPE);
+        this.invoker = createInvoker();
         return;
       }
     }
     throw new IllegalSpecException("Action has no method called \"a\"");
   }
 
+  /**
+   * Binds the method of this action once, so that calling it needs neither reflection nor access
+   * checks.
+   */
+  private MethodHandle createInvoker() {
+    try {
+      return MethodHandles.lookup()
+          .unreflect(method)
+          .bindTo(this)
+          .asType(MethodType.genericMethodType(paramsCount))
+          .asSpreader(Object[].class, paramsCount);
+    } catch (IllegalAccessException | RuntimeException e) {
+      return null; // fall back to reflection
+    }
+  }
+
   /**
    * Executes the Action of this class. By default a method a(..) is searched over reflections and
    * called with the current parameters. Don't forget to set the parameters previously!
    *
+   * <p>The parser may reuse the parameter array after this method returns.
+   *
    * @return
    */
   public Object doAction(Object[] parameters) throws Exception {
-    Method method = getMethod();
-    Object ret = method.invoke(this, parameters);
+    Object ret;
+    if (invoker == null) {
+      ret = getMethod().invoke(this, parameters);
+    } else {
+      try {
+        ret = (Object) invoker.invokeExact(parameters);
+      } catch (ClassCastException | NullPointerException e) {
+        // thrown either by the conversion of the arguments or by the action itself;
+        // in the first case, let reflection convert the arguments (or report them)
+        if (!argumentsMatch(parameters)) ret = getMethod().invoke(this, parameters);
+        else throw new InvocationTargetException(e);
+      } catch (Throwable t) {
+        // like Method.invoke, also for errors
+        throw new InvocationTargetException(t);
+      }
+    }
     if (isVoidReturn()) return NoValue;
     else return ret;
   }
 
+  /** Checks if the method handle can take the given parameters without conversion errors. */
+  private boolean argumentsMatch(Object[] parameters) {
+    Class<?>[] types = method.getParameterTypes();
+    Class<?>[] wrapped = MethodType.methodType(void.class, types).wrap().parameterArray();
+    for (int i = 0; i < types.length; i++) {
+      Object p = parameters[i];
+      if (p == null ? types[i].isPrimitive() : !wrapped[i].isInstance(p)) return false;
+    }
+    return true;
+  }
+
   /** Gets the method assigned to this semantic action. */
   public Method getMethod() {
     return method;
@@ -44,6 +44,62 @@ public class ActionPerformer
 				}
 			}
 		}
+		try
+		{
+			return invoke(action, parameters);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			return illegalArguments(action, parameters, rhsSize, valueStack);
+		}
+	}
+	
+	
+	/**
+	 * Performs the given action, taking the semantic values from an array.
+	 * @param action      the {@link Action} instance
+	 * @param values      the semantic values, bottom of the stack first, which
+	 *                    are not changed by this method
+	 * @param size        the number of values in {@code values}
+	 * @param rhsSize     the number of right hand side symbols of the
+	 *                    corresponding production
+	 * @param parameters  an array with {@link Action#getParamsCount()} elements which
+	 *                    receives the arguments of the call. It is cleared again
+	 *                    afterwards, so the caller can reuse it for the next action.
+	 * @return  the resulting new value. If the method has a void return type, NoValue is returned.
+	 */
+	public static Object perform(Action action, Object[] values, int size, int rhsSize, Object[] parameters)
+	{
+		//collect all semantic values of the production (ignore null values)
+		int parametersIndex = parameters.length;
+		for (int i = size - 1; i >= size - rhsSize; i--)
+		{
+			Object v = values[i];
+			if (v != SymbolValue.NoValue)
+			{
+				if (parametersIndex > 0)
+					parameters[--parametersIndex] = v;
+				else
+					throw new IllegalStateException("Too many parameters for semantic action found on stack!");
+			}
+		}
+		try
+		{
+			return invoke(action, parameters);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			return illegalArguments(action, parameters, rhsSize, Arrays.asList(values).subList(0, size));
+		}
+		finally
+		{
+			Arrays.fill(parameters, null);
+		}
+	}
+	
+	
+	private static Object invoke(Action action, Object[] parameters)
+	{
 		//call the first (and only) method of the action with the collected parameters
 		try
 		{
@@ -51,14 +107,7 @@ public class ActionPerformer
 		}
 		catch (IllegalArgumentException ex)
 		{
-			//TODO
-			System.err.println("Error:");
-			System.err.println("  Requested action: " + action.getMethod().toGenericString());
-			System.err.println("  Given parameters: " + Arrays.toString(parameters));
-			System.err.println("  RHS size:         " + rhsSize);
-			System.err.println("  Value stack:      " + valueStack);
-			System.exit(0);
-			return null;
+			throw ex;
 		}
 		catch (Exception ex)
 		{
@@ -68,5 +117,18 @@ public class ActionPerformer
 			return null;
 		}
 	}
+	
+	
+	private static Object illegalArguments(Action action, Object[] parameters, int rhsSize, Object valueStack)
+	{
+		//TODO
+		System.err.println("Error:");
+		System.err.println("  Requested action: " + action.getMethod().toGenericString());
+		System.err.println("  Given parameters: " + Arrays.toString(parameters));
+		System.err.println("  RHS size:         " + rhsSize);
+		System.err.println("  Value stack:      " + valueStack);
+		System.exit(0);
+		return null;
+	}
 
 }
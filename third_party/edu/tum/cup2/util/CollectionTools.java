@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 //TODO: doc
 public class CollectionTools
@@ -66,6 +68,24 @@ public class CollectionTools
 	}
 	
 	
+	/**
+	 * Creates a new concurrent map.
+	 */
+	public static <T1, T2> ConcurrentMap<T1, T2> concurrentMap()
+	{
+		return new ConcurrentHashMap<T1, T2>();
+	}
+	
+	
+	/**
+	 * Creates a new concurrent set.
+	 */
+	public static <T> Set<T> concurrentSet()
+	{
+		return ConcurrentHashMap.newKeySet();
+	}
+	
+	
 	/**
 	 * Adds the given element to the given set
 	 * and returns it. If the given set is null,